@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+import com.google.common.collect.Iterators;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An abstract class for {@link StreamingStep}, which executes a list of records by
+ * streaming each of the records.
+ */
+@PublicEvolving
+public abstract class AbstractStreamingStep extends AbstractStep implements StreamingStep {
+
+  protected AbstractStreamingStep(int lineno, String detail) {
+    super(lineno, detail);
+  }
+
+  @Override
+  public List<Record> execute(List<Record> records, PipelineContext context)
+    throws StepException, ErrorRecordException {
+    List<Record> results = new ArrayList<>();
+    try {
+      for (Record record : records) {
+        Iterators.addAll(results, stream(record, context));
+      }
+    } catch (StreamException e) {
+      if (e.getCause() instanceof StepException) {
+        throw (StepException) e.getCause();
+      }
+      throw new StepException(e.getCause());
+    }
+    return results;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+import java.util.List;
+
+/**
+ * A {@link Step} that processes every record independently of the others, sending each of them to error
+ * on its own.
+ *
+ * <p>
+ *   Steps that are slow for every record, like calling out to services, implement this interface so that
+ *   they are handed many records at once and process them together, without a single record that errors
+ *   out failing all the records executed with it.
+ * </p>
+ */
+@PublicEvolving
+public interface BatchStep extends Step<Record, Record> {
+  /**
+   * Executes the step on the {@link Record}s, collecting the records that error out.
+   *
+   * @param records Input {@link Record}s to be wrangled by this step.
+   * @param context {@link PipelineContext} passed to each step.
+   * @param errors to which an {@link ErrorRecord} holding the input record is added for every record
+   *               that errors out.
+   * @return a wrangled {@link Record} for every input record that didn't error out, in the order of the input.
+   */
+  List<Record> execute(List<Record> records, PipelineContext context, ErrorRecordCollector errors)
+    throws StepException;
+}
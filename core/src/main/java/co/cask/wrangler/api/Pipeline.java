@@ -20,6 +20,7 @@ import co.cask.cdap.api.data.schema.Schema;
 import co.cask.wrangler.api.annotations.PublicEvolving;
 
 import java.io.Serializable;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -51,6 +52,15 @@ public interface Pipeline<I, O, E> extends Serializable {
    */
   List<I> execute(List<I> input) throws PipelineException;
 
+  /**
+   * Executes the pipeline on the input lazily, records are read from the input as the output is iterated over.
+   * Failures while iterating are thrown as {@link StreamException}, with the {@link PipelineException} as cause.
+   *
+   * @param input Iterator over input record of type I.
+   * @return Iterator over parsed output record of type I
+   */
+  Iterator<I> execute(Iterator<I> input) throws PipelineException;
+
   /**
    * Returns records that are errored out.
    *
@@ -24,8 +24,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
 
 /**
  * Record defines the schema and data on which the wrangler will operate upon.
@@ -33,13 +38,21 @@ import java.util.List;
 @PublicEvolving
 public class Record implements Serializable {
   private static final Logger LOG = LoggerFactory.getLogger(Record.class);
+  private static final long serialVersionUID = -4178369001755209190L;
 
-  // Name of the columns held by the row.
+  // Name of the columns held by the row. When the names are shared with other rows they
+  // are held in a {@link ColumnList}, which is copied before the row changes its columns.
   private List<String> columns = new ArrayList<>();
 
   // Values held by the row.
   private List<Object> values = new ArrayList<>();
 
+  // Number of columns beyond which lookups by name go through the index.
+  private static final int INDEX_THRESHOLD = 8;
+
+  // Lazily built case-insensitive index of column name to the first position it's found at.
+  private transient Map<String, Integer> index;
+
   public Record() {
   }
 
@@ -50,7 +63,7 @@ public class Record implements Serializable {
    */
   public Record(Record record) {
     this.values = new ArrayList<>(record.values);
-    this.columns = new ArrayList<>(record.columns);
+    this.columns = record.share();
   }
 
   /**
@@ -91,7 +104,9 @@ public class Record implements Serializable {
    * @param name of the column to be added.
    */
   public void addColumn(String name) {
+    own();
     columns.add(name);
+    indexColumn(name, columns.size() - 1);
   }
 
   /**
@@ -101,14 +116,18 @@ public class Record implements Serializable {
    * @param name of the column to be set at idx.
    */
   public void setColumn(int idx, String name) {
+    own();
     columns.set(idx, name);
+    index = null;
   }
 
   /**
    * Clears all the column entries for the row.
    */
   public void clearColumns() {
+    own();
     columns.clear();
+    index = null;
   }
 
   /**
@@ -165,19 +184,34 @@ public class Record implements Serializable {
    * @param value to be added to row.
    */
   public Record add(String name, Object value) {
+    own();
     columns.add(name);
     values.add(value);
+    indexColumn(name, columns.size() - 1);
     return this;
   }
 
+  /**
+   * Makes room for a number of columns, so that adding them does not grow the row one column at a time.
+   *
+   * @param size number of columns the row is expected to hold.
+   */
+  public void ensureCapacity(int size) {
+    own();
+    ((ArrayList<String>) columns).ensureCapacity(size);
+    ((ArrayList<Object>) values).ensureCapacity(size);
+  }
+
   /**
    * Removes the column and value at given index.
    *
    * @param idx for which the value and column are removed.
    */
   public Record remove(int idx) {
+    own();
     columns.remove(idx);
     values.remove(idx);
+    index = null;
     return this;
   }
 
@@ -188,14 +222,104 @@ public class Record implements Serializable {
    * @return null if not present, else the index at which the column is found.
    */
   public int find(String col) {
-    int idx = 0;
-    for (String name : columns) {
-      if (col.equalsIgnoreCase(name)) {
-        return idx;
+    int size = columns.size();
+    if (size <= INDEX_THRESHOLD) {
+      for (int idx = 0; idx < size; ++idx) {
+        if (col.equalsIgnoreCase(columns.get(idx))) {
+          return idx;
+        }
+      }
+      return -1;
+    }
+
+    Map<String, Integer> lookup;
+    if (columns instanceof ColumnList) {
+      lookup = ((ColumnList) columns).index();
+    } else {
+      if (index == null) {
+        index = buildIndex(columns);
+      }
+      lookup = index;
+    }
+    Integer idx = lookup.get(col.toLowerCase(Locale.ENGLISH));
+    return idx == null ? -1 : idx;
+  }
+
+  /**
+   * Makes this record share the column names of another record, if both have the same columns.
+   * This reduces the memory retained by large batches of records having the same layout.
+   *
+   * @param other record whose column names are to be shared.
+   * @return true if the column names are shared, false if the columns of the records differ.
+   */
+  public boolean shareColumns(Record other) {
+    if (columns == other.columns) {
+      return true;
+    }
+    if (!columns.equals(other.columns)) {
+      return false;
+    }
+    columns = other.share();
+    index = null;
+    return true;
+  }
+
+  /**
+   * Marks the column names of this record as shared and returns them.
+   *
+   * @return column names that can be handed to other records.
+   */
+  private List<String> share() {
+    if (!(columns instanceof ColumnList)) {
+      columns = new ColumnList(columns, index);
+      index = null;
+    }
+    return columns;
+  }
+
+  /**
+   * Makes a private copy of the column names, if they are shared with other records,
+   * before they are modified.
+   */
+  private void own() {
+    if (columns instanceof ColumnList) {
+      columns = new ArrayList<>(columns);
+      index = null;
+    }
+  }
+
+  /**
+   * Builds a case-insensitive index of the column names.
+   *
+   * @param columns names of the columns to be indexed.
+   * @return index of column name to the first position it's found at.
+   */
+  private static Map<String, Integer> buildIndex(List<String> columns) {
+    int size = columns.size();
+    Map<String, Integer> index = new HashMap<>(size * 2);
+    for (int idx = size - 1; idx >= 0; --idx) {
+      String name = columns.get(idx);
+      if (name != null) {
+        index.put(name.toLowerCase(Locale.ENGLISH), idx);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Adds a column to the index if the index has been built, retaining the first position
+   * when a column name is repeated.
+   *
+   * @param name of the column.
+   * @param idx position of the column in the row.
+   */
+  private void indexColumn(String name, int idx) {
+    if (index != null && name != null) {
+      String key = name.toLowerCase(Locale.ENGLISH);
+      if (!index.containsKey(key)) {
+        index.put(key, idx);
       }
-      idx++;
     }
-    return -1;
   }
 
   /**
@@ -262,4 +386,37 @@ public class Record implements Serializable {
   public int hashCode() {
     return Objects.hashCode(values, columns);
   }
+
+  /**
+   * Immutable list of column names shared by multiple records. The lookup index
+   * of the names is built once and shared as well.
+   */
+  private static final class ColumnList extends AbstractList<String> implements RandomAccess, Serializable {
+    private final String[] names;
+    private transient volatile Map<String, Integer> index;
+
+    ColumnList(List<String> names, Map<String, Integer> index) {
+      this.names = names.toArray(new String[names.size()]);
+      this.index = index;
+    }
+
+    @Override
+    public String get(int idx) {
+      return names[idx];
+    }
+
+    @Override
+    public int size() {
+      return names.length;
+    }
+
+    Map<String, Integer> index() {
+      Map<String, Integer> lookup = index;
+      if (lookup == null) {
+        lookup = buildIndex(this);
+        index = lookup;
+      }
+      return lookup;
+    }
+  }
 }
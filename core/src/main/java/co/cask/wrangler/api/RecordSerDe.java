@@ -0,0 +1,460 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+import com.google.common.base.Charsets;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Serializes a list of {@link Record} into a compact, versioned, binary columnar format.
+ *
+ * <p>
+ *   The format is laid out as follows :
+ *   <ul>
+ *     <li>A header with a magic number, the version of the format and flags, like whether the rest is compressed.</li>
+ *     <li>The dictionary of the column names and the distinct layouts of columns the records have, as
+ *     indexes into the dictionary.</li>
+ *     <li>The layout of every record.</li>
+ *     <li>For every layout, and every column of the layout, the vector of values of the records having the layout.
+ *     Vectors holding values of a single type are written without a type per value.</li>
+ *   </ul>
+ *   Values of types not natively supported by the format are written using Java serialization.
+ * </p>
+ *
+ * <p>
+ *   Records serialized using {@link ObjectSerDe} are recognized when deserializing, so that data stored
+ *   before this format was introduced can still be read.
+ * </p>
+ */
+@PublicEvolving
+public final class RecordSerDe {
+  // Magic number and version of the format.
+  private static final byte[] MAGIC = new byte[] { 'W', 'R', 'C' };
+  private static final byte VERSION = 1;
+
+  // Flag set when the body is compressed.
+  private static final byte COMPRESSED = 0x01;
+
+  // First bytes of a Java serialization stream.
+  private static final byte[] JAVA_MAGIC = new byte[] { (byte) 0xAC, (byte) 0xED };
+
+  // Types of values.
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INT = 2;
+  private static final byte LONG = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte FLOAT = 5;
+  private static final byte BOOLEAN = 6;
+  private static final byte BYTES = 7;
+  private static final byte SHORT = 8;
+  private static final byte OBJECT = 9;
+
+  // Written for vectors holding values of different types, every value is then preceded by its type.
+  private static final byte MIXED = -1;
+
+  private final boolean compress;
+
+  /**
+   * Creates a serializer that compresses the records.
+   */
+  public RecordSerDe() {
+    this(true);
+  }
+
+  /**
+   * Creates a serializer.
+   *
+   * @param compress true to compress the records serialized.
+   */
+  public RecordSerDe(boolean compress) {
+    this.compress = compress;
+  }
+
+  /**
+   * Serializes the records.
+   *
+   * @param records to be serialized.
+   * @return records serialized.
+   */
+  public byte[] toByteArray(List<Record> records) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    bos.write(MAGIC);
+    bos.write(VERSION);
+    bos.write(compress ? COMPRESSED : 0);
+
+    OutputStream os = compress ? new DeflaterOutputStream(bos) : bos;
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+
+    // Collect the column names and the layouts of columns of the records.
+    Map<String, Integer> names = new HashMap<>();
+    Map<List<Integer>, Integer> ids = new HashMap<>();
+    List<List<Integer>> layouts = new ArrayList<>();
+    List<List<Record>> groups = new ArrayList<>();
+    int[] layoutOf = new int[records.size()];
+    for (int r = 0; r < records.size(); ++r) {
+      Record record = records.get(r);
+      // Consecutive records mostly have the same columns.
+      if (r > 0 && sameColumns(record, records.get(r - 1))) {
+        layoutOf[r] = layoutOf[r - 1];
+        groups.get(layoutOf[r]).add(record);
+        continue;
+      }
+      List<Integer> layout = new ArrayList<>(record.length());
+      for (int i = 0; i < record.length(); ++i) {
+        String name = record.getColumn(i);
+        Integer id = names.get(name);
+        if (id == null) {
+          id = names.size();
+          names.put(name, id);
+        }
+        layout.add(id);
+      }
+      Integer id = ids.get(layout);
+      if (id == null) {
+        id = layouts.size();
+        ids.put(layout, id);
+        layouts.add(layout);
+        groups.add(new ArrayList<Record>());
+      }
+      layoutOf[r] = id;
+      groups.get(id).add(record);
+    }
+
+    String[] dictionary = new String[names.size()];
+    for (Map.Entry<String, Integer> entry : names.entrySet()) {
+      dictionary[entry.getValue()] = entry.getKey();
+    }
+    writeVarInt(out, dictionary.length);
+    for (String name : dictionary) {
+      if (name == null) {
+        out.writeBoolean(false);
+      } else {
+        out.writeBoolean(true);
+        writeString(out, name);
+      }
+    }
+
+    writeVarInt(out, layouts.size());
+    for (List<Integer> layout : layouts) {
+      writeVarInt(out, layout.size());
+      for (int id : layout) {
+        writeVarInt(out, id);
+      }
+    }
+
+    writeVarInt(out, records.size());
+    for (int id : layoutOf) {
+      writeVarInt(out, id);
+    }
+
+    // Values, a vector for every column of every layout.
+    for (int l = 0; l < layouts.size(); ++l) {
+      List<Record> group = groups.get(l);
+      for (int i = 0; i < layouts.get(l).size(); ++i) {
+        writeVector(out, group, i);
+      }
+    }
+
+    out.close();
+    return bos.toByteArray();
+  }
+
+  /**
+   * Deserializes records serialized with {@link #toByteArray(List)}, or with {@link ObjectSerDe}.
+   *
+   * @param bytes records serialized.
+   * @return records deserialized.
+   */
+  public List<Record> toObject(byte[] bytes) throws IOException {
+    if (isJavaSerialized(bytes)) {
+      try {
+        return new ObjectSerDe<List<Record>>().toObject(bytes);
+      } catch (ClassNotFoundException e) {
+        throw new IOException(e);
+      }
+    }
+
+    if (bytes.length < MAGIC.length + 2 || !Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC)) {
+      throw new IOException("Data is not in the format of serialized records.");
+    }
+    byte version = bytes[MAGIC.length];
+    if (version != VERSION) {
+      throw new IOException(String.format("Unsupported version %d of serialized records.", version));
+    }
+    byte flags = bytes[MAGIC.length + 1];
+    int offset = MAGIC.length + 2;
+    InputStream is = new ByteArrayInputStream(bytes, offset, bytes.length - offset);
+    if ((flags & COMPRESSED) != 0) {
+      is = new InflaterInputStream(is);
+    }
+    DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+    try {
+      String[] dictionary = new String[readVarInt(in)];
+      for (int i = 0; i < dictionary.length; ++i) {
+        dictionary[i] = in.readBoolean() ? readString(in) : null;
+      }
+
+      // Records of a layout share the column names of the layout.
+      int count = readVarInt(in);
+      Record[] templates = new Record[count];
+      for (int l = 0; l < templates.length; ++l) {
+        int size = readVarInt(in);
+        List<String> columns = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+          columns.add(dictionary[readVarInt(in)]);
+        }
+        templates[l] = new Record(columns);
+      }
+
+      int[] layoutOf = new int[readVarInt(in)];
+      int[] sizes = new int[templates.length];
+      for (int r = 0; r < layoutOf.length; ++r) {
+        layoutOf[r] = readVarInt(in);
+        sizes[layoutOf[r]]++;
+      }
+
+      Object[][][] vectors = new Object[templates.length][][];
+      for (int l = 0; l < templates.length; ++l) {
+        vectors[l] = new Object[templates[l].length()][];
+        for (int i = 0; i < vectors[l].length; ++i) {
+          vectors[l][i] = readVector(in, sizes[l]);
+        }
+      }
+
+      List<Record> records = new ArrayList<>(layoutOf.length);
+      int[] next = new int[templates.length];
+      for (int layout : layoutOf) {
+        Record record = new Record(templates[layout]);
+        int k = next[layout]++;
+        for (Object[] vector : vectors[layout]) {
+          record.addValue(vector[k]);
+        }
+        records.add(record);
+      }
+      return records;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * @return true if the bytes are records serialized using Java serialization.
+   */
+  public static boolean isJavaSerialized(byte[] bytes) {
+    return bytes.length >= JAVA_MAGIC.length && bytes[0] == JAVA_MAGIC[0] && bytes[1] == JAVA_MAGIC[1];
+  }
+
+  private static boolean sameColumns(Record a, Record b) {
+    if (a.length() != b.length()) {
+      return false;
+    }
+    for (int i = 0; i < a.length(); ++i) {
+      String name = a.getColumn(i);
+      if (name == null ? b.getColumn(i) != null : !name.equals(b.getColumn(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeVector(DataOutputStream out, List<Record> records, int column) throws IOException {
+    byte type = NULL;
+    for (int r = 0; r < records.size(); ++r) {
+      byte t = typeOf(records.get(r).getValue(column));
+      if (r == 0) {
+        type = t;
+      } else if (t != type) {
+        type = MIXED;
+        break;
+      }
+    }
+
+    out.writeByte(type);
+    if (type == NULL) {
+      return;
+    }
+    for (Record record : records) {
+      Object value = record.getValue(column);
+      if (type == MIXED) {
+        byte t = typeOf(value);
+        out.writeByte(t);
+        writeValue(out, t, value);
+      } else {
+        writeValue(out, type, value);
+      }
+    }
+  }
+
+  private static Object[] readVector(DataInputStream in, int size) throws IOException {
+    Object[] vector = new Object[size];
+    byte type = in.readByte();
+    if (type == NULL) {
+      return vector;
+    }
+    for (int i = 0; i < size; ++i) {
+      vector[i] = readValue(in, type == MIXED ? in.readByte() : type);
+    }
+    return vector;
+  }
+
+  private static byte typeOf(Object value) {
+    if (value == null) {
+      return NULL;
+    } else if (value instanceof String) {
+      return STRING;
+    } else if (value instanceof Integer) {
+      return INT;
+    } else if (value instanceof Long) {
+      return LONG;
+    } else if (value instanceof Double) {
+      return DOUBLE;
+    } else if (value instanceof Float) {
+      return FLOAT;
+    } else if (value instanceof Boolean) {
+      return BOOLEAN;
+    } else if (value instanceof byte[]) {
+      return BYTES;
+    } else if (value instanceof Short) {
+      return SHORT;
+    }
+    return OBJECT;
+  }
+
+  private static void writeValue(DataOutputStream out, byte type, Object value) throws IOException {
+    switch (type) {
+      case NULL:
+        break;
+      case STRING:
+        writeString(out, (String) value);
+        break;
+      case INT:
+        out.writeInt((Integer) value);
+        break;
+      case LONG:
+        out.writeLong((Long) value);
+        break;
+      case DOUBLE:
+        out.writeDouble((Double) value);
+        break;
+      case FLOAT:
+        out.writeFloat((Float) value);
+        break;
+      case BOOLEAN:
+        out.writeBoolean((Boolean) value);
+        break;
+      case BYTES:
+        writeBytes(out, (byte[]) value);
+        break;
+      case SHORT:
+        out.writeShort((Short) value);
+        break;
+      default:
+        writeBytes(out, new ObjectSerDe<Object>().toByteArray(value));
+        break;
+    }
+  }
+
+  private static Object readValue(DataInputStream in, byte type) throws IOException {
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case INT:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case BOOLEAN:
+        return in.readBoolean();
+      case BYTES:
+        return readBytes(in);
+      case SHORT:
+        return in.readShort();
+      case OBJECT:
+        try {
+          return new ObjectSerDe<Object>().toObject(readBytes(in));
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        }
+      default:
+        throw new IOException(String.format("Unknown type %d of serialized value.", type));
+    }
+  }
+
+  private static void writeString(DataOutput out, String value) throws IOException {
+    writeBytes(out, value.getBytes(Charsets.UTF_8));
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    return new String(readBytes(in), Charsets.UTF_8);
+  }
+
+  private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+    writeVarInt(out, bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInput in) throws IOException {
+    byte[] bytes = new byte[readVarInt(in)];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static void writeVarInt(DataOutput out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(DataInput in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = in.readByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable length integer.");
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.wrangler.api;
+
+/**
+ * Thrown when a failure happens while iterating over a stream of records, as {@link java.util.Iterator}
+ * does not allow checked exceptions.
+ */
+public class StreamException extends RuntimeException {
+  public StreamException(StepException e) {
+    super(e);
+  }
+
+  public StreamException(PipelineException e) {
+    super(e);
+  }
+
+  /**
+   * @return the {@link StepException} or {@link PipelineException} that caused the failure.
+   */
+  @Override
+  public synchronized Exception getCause() {
+    return (Exception) super.getCause();
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+import java.util.Iterator;
+
+/**
+ * A {@link Step} that produces the records resulting from an input record incrementally.
+ *
+ * <p>
+ *   Steps that turn a record into many, like flattening arrays or parsing files, implement this interface
+ *   so that the records they produce are consumed by the steps downstream as they are produced, rather than
+ *   being held in a list all at once.
+ * </p>
+ */
+@PublicEvolving
+public interface StreamingStep extends Step<Record, Record> {
+  /**
+   * Executes the step on a single {@link Record}, returning the wrangled records lazily.
+   *
+   * <p>
+   *   Failures that happen while iterating over the records returned are thrown as {@link StreamException},
+   *   with the {@link StepException} as the cause.
+   * </p>
+   *
+   * @param record Input {@link Record} to be wrangled by this step.
+   * @param context {@link PipelineContext} passed to each step.
+   * @return Iterator over the wrangled {@link Record}s.
+   */
+  Iterator<Record> stream(Record record, PipelineContext context) throws StepException, ErrorRecordException;
+}
@@ -23,18 +23,39 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.regex.Pattern;
 
 public class DateTimePattern {
   private static List<Map<Pattern, String>> DATE_PATTERN_GROUP_LIST = new ArrayList<Map<Pattern, String>>();
   private static List<Map<Pattern, String>> TIME_PATTERN_GROUP_LIST = new ArrayList<Map<Pattern, String>>();
 
+  // Number of slots of the index of candidate patterns by signature, a power of two.
+  private static final int SLOTS = 4096;
+
+  // Bit of each printable ASCII character other than letters and digits in a signature, -1 for the others.
+  private static final int[] SEPARATOR_BITS = new int[128];
+
+  // Shape of the values each of the patterns can match.
+  private static final Map<Pattern, RegexShape> SHAPES = new HashMap<>();
+
+  // Groups of patterns that can match values of a signature, in the slot of the signature.
+  private static final AtomicReferenceArray<Candidates> DATE_CANDIDATES = new AtomicReferenceArray<>(SLOTS);
+  private static final AtomicReferenceArray<Candidates> TIME_CANDIDATES = new AtomicReferenceArray<>(SLOTS);
+
   static {
+    int bit = 0;
+    for (char c = 0; c < SEPARATOR_BITS.length; ++c) {
+      boolean separator = c >= ' ' && c <= '~' && !Character.isLetterOrDigit(c);
+      SEPARATOR_BITS[c] = separator ? bit++ : -1;
+    }
+
     try {
       // Load date patterns
       loadPatterns("DateRegexesGrouped.txt", DATE_PATTERN_GROUP_LIST);
@@ -62,6 +83,7 @@ public class DateTimePattern {
             String format = lineArray[0];
             Pattern pattern = Pattern.compile(lineArray[1]);
             currentGroupMap.put(pattern, format);
+            SHAPES.put(pattern, RegexShape.of(lineArray[1]));
           }
         }
       }
@@ -85,7 +107,7 @@ public class DateTimePattern {
     if (value.length() < 6 || value.length() > 64) {
       return false;
     }
-    return isDateTime(DATE_PATTERN_GROUP_LIST, value);
+    return isDateTime(candidates(DATE_PATTERN_GROUP_LIST, DATE_CANDIDATES, value), value);
   }
 
   /**
@@ -102,7 +124,7 @@ public class DateTimePattern {
     if (value.length() < 4 || value.length() > 24) {
       return false;
     }
-    return isDateTime(TIME_PATTERN_GROUP_LIST, value);
+    return isDateTime(candidates(TIME_PATTERN_GROUP_LIST, TIME_CANDIDATES, value), value);
   }
 
   private static boolean isDateTime(List<Map<Pattern, String>> patternGroupList, String value) {
@@ -140,6 +162,93 @@ public class DateTimePattern {
     return false;
   }
 
+  /**
+   * Returns the groups of patterns that can match a value.
+   *
+   * <p>
+   *   Patterns are matched against the whole of the value, hence a value can only be matched by the patterns
+   *   that allow for its length and for the characters other than letters and digits it holds. Those are
+   *   the signature of the value, and the groups of candidate patterns are indexed by signature.
+   * </p>
+   *
+   * @param groups of patterns.
+   * @param index of the candidate patterns by signature.
+   * @param value to be matched.
+   * @return groups of candidate patterns, in the same order as the groups of patterns.
+   */
+  private static List<Map<Pattern, String>> candidates(List<Map<Pattern, String>> groups,
+                                                       AtomicReferenceArray<Candidates> index, String value) {
+    long signature = signature(value);
+    if (signature == -1) {
+      return groups;
+    }
+
+    int slot = (int) ((signature ^ (signature >>> 17) ^ (signature >>> 31)) & (SLOTS - 1));
+    Candidates indexed = index.get(slot);
+    if (indexed != null && indexed.signature == signature) {
+      return indexed.groups;
+    }
+
+    List<Map<Pattern, String>> candidates = new ArrayList<>();
+    for (Map<Pattern, String> group : groups) {
+      Map<Pattern, String> candidateGroup = new LinkedHashMap<>();
+      for (Map.Entry<Pattern, String> entry : group.entrySet()) {
+        if (SHAPES.get(entry.getKey()).accepts(value)) {
+          candidateGroup.put(entry.getKey(), entry.getValue());
+        }
+      }
+      if (!candidateGroup.isEmpty()) {
+        candidates.add(candidateGroup);
+      }
+    }
+    index.set(slot, new Candidates(signature, candidates));
+    return candidates;
+  }
+
+  /**
+   * Computes the signature of a value : its length in the lowest 7 bits, followed by a bit for each of the
+   * printable ASCII characters other than letters and digits it holds.
+   *
+   * @return the signature, -1 if the value has no signature and is matched against all the patterns.
+   */
+  private static long signature(String value) {
+    int length = value.length();
+    char last = value.charAt(length - 1);
+    if (length > 127 || last == '\n' || last == '\r' || last == '\u0085' || last == '\u2028' || last == '\u2029') {
+      // '$' matches before a final line terminator, which the shapes do not account for.
+      return -1;
+    }
+    long signature = length;
+    for (int i = 0; i < length; ++i) {
+      char c = value.charAt(i);
+      if (c < SEPARATOR_BITS.length) {
+        int bit = SEPARATOR_BITS[c];
+        if (bit >= 0) {
+          signature |= 1L << (7 + bit);
+        } else if (!Character.isLetterOrDigit(c)) {
+          return -1;
+        }
+      } else if (!Character.isLetterOrDigit(c)) {
+        // Includes surrogates, which are not letters or digits on their own.
+        return -1;
+      }
+    }
+    return signature;
+  }
+
+  /**
+   * Groups of candidate patterns for the values of a signature.
+   */
+  private static final class Candidates {
+    private final long signature;
+    private final List<Map<Pattern, String>> groups;
+
+    Candidates(long signature, List<Map<Pattern, String>> groups) {
+      this.signature = signature;
+      this.groups = groups;
+    }
+  }
+
   /**
    * Replace the value with date pattern string.
    *
@@ -147,7 +256,10 @@ public class DateTimePattern {
    * @return date pattern string.
    */
   public static Set<String> datePatternReplace(String value) {
-    return dateTimePatternReplace(DATE_PATTERN_GROUP_LIST, value);
+    if (StringUtils.isEmpty(value)) {
+      return Collections.singleton(StringUtils.EMPTY);
+    }
+    return dateTimePatternReplace(candidates(DATE_PATTERN_GROUP_LIST, DATE_CANDIDATES, value), value);
   }
 
   /**
@@ -157,7 +269,10 @@ public class DateTimePattern {
    * @return
    */
   public static Set<String> timePatternReplace(String value) {
-    return dateTimePatternReplace(TIME_PATTERN_GROUP_LIST, value);
+    if (StringUtils.isEmpty(value)) {
+      return Collections.singleton(StringUtils.EMPTY);
+    }
+    return dateTimePatternReplace(candidates(TIME_PATTERN_GROUP_LIST, TIME_CANDIDATES, value), value);
   }
 
   private static Set<String> dateTimePatternReplace(List<Map<Pattern, String>> patternGroupList, String value) {
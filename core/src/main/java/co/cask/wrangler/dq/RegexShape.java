@@ -0,0 +1,311 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.dq;
+
+/**
+ * Shape of the values a regular expression can match : the range of their lengths and the characters
+ * other than letters and digits they can hold.
+ *
+ * <p>
+ *   The shape is an over-approximation, used to rule out values a regular expression cannot match without
+ *   running the regular expression on them. Only the subset of the regular expression syntax used by the
+ *   date and time patterns is analyzed; any other construct makes the shape match every value.
+ * </p>
+ */
+final class RegexShape {
+  private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  // Shape that does not rule out any value.
+  private static final RegexShape ANY = new RegexShape(0, UNBOUNDED, null);
+
+  private final int minLength;
+  private final int maxLength;
+  // Characters other than letters and digits that can be matched, null if any character can be matched.
+  private final String separators;
+
+  private RegexShape(int minLength, int maxLength, String separators) {
+    this.minLength = minLength;
+    this.maxLength = maxLength;
+    this.separators = separators;
+  }
+
+  /**
+   * Analyzes a regular expression that is matched against the whole of the value, that is, one that starts
+   * with '^' and ends with '$'.
+   *
+   * @param regex to be analyzed.
+   * @return shape of the values the regular expression can match.
+   */
+  static RegexShape of(String regex) {
+    if (regex.length() < 2 || regex.charAt(0) != '^' || regex.charAt(regex.length() - 1) != '$'
+      || regex.charAt(regex.length() - 2) == '\\') {
+      return ANY;
+    }
+    Parser parser = new Parser(regex.substring(1, regex.length() - 1));
+    try {
+      int[] length = parser.alternation();
+      if (parser.pos != parser.regex.length()) {
+        return ANY;
+      }
+      return new RegexShape(length[0], length[1], parser.any ? null : parser.separators.toString());
+    } catch (UnsupportedOperationException e) {
+      return ANY;
+    }
+  }
+
+  /**
+   * Checks if a value could be matched, looking at its length and separators only.
+   *
+   * @param value to be checked.
+   * @return false if the value cannot be matched.
+   */
+  boolean accepts(String value) {
+    int length = value.length();
+    if (length < minLength || length > maxLength) {
+      return false;
+    }
+    if (separators == null) {
+      return true;
+    }
+    for (int i = 0; i < length; ) {
+      int cp = value.codePointAt(i);
+      if (!Character.isLetterOrDigit(cp) && separators.indexOf(cp) == -1) {
+        return false;
+      }
+      i += Character.charCount(cp);
+    }
+    return true;
+  }
+
+  /**
+   * Recursive descent over the regular expression, computing the range of lengths of each construct.
+   */
+  private static final class Parser {
+    private final String regex;
+    private final StringBuilder separators = new StringBuilder();
+    private boolean any;
+    private int pos;
+
+    Parser(String regex) {
+      this.regex = regex;
+    }
+
+    int[] alternation() {
+      int[] length = sequence();
+      while (pos < regex.length() && regex.charAt(pos) == '|') {
+        pos++;
+        int[] other = sequence();
+        length[0] = Math.min(length[0], other[0]);
+        length[1] = Math.max(length[1], other[1]);
+      }
+      return length;
+    }
+
+    private int[] sequence() {
+      int[] length = new int[] {0, 0};
+      while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+        int[] atom = quantified(atom());
+        length[0] = add(length[0], atom[0]);
+        length[1] = add(length[1], atom[1]);
+      }
+      return length;
+    }
+
+    private int[] atom() {
+      char c = regex.charAt(pos++);
+      switch (c) {
+        case '(':
+          if (pos < regex.length() && regex.charAt(pos) == '?') {
+            if (pos + 1 < regex.length() && regex.charAt(pos + 1) == ':') {
+              pos += 2;
+            } else {
+              throw new UnsupportedOperationException();
+            }
+          }
+          int[] group = alternation();
+          expect(')');
+          return group;
+        case '[':
+          return characterClass();
+        case '\\':
+          return escape();
+        case '.':
+          any = true;
+          return new int[] {1, 2};
+        case '^':
+        case '$':
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          throw new UnsupportedOperationException();
+        default:
+          pos--;
+          int cp = regex.codePointAt(pos);
+          pos += Character.charCount(cp);
+          separator(cp);
+          return new int[] {Character.charCount(cp), Character.charCount(cp)};
+      }
+    }
+
+    private int[] escape() {
+      char c = next();
+      switch (c) {
+        case 'd':
+          return new int[] {1, 1};
+        case 'w':
+          separator('_');
+          return new int[] {1, 1};
+        case 'p':
+          // Letter categories are the only ones that cannot match separators.
+          expect('{');
+          int end = regex.indexOf('}', pos);
+          if (end == -1) {
+            throw new UnsupportedOperationException();
+          }
+          String category = regex.substring(pos, end);
+          pos = end + 1;
+          if (!category.startsWith("L") && !category.startsWith("IsL")) {
+            any = true;
+          }
+          return new int[] {1, 2};
+        default:
+          if (Character.isLetterOrDigit(c)) {
+            // Other classes, back references and boundaries are not analyzed.
+            throw new UnsupportedOperationException();
+          }
+          separator(c);
+          return new int[] {1, 1};
+      }
+    }
+
+    private int[] characterClass() {
+      if (pos < regex.length() && regex.charAt(pos) == '^') {
+        throw new UnsupportedOperationException();
+      }
+      boolean first = true;
+      while (first || regex.charAt(pos) != ']') {
+        first = false;
+        char low = next();
+        if (low == '[' || (low == '&' && pos < regex.length() && regex.charAt(pos) == '&')) {
+          throw new UnsupportedOperationException();
+        }
+        if (low == '\\') {
+          low = next();
+          if (Character.isLetterOrDigit(low)) {
+            throw new UnsupportedOperationException();
+          }
+        }
+        char high = low;
+        if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+          pos++;
+          high = next();
+          if (high == '\\' || high == '[') {
+            throw new UnsupportedOperationException();
+          }
+        }
+        if (Character.isSurrogate(low) || Character.isSurrogate(high) || high < low) {
+          throw new UnsupportedOperationException();
+        }
+        for (char ch = low; ch <= high && ch >= low; ++ch) {
+          separator(ch);
+          if (ch == Character.MAX_VALUE) {
+            break;
+          }
+        }
+      }
+      pos++;
+      return new int[] {1, 1};
+    }
+
+    private int[] quantified(int[] length) {
+      if (pos >= regex.length()) {
+        return length;
+      }
+      int min;
+      int max;
+      char c = regex.charAt(pos);
+      if (c == '?') {
+        min = 0;
+        max = 1;
+      } else if (c == '*') {
+        min = 0;
+        max = UNBOUNDED;
+      } else if (c == '+') {
+        min = 1;
+        max = UNBOUNDED;
+      } else if (c == '{') {
+        int end = regex.indexOf('}', pos);
+        if (end == -1) {
+          throw new UnsupportedOperationException();
+        }
+        String[] bounds = regex.substring(pos + 1, end).split(",", -1);
+        try {
+          min = Integer.parseInt(bounds[0].trim());
+          if (bounds.length == 1) {
+            max = min;
+          } else if (bounds.length == 2) {
+            max = bounds[1].trim().isEmpty() ? UNBOUNDED : Integer.parseInt(bounds[1].trim());
+          } else {
+            throw new UnsupportedOperationException();
+          }
+        } catch (NumberFormatException e) {
+          throw new UnsupportedOperationException();
+        }
+        pos = end;
+      } else {
+        return length;
+      }
+      pos++;
+      // Lazy and possessive quantifiers match the same values.
+      if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+        pos++;
+      }
+      return new int[] {multiply(length[0], min), multiply(length[1], max)};
+    }
+
+    private void separator(int cp) {
+      if (!Character.isLetterOrDigit(cp) && separators.indexOf(new String(Character.toChars(cp))) == -1) {
+        separators.appendCodePoint(cp);
+      }
+    }
+
+    private char next() {
+      if (pos >= regex.length()) {
+        throw new UnsupportedOperationException();
+      }
+      return regex.charAt(pos++);
+    }
+
+    private void expect(char c) {
+      if (next() != c) {
+        throw new UnsupportedOperationException();
+      }
+    }
+
+    private static int add(int a, int b) {
+      return (a == UNBOUNDED || b == UNBOUNDED) ? UNBOUNDED : (int) Math.min((long) a + b, UNBOUNDED);
+    }
+
+    private static int multiply(int a, int b) {
+      if (a == 0 || b == 0) {
+        return 0;
+      }
+      return (a == UNBOUNDED || b == UNBOUNDED) ? UNBOUNDED : (int) Math.min((long) a * b, UNBOUNDED);
+    }
+  }
+}
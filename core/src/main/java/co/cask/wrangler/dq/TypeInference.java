@@ -23,7 +23,10 @@ import java.util.regex.Pattern;
  * Type Interface provides utility functions that allow you to detect the types of data.
  */
 public class TypeInference {
-  private static final Pattern patternInteger = Pattern.compile("^(\\+|-)?\\d+$");
+  // Results of scanning a value for a decimal number.
+  private static final int NOT_DECIMAL = 0;
+  private static final int DECIMAL = 1;
+  private static final int MAYBE_DECIMAL = 2;
 
   private static final Pattern patternDouble = Pattern.compile("^[-+]?"// Positive/Negative sign
                                                                  + "("// BEGIN Decimal part
@@ -67,10 +70,14 @@ public class TypeInference {
    * @return true if the value is a double type, false otherwise.
    */
   public static boolean isDouble(String value) {
-    if (!isEmpty(value) && patternDouble.matcher(value).matches()) {
+    if (isEmpty(value)) {
+      return false;
+    }
+    int scan = scanDecimal(value);
+    if (scan == DECIMAL) {
       return true;
     }
-    return false;
+    return scan == MAYBE_DECIMAL && patternDouble.matcher(value).matches();
   }
 
   /**
@@ -80,10 +87,22 @@ public class TypeInference {
    * @return true if the value is a integer type, false otherwise.
    */
   public static boolean isInteger(String value) {
-    if (!isEmpty(value) && patternInteger.matcher(value).matches()) {
-      return true;
+    // Same as matching patternInteger, without the cost of running it.
+    if (value == null) {
+      return false;
     }
-    return false;
+    int length = value.length();
+    int start = length > 0 && (value.charAt(0) == '+' || value.charAt(0) == '-') ? 1 : 0;
+    if (start == length) {
+      return false;
+    }
+    for (int i = start; i < length; ++i) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
   }
 
   public static boolean isNumber(String value) {
@@ -117,8 +136,7 @@ public class TypeInference {
     if (isEmpty(value)) {
       return false;
     }
-    if ((value.trim().length() == 4 || value.trim().length() == 5)
-      && ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value))) { //$NON-NLS-1$ //$NON-NLS-2$
+    if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) { //$NON-NLS-1$ //$NON-NLS-2$
       return true;
     }
     return false;
@@ -151,7 +169,58 @@ public class TypeInference {
    * @return true if the value is blank or null, false otherwise.
    */
   public static boolean isEmpty(String value) {
-    return value == null || value.trim().length() == 0;
+    if (value == null) {
+      return true;
+    }
+    // Same as checking the trimmed value, without creating it.
+    for (int i = 0; i < value.length(); ++i) {
+      if (value.charAt(i) > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Scans a value for the characters a decimal number can hold.
+   *
+   * @param value the value to be scanned.
+   * @return {@link #DECIMAL} if the value is a plain decimal number, {@link #NOT_DECIMAL} if it holds characters
+   * no decimal number holds, {@link #MAYBE_DECIMAL} if {@link #patternDouble} has to decide.
+   */
+  private static int scanDecimal(String value) {
+    int length = value.length();
+    int start = value.charAt(0) == '+' || value.charAt(0) == '-' ? 1 : 0;
+    if (start == length) {
+      return NOT_DECIMAL;
+    }
+    char first = value.charAt(start);
+    if (first < '0' || first > '9') {
+      return NOT_DECIMAL;
+    }
+
+    // Plain decimal numbers are digits, with at most one point followed by digits.
+    boolean plain = true;
+    int point = -1;
+    for (int i = start + 1; i < length; ++i) {
+      char c = value.charAt(i);
+      if (c >= '0' && c <= '9') {
+        continue;
+      }
+      if (c == '.' && point == -1) {
+        point = i;
+        continue;
+      }
+      plain = false;
+      if (c != '.' && c != ',' && c != ' ' && c != 'e' && c != 'E' && c != '+' && c != '-'
+        && c != '\u00A0' && c != '\u2007' && c != '\u202F') {
+        return NOT_DECIMAL;
+      }
+    }
+    if (plain && point != length - 1) {
+      return DECIMAL;
+    }
+    return MAYBE_DECIMAL;
   }
 
   /**
@@ -192,6 +261,9 @@ public class TypeInference {
     } else if (TypeInference.isDouble(value)) {
       // 4. detect double
       return DataType.DOUBLE;
+    } else if (countDigits(value) < 3) {
+      // Dates and times hold at least 3 digits.
+      return DataType.STRING;
     } else if (isDate(value)) {
       // 5. detect date
       return DataType.DATE;
@@ -203,4 +275,14 @@ public class TypeInference {
     return DataType.STRING;
   }
 
+  private static int countDigits(String value) {
+    int digits = 0;
+    for (int i = 0; i < value.length() && digits < 3; ++i) {
+      char c = value.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digits++;
+      }
+    }
+    return digits;
+  }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.executor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable table of codes and their descriptions, packed into a few arrays.
+ *
+ * <p>
+ *   Codes are held sorted in a single array of characters, and descriptions encoded in UTF-8 in a single
+ *   array of bytes, each indexed by an array of offsets. Looking up a code is a binary search over the
+ *   characters and allocates nothing, the description being decoded only for the codes that are found.
+ * </p>
+ */
+final class CatalogTable {
+  private final char[] codes;
+  // Offset of each code in codes, followed by the length of codes.
+  private final int[] codeOffsets;
+  private final byte[] descriptions;
+  // Offset of each description in descriptions, followed by the length of descriptions.
+  private final int[] descriptionOffsets;
+
+  private CatalogTable(char[] codes, int[] codeOffsets, byte[] descriptions, int[] descriptionOffsets) {
+    this.codes = codes;
+    this.codeOffsets = codeOffsets;
+    this.descriptions = descriptions;
+    this.descriptionOffsets = descriptionOffsets;
+  }
+
+  /**
+   * Loads a table from lines holding the code in their first seven characters, followed by the description
+   * from the ninth character on. When a code is repeated, its last description is kept.
+   *
+   * @param in stream of lines, read with the default charset.
+   * @return the table loaded.
+   */
+  static CatalogTable load(InputStream in) throws IOException {
+    Map<String, String> entries = new TreeMap<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.length() < 8) {
+          continue;
+        }
+        entries.put(line.substring(0, 7).trim(), line.substring(8).trim());
+      }
+    }
+
+    int[] codeOffsets = new int[entries.size() + 1];
+    int[] descriptionOffsets = new int[entries.size() + 1];
+    StringBuilder codes = new StringBuilder();
+    byte[][] encoded = new byte[entries.size()][];
+    int i = 0;
+    int length = 0;
+    for (Map.Entry<String, String> entry : entries.entrySet()) {
+      codeOffsets[i] = codes.length();
+      codes.append(entry.getKey());
+      descriptionOffsets[i] = length;
+      encoded[i] = entry.getValue().getBytes(StandardCharsets.UTF_8);
+      length += encoded[i].length;
+      i++;
+    }
+    codeOffsets[i] = codes.length();
+    descriptionOffsets[i] = length;
+
+    byte[] descriptions = new byte[length];
+    for (i = 0; i < encoded.length; ++i) {
+      System.arraycopy(encoded[i], 0, descriptions, descriptionOffsets[i], encoded[i].length);
+    }
+    char[] chars = new char[codes.length()];
+    codes.getChars(0, chars.length, chars, 0);
+    return new CatalogTable(chars, codeOffsets, descriptions, descriptionOffsets);
+  }
+
+  /**
+   * @return number of codes in the table.
+   */
+  int size() {
+    return codeOffsets.length - 1;
+  }
+
+  /**
+   * Finds a code in the table.
+   *
+   * @param code to be found.
+   * @return index of the code, -1 if the code is not in the table.
+   */
+  int find(String code) {
+    if (code == null) {
+      return -1;
+    }
+    int low = 0;
+    int high = size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(mid, code);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param index of a code found in the table.
+   * @return description of the code.
+   */
+  String description(int index) {
+    int offset = descriptionOffsets[index];
+    return new String(descriptions, offset, descriptionOffsets[index + 1] - offset, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Compares the code at an index with a code, in the order of {@link String#compareTo(String)}.
+   */
+  private int compare(int index, String code) {
+    int offset = codeOffsets[index];
+    int length = codeOffsets[index + 1] - offset;
+    int n = Math.min(length, code.length());
+    for (int i = 0; i < n; ++i) {
+      int cmp = codes[offset + i] - code.charAt(i);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return length - code.length();
+  }
+}
@@ -18,15 +18,14 @@ package co.cask.wrangler.executor;
 
 
 import co.cask.wrangler.api.StaticCatalog;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.IOException;
+import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Class for loading and managing ICD codes.
@@ -35,15 +34,36 @@ import java.util.Map;
  *   icd10cm_code_2016.txt contains all ICD-10-CM (diagnosis) codes valid for FY2016.
  *   icd9cm_code_2015.txt contains ICD-9-CM (diagnosis) codes valid till FY2015
  * </p>
+ *
+ * <p>
+ *   The codes of a catalog are loaded when they are first looked up, once within the JVM, into a
+ *   {@link CatalogTable} shared by all the instances of the catalog.
+ * </p>
  */
 public final class ICDCatalog implements StaticCatalog {
   private static final Logger LOG = LoggerFactory.getLogger(ICDCatalog.class);
 
+  // Tables of the catalogs loaded, keyed by the name of the catalog.
+  private static final LoadingCache<String, CatalogTable> TABLES = CacheBuilder.newBuilder()
+    .build(new CacheLoader<String, CatalogTable>() {
+      @Override
+      public CatalogTable load(String name) throws Exception {
+        String filename = filename(name);
+        InputStream in = ICDCatalog.class.getClassLoader().getResourceAsStream(filename);
+        if (in == null) {
+          throw new FileNotFoundException(filename);
+        }
+        CatalogTable table = CatalogTable.load(in);
+        LOG.debug("Loaded {} codes of catalog '{}'", table.size(), name);
+        return table;
+      }
+    });
+
   // Type of ICD code 9 or 10 {2016,2017}.
   private final String name;
 
-  // Map to store mapping from code to description.
-  private Map<String, ICDCode> lookupTable = new HashMap<>();
+  // Table of the catalog, resolved on first lookup.
+  private transient volatile CatalogTable table;
 
   /**
    * Single ICD entry
@@ -70,29 +90,13 @@ public final class ICDCatalog implements StaticCatalog {
   }
 
   /**
-   * Configures the ICD StaticCatalog by loading the appropriate stream.
+   * Configures the ICD StaticCatalog by checking that the codes of the catalog are available.
    *
    * @return true if successfully configured, else false.
    */
   @Override
   public boolean configure() {
-    String filename = String.format("%s_cm_codes.txt", name);
-    InputStream in = ICDCatalog.class.getClassLoader().getResourceAsStream(filename);
-    if (in == null) {
-      return false;
-    }
-    InputStreamReader isr = new InputStreamReader(in);
-    try (BufferedReader reader = new BufferedReader(isr)) {
-      String line;
-      while((line = reader.readLine()) != null) {
-        String code = line.substring(0, 7).trim();
-        String description = line.substring(8).trim();
-        lookupTable.put(code, new ICDCode(description));
-      }
-    } catch (IOException e) {
-      return false;
-    }
-    return true;
+    return ICDCatalog.class.getClassLoader().getResource(filename(name)) != null;
   }
 
   /**
@@ -103,7 +107,13 @@ public final class ICDCatalog implements StaticCatalog {
    */
   @Override
   public StaticCatalog.Entry lookup(String code)  {
-    return lookupTable.get(code);
+    CatalogTable table = this.table;
+    if (table == null) {
+      table = TABLES.getUnchecked(name);
+      this.table = table;
+    }
+    int index = table.find(code);
+    return index == -1 ? null : new ICDCode(table.description(index));
   }
 
   /**
@@ -113,4 +123,8 @@ public final class ICDCatalog implements StaticCatalog {
   public String getCatalog() {
     return name;
   }
+
+  private static String filename(String name) {
+    return String.format("%s_cm_codes.txt", name);
+  }
 }
@@ -19,39 +19,99 @@ package co.cask.wrangler.executor;
 import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.Directives;
 import co.cask.wrangler.api.ErrorRecord;
 import co.cask.wrangler.api.Pipeline;
 import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.PipelineException;
 import co.cask.wrangler.api.Record;
-import co.cask.wrangler.api.Step;
+import co.cask.wrangler.api.StreamException;
+import co.cask.wrangler.api.TransientStore;
+import co.cask.wrangler.steps.DefaultTransientStore;
 import co.cask.wrangler.utils.RecordConvertor;
 import co.cask.wrangler.utils.RecordConvertorException;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
 
+import java.io.Closeable;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Wrangle Pipeline executes stepRegistry in the order they are specified.
+ * Wrangle Pipeline executes stepRegistry in the order they are specified, processing chunks of
+ * the input in parallel.
+ *
+ * <p>
+ *   The input is split into small chunks that are processed on a {@link ForkJoinPool}, so that idle
+ *   workers steal chunks from busy ones when some records take longer to process than others.
+ *   Steps hold state while they are executed, hence every worker thread executes the chunks with its
+ *   own instances of the steps, created from the directives when the thread processes its first chunk.
+ *   The records and the error records are returned in the order of the input.
+ * </p>
+ *
+ * <p>
+ *   As every worker has its own steps, directives that depend on the order of the records across the
+ *   input, like parsing a CSV with a header, should be executed using {@link PipelineExecutor}.
+ * </p>
+ *
+ * <p>
+ *   Every worker also has its own {@link TransientStore}, the rest of the context being shared. Variables
+ *   set by a record are hence read back by the steps executed on the same record, but variables that are
+ *   incremented across records only count the records of the chunks processed by each worker, and the
+ *   variables are not visible through the store of the context the pipeline is configured with.
+ * </p>
  */
 @Beta
-public final class ParallelPipelineExecutor implements Pipeline<Record, StructuredRecord, ErrorRecord> {
+public final class ParallelPipelineExecutor implements Pipeline<Record, StructuredRecord, ErrorRecord>, Closeable {
+  // Default number of records in a chunk processed by a worker.
+  private static final int DEFAULT_CHUNK_SIZE = 64;
+
   private Directives directives;
   private PipelineContext context;
   private RecordConvertor convertor = new RecordConvertor();
-  private int threads = Runtime.getRuntime().availableProcessors();
-  private ExecutorService executor = Executors.newFixedThreadPool(threads,
-                                                                  new ThreadFactoryBuilder().setDaemon(true).build());
+  private final int chunkSize;
+  private final ForkJoinPool pool;
+
+  // Executor owned by each of the worker threads, replaced when the pipeline is configured.
+  private ThreadLocal<PipelineExecutor> workers = new ThreadLocal<>();
+
+  // Records that errored out in the last execution.
+  private List<ErrorRecord> errors = new ArrayList<>();
+
+  /**
+   * Creates an executor with as many workers as there are processors.
+   */
+  public ParallelPipelineExecutor() {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates an executor.
+   *
+   * @param threads number of worker threads.
+   * @param chunkSize maximum number of records processed by a worker at a time.
+   */
+  public ParallelPipelineExecutor(int threads, int chunkSize) {
+    this.chunkSize = Math.max(1, chunkSize);
+    this.pool = new ForkJoinPool(threads, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("wrangler-executor-" + thread.getPoolIndex());
+        return thread;
+      }
+    }, null, false);
+  }
 
   /**
    * Configures the pipeline based on the directives.
@@ -59,9 +119,16 @@ public final class ParallelPipelineExecutor implements Pipeline<Record, Structur
    * @param directives Wrangle directives.
    */
   @Override
-  public void configure(Directives directives, PipelineContext context) {
+  public void configure(Directives directives, PipelineContext context) throws PipelineException {
+    // Fails fast on invalid directives, rather than in every worker.
+    try {
+      directives.getSteps();
+    } catch (DirectiveParseException e) {
+      throw new PipelineException(e.getMessage());
+    }
     this.directives = directives;
     this.context = context;
+    this.workers = new ThreadLocal<>();
   }
 
   /**
@@ -91,49 +158,57 @@ public final class ParallelPipelineExecutor implements Pipeline<Record, Structur
    */
   @Override
   public List<Record> execute(List<Record> records) throws PipelineException {
-    try {
-      int chunkSize = records.size() / threads;
-      if (chunkSize == 0) {
-        chunkSize = records.size();
-      }
-
-      int startIndex = 0;
-      Map<Integer, Future<List<Record>>> futures = new TreeMap<>();
+    Chunk result = invoke(records);
+    errors = result.errors;
+    return result.records;
+  }
 
-      final List<Step> steps = directives.getSteps();
-      while (startIndex < records.size()) {
-        int endIndex = startIndex + chunkSize;
-        if (endIndex > records.size()) {
-          endIndex = records.size();
+  /**
+   * Executes the pipeline on the input lazily.
+   *
+   * <p>
+   *   Records are read from the input in windows of as many chunks as there are workers, every window
+   *   is processed in parallel when the output is iterated over.
+   * </p>
+   *
+   * @param records Iterator over input records.
+   * @return Iterator over the records processed.
+   */
+  @Override
+  public Iterator<Record> execute(final Iterator<Record> records) throws PipelineException {
+    final List<ErrorRecord> errors = new ArrayList<>();
+    this.errors = errors;
+    final int window = pool.getParallelism() * chunkSize;
+    return Iterators.concat(new AbstractIterator<Iterator<Record>>() {
+      @Override
+      protected Iterator<Record> computeNext() {
+        if (!records.hasNext()) {
+          return endOfData();
+        }
+        List<Record> input = new ArrayList<>(window);
+        while (input.size() < window && records.hasNext()) {
+          input.add(records.next());
+        }
+        try {
+          Chunk result = invoke(input);
+          errors.addAll(result.errors);
+          return result.records.iterator();
+        } catch (PipelineException e) {
+          throw new StreamException(e);
         }
-
-        final List<Record> newRecords = records.subList(startIndex, endIndex);
-
-        Future<List<Record>> future = executor.submit(new Callable<List<Record>>() {
-          private List<Record> records = newRecords;
-          @Override
-          public List<Record> call() throws Exception {
-            for (Step step : steps) {
-              // If there are no records, then we short-circuit the processing and break out.
-              if (records.size() < 1) {
-                break;
-              }
-              records = step.execute(records, context);
-            }
-            return records;
-          }
-        });
-
-        futures.put(startIndex, future);
-        startIndex = endIndex;
       }
+    });
+  }
 
-      List<List<Record>> result = new ArrayList<>(threads);
-      for (Future<List<Record>> future : futures.values()) {
-        result.add(future.get());
-      }
-      return Lists.newArrayList(Iterables.concat(result));
-    } catch (Exception e) {
+  /**
+   * Processes the records in parallel.
+   */
+  private Chunk invoke(List<Record> records) throws PipelineException {
+    try {
+      return pool.invoke(new ChunkTask(records, workers));
+    } catch (ChunkException e) {
+      throw e.getCause();
+    } catch (RuntimeException e) {
       throw new PipelineException(e);
     }
   }
@@ -145,30 +220,152 @@ public final class ParallelPipelineExecutor implements Pipeline<Record, Structur
    */
   @Override
   public List<ErrorRecord> errors() throws PipelineException {
-    return new ArrayList<>();
+    return errors;
   }
 
   /**
-   * Converts a {@link Record} to a {@link StructuredRecord}.
-   *
-   * @param records {@link Record} to be converted
-   * @param schema Schema of the {@link StructuredRecord} to be created.
-   * @return A {@link StructuredRecord} from record.
+   * Shuts down the worker threads, waiting for the chunks being processed to complete.
    */
-  private List<StructuredRecord> toStructuredRecord(List<Record> records, Schema schema) {
-    List<StructuredRecord> results = new ArrayList<>();
-    for (Record record : records) {
-      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-      List<Schema.Field> fields = schema.getFields();
-      for (Schema.Field field : fields) {
-        String name = field.getName();
-        Object value = record.getValue(name);
-        if (value != null) {
-          builder.set(name, value);
+  @Override
+  public void close() {
+    pool.shutdown();
+    try {
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the executor of the current worker thread, configuring it when the thread
+   * processes its first chunk.
+   */
+  private PipelineExecutor worker(ThreadLocal<PipelineExecutor> workers) throws PipelineException {
+    PipelineExecutor executor = workers.get();
+    if (executor == null) {
+      executor = new PipelineExecutor();
+      executor.configure(directives, context == null ? null : new WorkerContext(context));
+      workers.set(executor);
+    }
+    return executor;
+  }
+
+  /**
+   * Context of a worker, holding a transient store of its own as the store of the pipeline is not
+   * thread-safe.
+   */
+  private static final class WorkerContext implements PipelineContext {
+    private final PipelineContext context;
+    private final TransientStore store = new DefaultTransientStore();
+
+    WorkerContext(PipelineContext context) {
+      this.context = context;
+    }
+
+    @Override
+    public Environment getEnvironment() {
+      return context.getEnvironment();
+    }
+
+    @Override
+    public StageMetrics getMetrics() {
+      return context.getMetrics();
+    }
+
+    @Override
+    public String getContextName() {
+      return context.getContextName();
+    }
+
+    @Override
+    public Map<String, String> getProperties() {
+      return context.getProperties();
+    }
+
+    @Override
+    public URL getService(String applicationId, String serviceId) {
+      return context.getService(applicationId, serviceId);
+    }
+
+    @Override
+    public TransientStore getTransientStore() {
+      return store;
+    }
+
+    @Override
+    public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
+      return context.provide(table, arguments);
+    }
+  }
+
+  /**
+   * Records and error records of a chunk of the input.
+   */
+  private static final class Chunk {
+    private final List<Record> records;
+    private final List<ErrorRecord> errors;
+
+    Chunk(List<Record> records, List<ErrorRecord> errors) {
+      this.records = records;
+      this.errors = errors;
+    }
+  }
+
+  /**
+   * Splits the input in halves until they are small enough to be processed by a worker, the results
+   * of both halves are joined in order.
+   */
+  private final class ChunkTask extends RecursiveTask<Chunk> {
+    private final List<Record> records;
+    private final ThreadLocal<PipelineExecutor> workers;
+
+    ChunkTask(List<Record> records, ThreadLocal<PipelineExecutor> workers) {
+      this.records = records;
+      this.workers = workers;
+    }
+
+    @Override
+    protected Chunk compute() {
+      int size = records.size();
+      if (size <= chunkSize) {
+        try {
+          PipelineExecutor executor = worker(workers);
+          List<Record> results = executor.execute(records);
+          return new Chunk(results, new ArrayList<>(executor.errors()));
+        } catch (PipelineException e) {
+          throw new ChunkException(e);
         }
       }
-      results.add(builder.build());
+
+      ChunkTask left = new ChunkTask(records.subList(0, size / 2), workers);
+      ChunkTask right = new ChunkTask(records.subList(size / 2, size), workers);
+      left.fork();
+      Chunk second = right.compute();
+      Chunk first = left.join();
+
+      List<Record> results = new ArrayList<>(first.records.size() + second.records.size());
+      results.addAll(first.records);
+      results.addAll(second.records);
+      List<ErrorRecord> errors = first.errors;
+      if (!second.errors.isEmpty()) {
+        errors = new ArrayList<>(first.errors);
+        errors.addAll(second.errors);
+      }
+      return new Chunk(results, errors);
+    }
+  }
+
+  /**
+   * Carries a {@link PipelineException} raised by a worker out of the pool.
+   */
+  private static final class ChunkException extends RuntimeException {
+    ChunkException(PipelineException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized PipelineException getCause() {
+      return (PipelineException) super.getCause();
     }
-    return results;
   }
 }
@@ -18,6 +18,7 @@ package co.cask.wrangler.executor;
 
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
+import co.cask.wrangler.api.BatchStep;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.Directives;
 import co.cask.wrangler.api.ErrorRecord;
@@ -29,22 +30,62 @@ import co.cask.wrangler.api.PipelineException;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.Step;
 import co.cask.wrangler.api.StepException;
+import co.cask.wrangler.api.StreamException;
+import co.cask.wrangler.api.StreamingStep;
+import co.cask.wrangler.steps.IncrementTransientVariable;
+import co.cask.wrangler.steps.SetTransientVariable;
 import co.cask.wrangler.utils.RecordConvertor;
 import co.cask.wrangler.utils.RecordConvertorException;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
  * Wrangle Pipeline executes stepRegistry in the order they are specified.
  */
 public final class PipelineExecutor implements Pipeline<Record, StructuredRecord, ErrorRecord> {
+  // System property to configure the number of records in the micro-batches of the executors created
+  // by the service and the transform, 1 executes them one record at a time.
+  public static final String BATCH_SIZE_PROPERTY = "wrangler.executor.batch.size";
+  public static final int DEFAULT_BATCH_SIZE = 64;
+
   private Directives directives;
   private PipelineContext context;
   private List<Step> steps;
+  // Whether each of the steps may send records to error.
+  private boolean[] raisesErrors;
   private final ErrorRecordCollector collector = new ErrorRecordCollector();
   private RecordConvertor convertor = new RecordConvertor();
+  private final int batchSize;
+  // Number of records executed together by the configured steps.
+  private int microBatchSize;
+
+  /**
+   * Creates an executor that runs the steps one record at a time.
+   */
+  public PipelineExecutor() {
+    this(1);
+  }
+
+  /**
+   * Creates an executor that runs the steps on micro-batches of records.
+   *
+   * <p>
+   *   Recipes that set or increment transient variables are always executed one record at a time, as the
+   *   steps after them read the variables as set by the record being executed, not by the last record
+   *   of the micro-batch.
+   * </p>
+   *
+   * @param batchSize maximum number of records passed to a step in a single invocation.
+   */
+  public PipelineExecutor(int batchSize) {
+    this.batchSize = batchSize;
+  }
 
   /**
    * Configures the pipeline based on the directives.
@@ -62,6 +103,11 @@ public final class PipelineExecutor implements Pipeline<Record, StructuredRecord
         String.format(e.getMessage())
       );
     }
+    raisesErrors = new boolean[steps.size()];
+    for (int i = 0; i < steps.size(); ++i) {
+      raisesErrors[i] = raisesErrors(steps.get(i));
+    }
+    microBatchSize = setsVariables(steps) ? 1 : batchSize;
   }
 
   /**
@@ -86,6 +132,16 @@ public final class PipelineExecutor implements Pipeline<Record, StructuredRecord
   /**
    * Executes the pipeline on the input.
    *
+   * <p>
+   *   When the executor is configured with a batch size greater than one, the input is split into
+   *   micro-batches and every {@link Step} is invoked once per micro-batch instead of once per record.
+   *   A {@link BatchStep} is handed the micro-batch and reports the records that error out on their own,
+   *   other steps that declare {@link ErrorRecordException} are still invoked one record at a time, every
+   *   record reaching them being processed exactly once. Unlike record at a time execution, only the
+   *   record that errored out is sent to error, not the other records produced from the same input,
+   *   and the errors of a micro-batch are collected in the order of the steps that raised them.
+   * </p>
+   *
    * @param records List of input record of type I.
    * @return Parsed output list of record of type I
    */
@@ -93,24 +149,18 @@ public final class PipelineExecutor implements Pipeline<Record, StructuredRecord
   public List<Record> execute(List<Record> records) throws PipelineException {
     List<Record> results = Lists.newArrayList();
     try {
-      int i = 0;
       collector.reset();
-      while (i < records.size()) {
-        List<Record> newRecords = records.subList(i, i+1);
-        try {
-          for (Step step : steps) {
-            newRecords = step.execute(newRecords, context);
-            if (newRecords.size() < 1) {
-              break;
-            }
-          }
-          if(newRecords.size() > 0) {
-            results.addAll(newRecords);
-          }
-        } catch (ErrorRecordException e) {
-          collector.add(new ErrorRecord(newRecords.get(0), e.getMessage(), e.getCode()));
+      if (microBatchSize <= 1) {
+        for (Record record : records) {
+          execute(record, results);
+        }
+      } else {
+        int i = 0;
+        while (i < records.size()) {
+          int end = Math.min(i + microBatchSize, records.size());
+          execute(records.subList(i, end), results);
+          i = end;
         }
-        i++;
       }
     } catch (StepException  e) {
       throw new PipelineException(e);
@@ -118,6 +168,196 @@ public final class PipelineExecutor implements Pipeline<Record, StructuredRecord
     return results;
   }
 
+  /**
+   * Executes the pipeline on the input lazily.
+   *
+   * <p>
+   *   Records are pulled from the input one at a time as the output is iterated over. A {@link StreamingStep}
+   *   hands the records it produces to the next step one at a time, so that only the records being
+   *   processed are held in memory. Records that error out are collected as the output is iterated over,
+   *   records produced by a {@link StreamingStep} being sent to error one at a time rather than together
+   *   with all the records produced from the same input record.
+   * </p>
+   *
+   * @param records Iterator over input records.
+   * @return Iterator over the records processed.
+   */
+  @Override
+  public Iterator<Record> execute(final Iterator<Record> records) throws PipelineException {
+    collector.reset();
+    return new AbstractIterator<Record>() {
+      // Records pending to be passed to each of the steps, the last one holding the records processed
+      // by all the steps.
+      private final List<Iterator<Record>> pending = new ArrayList<>();
+
+      {
+        pending.add(records);
+        for (int i = 0; i < steps.size(); ++i) {
+          pending.add(Collections.<Record>emptyIterator());
+        }
+      }
+
+      @Override
+      protected Record computeNext() {
+        // Records produced by the steps further down the pipeline are processed first, so
+        // that the records of a step are handed to the next one as they are produced.
+        int level = steps.size();
+        while (level >= 0) {
+          if (!hasNext(level)) {
+            level--;
+            continue;
+          }
+          Record record = pending.get(level).next();
+          if (level == steps.size()) {
+            return record;
+          }
+          pending.set(level + 1, execute(steps.get(level), record));
+          level++;
+        }
+        return endOfData();
+      }
+
+      private boolean hasNext(int level) {
+        try {
+          return pending.get(level).hasNext();
+        } catch (StreamException e) {
+          throw new StreamException(new PipelineException(e.getCause()));
+        }
+      }
+    };
+  }
+
+  /**
+   * Executes a step on a single record while streaming.
+   *
+   * @return Iterator over the records produced by the step.
+   */
+  private Iterator<Record> execute(Step step, Record record) {
+    try {
+      if (step instanceof StreamingStep) {
+        return ((StreamingStep) step).stream(record, context);
+      }
+      List<Record> newRecords = step.execute(Collections.singletonList(record), context);
+      return newRecords.iterator();
+    } catch (ErrorRecordException e) {
+      collector.add(new ErrorRecord(record, e.getMessage(), e.getCode()));
+      return Collections.emptyIterator();
+    } catch (StepException e) {
+      throw new StreamException(new PipelineException(e));
+    }
+  }
+
+  /**
+   * Executes all the steps on a micro-batch of records.
+   *
+   * <p>
+   *   Steps that may send records to error are handed the records of the micro-batch one at a time,
+   *   unless they are a {@link BatchStep}, so that an error is attributed to the record that caused it
+   *   without running any step twice.
+   * </p>
+   *
+   * @param batch of records to be executed.
+   * @param results list to which the records successfully processed are added.
+   */
+  private void execute(List<Record> batch, List<Record> results) throws StepException {
+    List<Record> newRecords = new ArrayList<>(batch);
+    for (int i = 0; i < steps.size() && newRecords.size() > 0; ++i) {
+      Step step = steps.get(i);
+      if (step instanceof BatchStep) {
+        newRecords = ((BatchStep) step).execute(newRecords, context, collector);
+        continue;
+      }
+      if (raisesErrors[i]) {
+        List<Record> output = new ArrayList<>(newRecords.size());
+        for (Record record : newRecords) {
+          try {
+            output.addAll(step.execute(Collections.singletonList(record), context));
+          } catch (ErrorRecordException e) {
+            collector.add(new ErrorRecord(record, e.getMessage(), e.getCode()));
+          }
+        }
+        newRecords = output;
+        continue;
+      }
+      try {
+        newRecords = step.execute(newRecords, context);
+      } catch (ErrorRecordException e) {
+        // Only raised by steps that don't declare it, the records it was raised for are unknown.
+        throw new StepException(
+          String.format("%s : Record sent to error while executing a batch. %s", step.toString(), e.getMessage())
+        );
+      }
+    }
+
+    // Records of a batch mostly end up with the same columns, which are then shared between them.
+    Record previous = null;
+    for (Record record : newRecords) {
+      if (previous != null) {
+        record.shareColumns(previous);
+      }
+      previous = record;
+    }
+    results.addAll(newRecords);
+  }
+
+  /**
+   * Checks whether a step declares that it sends records to error.
+   *
+   * @param step to be checked.
+   * @return true if the step may raise {@link ErrorRecordException}, false otherwise.
+   */
+  private static boolean raisesErrors(Step step) {
+    try {
+      Method method = step.getClass().getMethod("execute", List.class, PipelineContext.class);
+      for (Class<?> type : method.getExceptionTypes()) {
+        if (type.isAssignableFrom(ErrorRecordException.class)) {
+          return true;
+        }
+      }
+      return false;
+    } catch (NoSuchMethodException e) {
+      return true;
+    }
+  }
+
+  /**
+   * Checks whether any of the steps sets a transient variable.
+   *
+   * @param steps to be checked.
+   * @return true if any of the steps sets or increments a transient variable, false otherwise.
+   */
+  private static boolean setsVariables(List<Step> steps) {
+    for (Step step : steps) {
+      if (step instanceof SetTransientVariable || step instanceof IncrementTransientVariable) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Executes all the steps on a single record.
+   *
+   * @param record to be executed.
+   * @param results list to which the records successfully processed are added.
+   */
+  private void execute(Record record, List<Record> results) throws StepException {
+    List<Record> newRecords = Collections.singletonList(record);
+    try {
+      for (Step step : steps) {
+        newRecords = step.execute(newRecords, context);
+        if (newRecords.size() < 1) {
+          break;
+        }
+      }
+      if(newRecords.size() > 0) {
+        results.addAll(newRecords);
+      }
+    } catch (ErrorRecordException e) {
+      collector.add(new ErrorRecord(newRecords.get(0), e.getMessage(), e.getCode()));
+    }
+  }
+
   /**
    * Returns records that are errored out.
    *
@@ -98,6 +98,11 @@ import co.cask.wrangler.steps.transformation.RightTrim;
 import co.cask.wrangler.steps.writer.WriteAsCSV;
 import co.cask.wrangler.steps.writer.WriteAsJsonMap;
 import co.cask.wrangler.steps.writer.WriteAsJsonObject;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -105,11 +110,14 @@ import org.slf4j.LoggerFactory;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import javax.annotation.Nullable;
 
 /**
@@ -121,12 +129,28 @@ import javax.annotation.Nullable;
 public class TextDirectives implements Directives {
   private static final Logger LOG = LoggerFactory.getLogger(TextDirectives.class);
 
+  /**
+   * System property to configure the number of recipes whose directives are cached.
+   */
+  public static final String CACHE_SIZE_PROPERTY = "wrangler.directives.cache.size";
+
+  // Default number of recipes cached.
+  private static final int DEFAULT_CACHE_SIZE = 256;
+
+  // Directive lines of the recipes parsed, keyed by the recipe. Steps hold state for the run
+  // they are part of, so they are created fresh on every parse from the factories the lines
+  // were parsed into.
+  private static final Cache<List<String>, List<Line>> RECIPES = CacheBuilder.newBuilder()
+    .maximumSize(Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE))
+    .recordStats()
+    .build();
+
+  // Usage Registry, immutable once created and hence shared.
+  private static final UsageRegistry usageRegistry = new UsageRegistry();
+
   // directives for wrangling.
   private String[] directives;
 
-  // Usage Registry
-  private final UsageRegistry usageRegistry = new UsageRegistry();
-
   // Specifies the context for directive parsing.
   private DirectiveContext context;
 
@@ -155,18 +179,11 @@ public class TextDirectives implements Directives {
   private List<Step> parse() throws DirectiveParseException {
     List<Step> steps = new ArrayList<>();
 
-    // Split directive by EOL
-    int lineno = 1;
-
     // Iterate through each directive and create necessary stepRegistry.
-    for (String directive : directives) {
-      directive = directive.trim();
-      if (directive.isEmpty() || directive.startsWith("//") || directive.startsWith("#")) {
-        continue;
-      }
-
-      StringTokenizer tokenizer = new StringTokenizer(directive, " ");
-      String command = tokenizer.nextToken();
+    for (Line line : lines()) {
+      final int lineno = line.lineno;
+      final String directive = line.directive;
+      String command = line.command;
 
       // Check if a directive has been aliased and if it's aliased then retrieve root command it's mapped
       // to.
@@ -190,22 +207,45 @@ public class TextDirectives implements Directives {
         );
       }
 
+      // Lines already parsed for the same root command only have their steps created.
+      Parsed parsed = line.parsed;
+      if (parsed != null && parsed.root.equals(root)) {
+        for (StepFactory factory : parsed.factories) {
+          steps.add(factory.create());
+        }
+        continue;
+      }
+
+      StringTokenizer tokenizer = new StringTokenizer(directive, " ");
+      tokenizer.nextToken();
+
+      List<StepFactory> factories = new ArrayList<>(1);
       switch (root) {
         case "set": {
           switch (tokenizer.nextToken()) {
             // set column <column-name> <jexl-expression>
             case "column": {
-              String column = getNextToken(tokenizer, "set column", "column-name", lineno);
-              String expr = getNextToken(tokenizer, "\n", "set column", "jexl-expression", lineno);
-              steps.add(new Expression(lineno, directive, column, expr));
+              final String column = getNextToken(tokenizer, "set column", "column-name", lineno);
+              final String expr = getNextToken(tokenizer, "\n", "set column", "jexl-expression", lineno);
+              factories.add(new StepFactory() {
+                @Override
+                public Step create() throws DirectiveParseException {
+                  return new Expression(lineno, directive, column, expr);
+                }
+              });
             }
             break;
 
             // set columns <name1, name2, ...>
             case "columns": {
               String columns = getNextToken(tokenizer, "\n", "set columns", "name1, name2, ...", lineno);
-              String cols[] = columns.split(",");
-              steps.add(new Columns(lineno, directive, Arrays.asList(cols)));
+              final String[] cols = columns.split(",");
+              factories.add(new StepFactory() {
+                @Override
+                public Step create() throws DirectiveParseException {
+                  return new Columns(lineno, directive, Arrays.asList(cols.clone()));
+                }
+              });
             }
             break;
           }
@@ -214,32 +254,47 @@ public class TextDirectives implements Directives {
 
         // rename <old> <new>
         case "rename": {
-          String oldcol = getNextToken(tokenizer,  command, "old", lineno);
-          String newcol = getNextToken(tokenizer, command, "new", lineno);
-          steps.add(new Rename(lineno, directive, oldcol, newcol));
+          final String oldcol = getNextToken(tokenizer,  command, "old", lineno);
+          final String newcol = getNextToken(tokenizer, command, "new", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Rename(lineno, directive, oldcol, newcol);
+            }
+          });
         }
         break;
 
         //set-type <column> <type>
         case "set-type": {
-          String col = getNextToken(tokenizer,  command, "col", lineno);
-          String type = getNextToken(tokenizer, command, "type", lineno);
-          steps.add(new SetType(lineno, directive, col, type));
+          final String col = getNextToken(tokenizer,  command, "col", lineno);
+          final String type = getNextToken(tokenizer, command, "type", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new SetType(lineno, directive, col, type);
+            }
+          });
         }
         break;
 
         // drop <column>[,<column>]
         case "drop": {
-          String colums = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new Drop(lineno, directive, Arrays.asList(colums.split(","))));
+          final String colums = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Drop(lineno, directive, Arrays.asList(colums.split(",")));
+            }
+          });
         }
         break;
 
         // merge <first> <second> <new-column> <seperator>
         case "merge": {
-          String col1 = getNextToken(tokenizer, command, "first", lineno);
-          String col2 = getNextToken(tokenizer, command, "second", lineno);
-          String dest = getNextToken(tokenizer, command, "new-column", lineno);
+          final String col1 = getNextToken(tokenizer, command, "first", lineno);
+          final String col2 = getNextToken(tokenizer, command, "second", lineno);
+          final String dest = getNextToken(tokenizer, command, "new-column", lineno);
           String delimiter = getNextToken(tokenizer, "\n", command, "delimiter", lineno);
           int start = delimiter.indexOf('\'');
           if (start != -1) {
@@ -251,151 +306,242 @@ public class TextDirectives implements Directives {
             }
             delimiter = StringEscapeUtils.unescapeJava(delimiter.substring(start + 1, end));
           }
-          steps.add(new Merge(lineno, directive, col1, col2, dest, delimiter));
+          final String separator = delimiter;
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Merge(lineno, directive, col1, col2, dest, separator);
+            }
+          });
         }
         break;
 
         // uppercase <col>
         case "uppercase": {
-          String col = getNextToken(tokenizer, command, "col", lineno);
-          steps.add(new Upper(lineno, directive, col));
+          final String col = getNextToken(tokenizer, command, "col", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Upper(lineno, directive, col);
+            }
+          });
         }
         break;
 
         // lowercase <col>
         case "lowercase": {
-          String col = getNextToken(tokenizer, command, "col", lineno);
-          steps.add(new Lower(lineno, directive, col));
+          final String col = getNextToken(tokenizer, command, "col", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Lower(lineno, directive, col);
+            }
+          });
         }
         break;
 
         // titlecase <col>
         case "titlecase": {
-          String col = getNextToken(tokenizer, command, "col", lineno);
-          steps.add(new TitleCase(lineno, directive, col));
+          final String col = getNextToken(tokenizer, command, "col", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new TitleCase(lineno, directive, col);
+            }
+          });
         }
         break;
 
         // indexsplit <source> <start> <end> <destination>
         case "indexsplit": {
-          String source = getNextToken(tokenizer, command, "source", lineno);
+          final String source = getNextToken(tokenizer, command, "source", lineno);
           String startStr = getNextToken(tokenizer, command, "start", lineno);
           String endStr = getNextToken(tokenizer, command, "end", lineno);
-          int start = Integer.parseInt(startStr);
-          int end = Integer.parseInt(endStr);
-          String destination = getNextToken(tokenizer, command, "destination", lineno);
-          steps.add(new IndexSplit(lineno, directive, source, start, end, destination));
+          final int start = Integer.parseInt(startStr);
+          final int end = Integer.parseInt(endStr);
+          final String destination = getNextToken(tokenizer, command, "destination", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new IndexSplit(lineno, directive, source, start, end, destination);
+            }
+          });
         }
         break;
 
         // split <source-column-name> <delimiter> <new-column-1> <new-column-2>
         case "split": {
-          String source = getNextToken(tokenizer, command, "source-column-name", lineno);
-          String delimiter = getNextToken(tokenizer, command, "delimiter", lineno);
-          String firstCol = getNextToken(tokenizer, command, "new-column-1", lineno);
-          String secondCol = getNextToken(tokenizer, command, "new-column-2", lineno);
-          steps.add(new Split(lineno, directive, source, delimiter, firstCol, secondCol));
+          final String source = getNextToken(tokenizer, command, "source-column-name", lineno);
+          final String delimiter = getNextToken(tokenizer, command, "delimiter", lineno);
+          final String firstCol = getNextToken(tokenizer, command, "new-column-1", lineno);
+          final String secondCol = getNextToken(tokenizer, command, "new-column-2", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Split(lineno, directive, source, delimiter, firstCol, secondCol);
+            }
+          });
         }
         break;
 
         // filter-row-if-matched <column> <regex>
         case "filter-row-if-matched": {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String pattern = getNextToken(tokenizer, "\n", command, "regex", lineno);
-          steps.add(new RecordRegexFilter(lineno, directive, column, pattern, true));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String pattern = getNextToken(tokenizer, "\n", command, "regex", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new RecordRegexFilter(lineno, directive, column, pattern, true);
+            }
+          });
         }
         break;
 
         // filter-row-if-not-matched <column> <regex>
         case "filter-row-if-not-matched": {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String pattern = getNextToken(tokenizer, "\n", command, "regex", lineno);
-          steps.add(new RecordRegexFilter(lineno, directive, column, pattern, false));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String pattern = getNextToken(tokenizer, "\n", command, "regex", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new RecordRegexFilter(lineno, directive, column, pattern, false);
+            }
+          });
         }
         break;
 
         // filter-row-if-true  <condition>
         case "filter-row-if-true": {
-          String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
-          steps.add(new RecordConditionFilter(lineno, directive, condition, true));
+          final String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new RecordConditionFilter(lineno, directive, condition, true);
+            }
+          });
         }
         break;
 
         // filter-row-if-false  <condition>
         case "filter-row-if-false": {
-          String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
-          steps.add(new RecordConditionFilter(lineno, directive, condition, false));
+          final String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new RecordConditionFilter(lineno, directive, condition, false);
+            }
+          });
         }
         break;
 
         // set-variable <variable> <expression>
         case "set-variable": {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String expression = getNextToken(tokenizer, "\n", command, "expression", lineno);
-          steps.add(new SetTransientVariable(lineno, directive, column, expression));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String expression = getNextToken(tokenizer, "\n", command, "expression", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new SetTransientVariable(lineno, directive, column, expression);
+            }
+          });
         }
         break;
 
         // increment-variable <variable> <value> <expression>
         case "increment-variable": {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String value = getNextToken(tokenizer, command, "value", lineno);
-          String expression = getNextToken(tokenizer, "\n", command, "expression", lineno);
-          steps.add(new IncrementTransientVariable(lineno, directive, column, value, expression));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String value = getNextToken(tokenizer, command, "value", lineno);
+          final String expression = getNextToken(tokenizer, "\n", command, "expression", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new IncrementTransientVariable(lineno, directive, column, value, expression);
+            }
+          });
         }
         break;
 
         // mask-number <column> <pattern>
         case "mask-number": {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String mask = getNextToken(tokenizer, command, "pattern", lineno);
-          steps.add(new MaskNumber(lineno, directive, column, mask));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String mask = getNextToken(tokenizer, command, "pattern", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new MaskNumber(lineno, directive, column, mask);
+            }
+          });
         }
         break;
 
         // mask-shuffle <column>
         case "mask-shuffle": {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new MaskShuffle(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new MaskShuffle(lineno, directive, column);
+            }
+          });
         }
         break;
 
         // format-date <column> <destination>
         case "format-date": {
-          String column = getNextToken(tokenizer, command, "column", 1);
-          String format = getNextToken(tokenizer, "\n", command, "format", lineno);
-          steps.add(new FormatDate(lineno, directive, column, format));
+          final String column = getNextToken(tokenizer, command, "column", 1);
+          final String format = getNextToken(tokenizer, "\n", command, "format", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new FormatDate(lineno, directive, column, format);
+            }
+          });
         }
         break;
 
         // format-unix-timestamp <column> <destination-format>
         case "format-unix-timestamp": {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String dstDatePattern = getNextToken(tokenizer, "\n", command, "destination-format", lineno);
-          steps.add(new FormatDate(lineno, directive, column, dstDatePattern));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String dstDatePattern = getNextToken(tokenizer, "\n", command, "destination-format", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new FormatDate(lineno, directive, column, dstDatePattern);
+            }
+          });
         }
         break;
 
         // quantize <source-column> <destination-column> <[range1:range2)=value>,[<range1:range2=value>]*
         case "quantize": {
-          String column1 = getNextToken(tokenizer, command, "source-column", lineno);
-          String column2 = getNextToken(tokenizer, command, "destination-column", lineno);
-          String ranges = getNextToken(tokenizer, "\n", command, "destination-column", lineno);
-          steps.add(new Quantization(lineno, directive, column1, column2, ranges));
+          final String column1 = getNextToken(tokenizer, command, "source-column", lineno);
+          final String column2 = getNextToken(tokenizer, command, "destination-column", lineno);
+          final String ranges = getNextToken(tokenizer, "\n", command, "destination-column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Quantization(lineno, directive, column1, column2, ranges);
+            }
+          });
         }
         break;
 
         // find-and-replace <column> <sed-script>
         case "find-and-replace" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String expression = getNextToken(tokenizer, "\n", command, "sed-script", lineno);
-          steps.add(new FindAndReplace(lineno, directive, column, expression));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String expression = getNextToken(tokenizer, "\n", command, "sed-script", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new FindAndReplace(lineno, directive, column, expression);
+            }
+          });
         }
         break;
 
         // parse-as-csv <column> <delimiter> [<header=true/false>]
         case "parse-as-csv" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
           String delimStr = getNextToken(tokenizer, command, "delimiter", lineno);
           char delimiter = delimStr.charAt(0);
           if (delimStr.startsWith("\\")) {
@@ -406,21 +552,26 @@ public class TextDirectives implements Directives {
             delimiter = unescapedStr.charAt(0);
           }
 
-          boolean hasHeader;
+          final boolean hasHeader;
           String hasHeaderLinesOpt = getNextToken(tokenizer, "\n", command, "true|false", lineno, true);
           if (hasHeaderLinesOpt == null || hasHeaderLinesOpt.equalsIgnoreCase("false")) {
             hasHeader = false;
           } else {
             hasHeader = true;
           }
-          CsvParser.Options opt = new CsvParser.Options(delimiter, true);
-          steps.add(new CsvParser(lineno, directive, opt, column, hasHeader));
+          final char separator = delimiter;
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new CsvParser(lineno, directive, new CsvParser.Options(separator, true), column, hasHeader);
+            }
+          });
         }
         break;
 
         // parse-as-json <column> [depth]
         case "parse-as-json" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
           String depthOpt = getNextToken(tokenizer, "\n", command, "depth", lineno, true);
           int depth = Integer.MAX_VALUE;
           if (depthOpt != null && !depthOpt.isEmpty()) {
@@ -432,15 +583,21 @@ public class TextDirectives implements Directives {
               );
             }
           }
-          steps.add(new JsParser(lineno, directive, column, depth));
+          final int maxDepth = depth;
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new JsParser(lineno, directive, column, maxDepth);
+            }
+          });
         }
         break;
 
         // parse-as-avro <column> <schema-id> <json|binary> [version]
         case "parse-as-avro" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String schemaId = getNextToken(tokenizer, command, "schema-id", lineno);
-          String type = getNextToken(tokenizer, command, "type", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String schemaId = getNextToken(tokenizer, command, "schema-id", lineno);
+          final String type = getNextToken(tokenizer, command, "type", lineno);
           if (!"json".equalsIgnoreCase(type) && !"binary".equalsIgnoreCase(type)) {
            throw new DirectiveParseException(
              String.format("Parsing AVRO can be either of type 'json' or 'binary'")
@@ -457,15 +614,21 @@ public class TextDirectives implements Directives {
               );
             }
           }
-          steps.add(new ParseAvro(lineno, directive, column, schemaId, type, version));
+          final int schemaVersion = version;
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new ParseAvro(lineno, directive, column, schemaId, type, schemaVersion);
+            }
+          });
         }
         break;
 
         // parse-as-protobuf <column> <schema-id> <record-name> [version]
         case "parse-as-protobuf" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String schemaId = getNextToken(tokenizer, command, "schema-id", lineno);
-          String recordName = getNextToken(tokenizer, command, "record-name", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String schemaId = getNextToken(tokenizer, command, "schema-id", lineno);
+          final String recordName = getNextToken(tokenizer, command, "record-name", lineno);
           String versionOpt = getNextToken(tokenizer, "\n", command, "depth", lineno, true);
           int version = -1;
           if (versionOpt != null && !versionOpt.isEmpty()) {
@@ -477,51 +640,77 @@ public class TextDirectives implements Directives {
               );
             }
           }
-          steps.add(new ParseProtobuf(lineno, directive, column, schemaId, recordName, version));
+          final int schemaVersion = version;
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new ParseProtobuf(lineno, directive, column, schemaId, recordName, schemaVersion);
+            }
+          });
         }
         break;
 
         // json-path <source> <destination> <json-path>
         case "json-path" : {
-          String src = getNextToken(tokenizer, command, "source", lineno);
-          String dest = getNextToken(tokenizer, command, "dest", lineno);
-          String path = getNextToken(tokenizer, "\n", command, "json-path", lineno);
-          steps.add(new JsPath(lineno, directive, src, dest, path));
+          final String src = getNextToken(tokenizer, command, "source", lineno);
+          final String dest = getNextToken(tokenizer, command, "dest", lineno);
+          final String path = getNextToken(tokenizer, "\n", command, "json-path", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new JsPath(lineno, directive, src, dest, path);
+            }
+          });
         }
         break;
 
         // set-charset <column> <charset>
         case "set-charset" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String charset = getNextToken(tokenizer, "\n", command, "charset", lineno, true);
-          steps.add(new SetCharset(lineno, directive, column, charset));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String charset = getNextToken(tokenizer, "\n", command, "charset", lineno, true);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new SetCharset(lineno, directive, column, charset);
+            }
+          });
         }
         break;
 
         // invoke-http <url> <column>[,<column>] <header>[,<header>]
         case "invoke-http" : {
-          String url = getNextToken(tokenizer, command, "url", lineno);
+          final String url = getNextToken(tokenizer, command, "url", lineno);
           String columnsOpt = getNextToken(tokenizer, command, "columns", lineno);
-          List<String> columns = new ArrayList<>();
+          final List<String> columns = new ArrayList<>();
           for (String column : columnsOpt.split(",")) {
             columns.add(column.trim());
           }
-          String headers = getNextToken(tokenizer, "\n", command, "headers", lineno, true);
-          steps.add(new InvokeHttp(lineno, directive, url, columns, headers));
+          final String headers = getNextToken(tokenizer, "\n", command, "headers", lineno, true);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new InvokeHttp(lineno, directive, url, new ArrayList<>(columns), headers);
+            }
+          });
         }
         break;
 
         // set-record-delim <column> <delimiter> [<limit>]
         case "set-record-delim" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String delimiter = getNextToken(tokenizer, command, "delimiter", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String delimiter = getNextToken(tokenizer, command, "delimiter", lineno);
           String limitStr = getNextToken(tokenizer, "\n", column, "limit", lineno, true);
           if (limitStr == null || limitStr.isEmpty()) {
             limitStr = "1";
           }
           try {
-            int limit = Integer.parseInt(limitStr);
-            steps.add(new SetRecordDelimiter(lineno, directive, column, delimiter, limit));
+            final int limit = Integer.parseInt(limitStr);
+            factories.add(new StepFactory() {
+              @Override
+              public Step create() throws DirectiveParseException {
+                return new SetRecordDelimiter(lineno, directive, column, delimiter, limit);
+              }
+            });
           } catch (NumberFormatException e) {
             throw new DirectiveParseException(
               String.format("Limit '%s' specified is not a number.", limitStr)
@@ -532,16 +721,14 @@ public class TextDirectives implements Directives {
 
         // parse-as-fixed-length <column> <widths> [<padding>]
         case "parse-as-fixed-length" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
           String widthStr = getNextToken(tokenizer, command, "widths", lineno);
-          String padding = getNextToken(tokenizer, "\n", column, "padding", lineno, true);
-          if (padding == null || padding.isEmpty()) {
-            padding = null; // Add space as padding.
-          } else {
-            padding = StringUtils.substringBetween(padding, "'", "'");
-          }
+          String paddingOpt = getNextToken(tokenizer, "\n", column, "padding", lineno, true);
+          // Add space as padding, unless specified.
+          final String padding = paddingOpt == null || paddingOpt.isEmpty()
+            ? null : StringUtils.substringBetween(paddingOpt, "'", "'");
           String[] widthsStr = widthStr.split(",");
-          int[] widths = new int[widthsStr.length];
+          final int[] widths = new int[widthsStr.length];
           int i = 0;
           for (String w : widthsStr) {
             try {
@@ -553,29 +740,44 @@ public class TextDirectives implements Directives {
             }
             ++i;
           }
-          steps.add(new FixedLengthParser(lineno, directive, column, widths, padding));
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new FixedLengthParser(lineno, directive, column, widths.clone(), padding);
+            }
+          });
         }
         break;
 
         // split-to-rows <column> <separator>
         case "split-to-rows" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String regex = getNextToken(tokenizer, "\n", "separator", lineno);
-          steps.add(new SplitToRows(lineno, directive, column, regex));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String regex = getNextToken(tokenizer, "\n", "separator", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new SplitToRows(lineno, directive, column, regex);
+            }
+          });
         }
         break;
 
         // split-to-columns <column> <regex>
         case "split-to-columns" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String regex = getNextToken(tokenizer, "\n", "regex", lineno);
-          steps.add(new SplitToColumns(lineno, directive, column, regex));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String regex = getNextToken(tokenizer, "\n", "regex", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new SplitToColumns(lineno, directive, column, regex);
+            }
+          });
         }
         break;
 
         // parse-xml-to-json <column> [<depth>]
         case "parse-xml-to-json" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
           String depthOpt = getNextToken(tokenizer, "\n", command, "depth", lineno, true);
           int depth = Integer.MAX_VALUE;
           try {
@@ -585,40 +787,66 @@ public class TextDirectives implements Directives {
           } catch (NumberFormatException e) {
             throw new DirectiveParseException(e.getMessage());
           }
-          steps.add(new XmlToJson(lineno, directive, column, depth));
+          final int maxDepth = depth;
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new XmlToJson(lineno, directive, column, maxDepth);
+            }
+          });
         }
         break;
 
         // parse-as-xml <column>
         case "parse-as-xml" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new XmlParser(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new XmlParser(lineno, directive, column);
+            }
+          });
         }
         break;
 
         // parse-as-excel <column> <sheet number | sheet name>
         case "parse-as-excel" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String sheet = getNextToken(tokenizer, "\n", command, "sheet", lineno, true);
-          steps.add(new ParseExcel(lineno, directive, column, sheet));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String sheet = getNextToken(tokenizer, "\n", command, "sheet", lineno, true);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new ParseExcel(lineno, directive, column, sheet);
+            }
+          });
         }
         break;
 
         // xpath <column> <destination> <xpath>
         case "xpath" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String destination = getNextToken(tokenizer, command, "destination", lineno);
-          String xpath = getNextToken(tokenizer, "\n", command, "xpath", lineno);
-          steps.add(new XPathElement(lineno, directive, column, destination, xpath));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String destination = getNextToken(tokenizer, command, "destination", lineno);
+          final String xpath = getNextToken(tokenizer, "\n", command, "xpath", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new XPathElement(lineno, directive, column, destination, xpath);
+            }
+          });
         }
         break;
 
         // xpath-array <column> <destination> <xpath>
         case "xpath-array" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String destination = getNextToken(tokenizer, command, "destination", lineno);
-          String xpath = getNextToken(tokenizer, "\n", command, "xpath", lineno);
-          steps.add(new XPathArrayElement(lineno, directive, column, destination, xpath));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String destination = getNextToken(tokenizer, command, "destination", lineno);
+          final String xpath = getNextToken(tokenizer, "\n", command, "xpath", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new XPathArrayElement(lineno, directive, column, destination, xpath);
+            }
+          });
         }
         break;
 
@@ -631,7 +859,7 @@ public class TextDirectives implements Directives {
             );
           }
 
-          String[] columns = cols.split(",");
+          final String[] columns = cols.split(",");
           for (String column : columns) {
             if (column.trim().equalsIgnoreCase("*")) {
               throw new DirectiveParseException(
@@ -639,110 +867,167 @@ public class TextDirectives implements Directives {
               );
             }
           }
-          steps.add(new Flatten(lineno, directive, columns));
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Flatten(lineno, directive, columns.clone());
+            }
+          });
         }
         break;
 
         // copy <source> <destination> [force]
         case "copy" : {
-          String source = getNextToken(tokenizer, command, "source", lineno);
-          String destination = getNextToken(tokenizer, command, "destination", lineno);
+          final String source = getNextToken(tokenizer, command, "source", lineno);
+          final String destination = getNextToken(tokenizer, command, "destination", lineno);
           String forceOpt = getNextToken(tokenizer, "\n", command, "force", lineno, true);
 
-          boolean force = false;
-          if (forceOpt != null && forceOpt.equalsIgnoreCase("true")) {
-            force = true;
-          }
-          steps.add(new Copy(lineno, directive, source, destination, force));
+          final boolean force = forceOpt != null && forceOpt.equalsIgnoreCase("true");
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Copy(lineno, directive, source, destination, force);
+            }
+          });
         }
         break;
 
         // fill-null-or-empty <column> <fixed value>
         case "fill-null-or-empty" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String value = getNextToken(tokenizer, command, "fixed-value", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String value = getNextToken(tokenizer, command, "fixed-value", lineno);
           if (value != null && value.isEmpty()) {
             throw new DirectiveParseException(
               "Fixed value cannot be a empty string"
             );
           }
-          steps.add(new FillNullOrEmpty(lineno, directive, column, value));
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new FillNullOrEmpty(lineno, directive, column, value);
+            }
+          });
         }
         break;
 
         // cut-character <source> <destination> <range|indexes>
         case "cut-character" : {
-          String source = getNextToken(tokenizer, command, "source", lineno);
-          String destination = getNextToken(tokenizer, command, "destination", lineno);
-          String range = getNextToken(tokenizer, command, "range", lineno);
-          steps.add(new CharacterCut(lineno, directive, source, destination, range));
+          final String source = getNextToken(tokenizer, command, "source", lineno);
+          final String destination = getNextToken(tokenizer, command, "destination", lineno);
+          final String range = getNextToken(tokenizer, command, "range", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new CharacterCut(lineno, directive, source, destination, range);
+            }
+          });
         }
         break;
 
         // generate-uuid <column>
         case "generate-uuid" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new GenerateUUID(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new GenerateUUID(lineno, directive, column);
+            }
+          });
         }
         break;
 
         // url-encode <column>
         case "url-encode" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new UrlEncode(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new UrlEncode(lineno, directive, column);
+            }
+          });
         }
         break;
 
         // url-decode <column>
         case "url-decode" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new UrlEncode(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new UrlEncode(lineno, directive, column);
+            }
+          });
         }
         break;
 
         // parse-as-log <column> <format>
         case "parse-as-log" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String format = getNextToken(tokenizer, "\n", command, "format", lineno);
-          steps.add(new ParseLog(lineno, directive, column, format));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String format = getNextToken(tokenizer, "\n", command, "format", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new ParseLog(lineno, directive, column, format);
+            }
+          });
         }
         break;
 
         // parse-as-date <column> [<timezone>]
         case "parse-as-date" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String timezone = getNextToken(tokenizer, "\n", command, "timezone", lineno, true);
-          steps.add(new ParseDate(lineno, directive, column, timezone));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String timezone = getNextToken(tokenizer, "\n", command, "timezone", lineno, true);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new ParseDate(lineno, directive, column, timezone);
+            }
+          });
         }
         break;
 
         // parse-as-simple-date <column> <pattern>
         case "parse-as-simple-date" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String pattern = getNextToken(tokenizer, "\n", command, "format", lineno);
-          steps.add(new ParseSimpleDate(lineno, directive, column, pattern));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String pattern = getNextToken(tokenizer, "\n", command, "format", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new ParseSimpleDate(lineno, directive, column, pattern);
+            }
+          });
         }
         break;
 
         // diff-date <column1> <column2> <destColumn>
         case "diff-date" : {
-          String column1 = getNextToken(tokenizer, command, "column1", lineno);
-          String column2 = getNextToken(tokenizer, command, "column2", lineno);
-          String destColumn = getNextToken(tokenizer, "\n", command, "destColumn", lineno);
-          steps.add(new DiffDate(lineno, directive, column1, column2, destColumn));
+          final String column1 = getNextToken(tokenizer, command, "column1", lineno);
+          final String column2 = getNextToken(tokenizer, command, "column2", lineno);
+          final String destColumn = getNextToken(tokenizer, "\n", command, "destColumn", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new DiffDate(lineno, directive, column1, column2, destColumn);
+            }
+          });
         }
         break;
 
         // keep <column>[,<column>]*
         case "keep" : {
-          String columns = getNextToken(tokenizer, command, "columns", lineno);
-          steps.add(new Keep(lineno, directive, columns.split(",")));
+          final String columns = getNextToken(tokenizer, command, "columns", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Keep(lineno, directive, columns.split(","));
+            }
+          });
         }
         break;
 
         // parse-as-hl7 <column> [<depth>]
         case "parse-as-hl7" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
           String depthOpt = getNextToken(tokenizer, "\n", command, "depth", lineno, true);
           int depth = Integer.MAX_VALUE;
           try {
@@ -752,29 +1037,45 @@ public class TextDirectives implements Directives {
           } catch (NumberFormatException e) {
             throw new DirectiveParseException(e.getMessage());
           }
-          steps.add(new HL7Parser(lineno, directive, column, depth));
+          final int maxDepth = depth;
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new HL7Parser(lineno, directive, column, maxDepth);
+            }
+          });
         }
         break;
 
         // split-email <column>
         case "split-email" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new SplitEmail(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new SplitEmail(lineno, directive, column);
+            }
+          });
         }
         break;
 
         // swap <column1> <column2>
         case "swap" : {
-          String column1 = getNextToken(tokenizer, command, "column1", lineno);
-          String column2 = getNextToken(tokenizer, command, "column2", lineno);
-          steps.add(new Swap(lineno, directive, column1, column2));
+          final String column1 = getNextToken(tokenizer, command, "column1", lineno);
+          final String column2 = getNextToken(tokenizer, command, "column2", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Swap(lineno, directive, column1, column2);
+            }
+          });
         }
         break;
 
         // hash <column> <algorithm> [encode]
         case "hash" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String algorithm = getNextToken(tokenizer, command, "algorithm", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String algorithm = getNextToken(tokenizer, command, "algorithm", lineno);
           String encodeOpt = getNextToken(tokenizer, "\n", command, "encode", lineno, true);
           if (!MessageHash.isValid(algorithm)) {
             throw new DirectiveParseException(
@@ -783,14 +1084,22 @@ public class TextDirectives implements Directives {
             );
           }
 
-          boolean encode = true;
-          if (encodeOpt.equalsIgnoreCase("false")) {
-            encode = false;
-          }
+          final boolean encode = !encodeOpt.equalsIgnoreCase("false");
 
           try {
-            MessageDigest digest = MessageDigest.getInstance(algorithm);
-            steps.add(new MessageHash(lineno, directive, column, digest, encode));
+            // Message digests hold the state of the digest being computed, hence every step gets its own.
+            final Provider provider = MessageDigest.getInstance(algorithm).getProvider();
+            factories.add(new StepFactory() {
+              @Override
+              public Step create() throws DirectiveParseException {
+                try {
+                  MessageDigest digest = MessageDigest.getInstance(algorithm, provider);
+                  return new MessageHash(lineno, directive, column, digest, encode);
+                } catch (NoSuchAlgorithmException e) {
+                  throw new IllegalStateException(e);
+                }
+              }
+            });
           } catch (NoSuchAlgorithmException e) {
             throw new DirectiveParseException(
               String.format("Unable to find algorithm specified '%s' in directive '%s' at line %d.",
@@ -802,21 +1111,31 @@ public class TextDirectives implements Directives {
 
         // write-as-json-map <column>
         case "write-as-json-map" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new WriteAsJsonMap(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new WriteAsJsonMap(lineno, directive, column);
+            }
+          });
         }
         break;
 
         // write-as-json-object <dest-column> [<src-column>[,<src-column>]
         case "write-as-json-object" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
           String columnsStr = getNextToken(tokenizer, "\n", command, "columns", lineno);
           if (columnsStr != null) {
-            List<String> columns = new ArrayList<>();
+            final List<String> columns = new ArrayList<>();
             for (String col : columnsStr.split(",")) {
               columns.add(col.trim());
             }
-            steps.add(new WriteAsJsonObject(lineno, directive, column, columns));
+            factories.add(new StepFactory() {
+              @Override
+              public Step create() throws DirectiveParseException {
+                return new WriteAsJsonObject(lineno, directive, column, new ArrayList<>(columns));
+              }
+            });
           } else {
             throw new DirectiveParseException(
               String.format("")
@@ -827,8 +1146,13 @@ public class TextDirectives implements Directives {
 
         // write-as-csv <column>
         case "write-as-csv" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new WriteAsCSV(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new WriteAsCSV(lineno, directive, column);
+            }
+          });
         }
         break;
 
@@ -840,22 +1164,47 @@ public class TextDirectives implements Directives {
         case "filter-rows-on" : {
           String cmd = getNextToken(tokenizer, command, "command", lineno);
           if (cmd.equalsIgnoreCase("condition-false")) {
-            String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
-            steps.add(new RecordConditionFilter(lineno, directive, condition, false));
+            final String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
+            factories.add(new StepFactory() {
+              @Override
+              public Step create() throws DirectiveParseException {
+                return new RecordConditionFilter(lineno, directive, condition, false);
+              }
+            });
           } else if (cmd.equalsIgnoreCase("condition-true")) {
-            String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
-            steps.add(new RecordConditionFilter(lineno, directive, condition, true));
+            final String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
+            factories.add(new StepFactory() {
+              @Override
+              public Step create() throws DirectiveParseException {
+                return new RecordConditionFilter(lineno, directive, condition, true);
+              }
+            });
           } else if (cmd.equalsIgnoreCase("empty-or-null-columns")) {
-            String columns = getNextToken(tokenizer, "\n", command, "columns", lineno);
-            steps.add(new RecordMissingOrNullFilter(lineno, directive, columns.split(",")));
+            final String columns = getNextToken(tokenizer, "\n", command, "columns", lineno);
+            factories.add(new StepFactory() {
+              @Override
+              public Step create() throws DirectiveParseException {
+                return new RecordMissingOrNullFilter(lineno, directive, columns.split(","));
+              }
+            });
           } else if (cmd.equalsIgnoreCase("regex-match")) {
-            String column = getNextToken(tokenizer, command, "column", lineno);
-            String pattern = getNextToken(tokenizer, "\n", command, "regex", lineno);
-            steps.add(new RecordRegexFilter(lineno, directive, column, pattern, true));
+            final String column = getNextToken(tokenizer, command, "column", lineno);
+            final String pattern = getNextToken(tokenizer, "\n", command, "regex", lineno);
+            factories.add(new StepFactory() {
+              @Override
+              public Step create() throws DirectiveParseException {
+                return new RecordRegexFilter(lineno, directive, column, pattern, true);
+              }
+            });
           } else if (cmd.equalsIgnoreCase("regex-not-match")) {
-            String column = getNextToken(tokenizer, command, "column", lineno);
-            String pattern = getNextToken(tokenizer, "\n", command, "regex", lineno);
-            steps.add(new RecordRegexFilter(lineno, directive, column, pattern, false));
+            final String column = getNextToken(tokenizer, command, "column", lineno);
+            final String pattern = getNextToken(tokenizer, "\n", command, "regex", lineno);
+            factories.add(new StepFactory() {
+              @Override
+              public Step create() throws DirectiveParseException {
+                return new RecordRegexFilter(lineno, directive, column, pattern, false);
+              }
+            });
           } else {
             throw new DirectiveParseException(
               String.format("Unknown option '%s' specified for filter-rows-on directive at line no %s", cmd, lineno)
@@ -866,132 +1215,200 @@ public class TextDirectives implements Directives {
 
         // parse-as-avro-file <column>
         case "parse-as-avro-file": {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new ParseAvroFile(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new ParseAvroFile(lineno, directive, column);
+            }
+          });
         }
         break;
 
         // send-to-error <condition>
         case "send-to-error": {
-          String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
-          steps.add(new SendToError(lineno, directive, condition));
+          final String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new SendToError(lineno, directive, condition);
+            }
+          });
         }
         break;
 
         // fail <condition>
         case "fail": {
-          String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
-          steps.add(new Fail(lineno, directive, condition));
+          final String condition = getNextToken(tokenizer, "\n", command, "condition", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Fail(lineno, directive, condition);
+            }
+          });
         }
         break;
 
         // text-distance <method> <column1> <column2> <destination>
         case "text-distance" : {
-          String method = getNextToken(tokenizer, command, "method", lineno);
-          String column1 = getNextToken(tokenizer, command, "column1", lineno);
-          String column2 = getNextToken(tokenizer, command, "column2", lineno);
-          String destination = getNextToken(tokenizer, command, "destination", lineno);
-          steps.add(new TextDistanceMeasure(lineno, directive, method, column1, column2, destination));
+          final String method = getNextToken(tokenizer, command, "method", lineno);
+          final String column1 = getNextToken(tokenizer, command, "column1", lineno);
+          final String column2 = getNextToken(tokenizer, command, "column2", lineno);
+          final String destination = getNextToken(tokenizer, command, "destination", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new TextDistanceMeasure(lineno, directive, method, column1, column2, destination);
+            }
+          });
         }
         break;
 
         // text-metric <method> <column1> <column2> <destination>
         case "text-metric" : {
-          String method = getNextToken(tokenizer, command, "method", lineno);
-          String column1 = getNextToken(tokenizer, command, "column1", lineno);
-          String column2 = getNextToken(tokenizer, command, "column2", lineno);
-          String destination = getNextToken(tokenizer, command, "destination", lineno);
-          steps.add(new TextMetricMeasure(lineno, directive, method, column1, column2, destination));
+          final String method = getNextToken(tokenizer, command, "method", lineno);
+          final String column1 = getNextToken(tokenizer, command, "column1", lineno);
+          final String column2 = getNextToken(tokenizer, command, "column2", lineno);
+          final String destination = getNextToken(tokenizer, command, "destination", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new TextMetricMeasure(lineno, directive, method, column1, column2, destination);
+            }
+          });
         }
         break;
 
         // catalog-lookup ICD-9|ICD-10 <column>
         case "catalog-lookup" : {
           String type = getNextToken(tokenizer, command, "type", lineno);
-          String column = getNextToken(tokenizer, command, "column", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
           if (!type.equalsIgnoreCase("ICD-9") && !type.equalsIgnoreCase("ICD-10-2016") &&
               !type.equalsIgnoreCase("ICD-10-2017")) {
             throw new IllegalArgumentException("Invalid ICD type - should be 9 (ICD-9) or 10 (ICD-10-2016 " +
                                                  "or ICD-10-2017).");
           } else {
-            ICDCatalog catalog = new ICDCatalog(type.toLowerCase());
+            final String name = type.toLowerCase();
+            ICDCatalog catalog = new ICDCatalog(name);
             if (!catalog.configure()) {
               throw new DirectiveParseException(
                 String.format("Failed to configure ICD StaticCatalog. Check with your administrator")
               );
             }
-            steps.add(new CatalogLookup(lineno, directive, catalog, column));
+            factories.add(new StepFactory() {
+              @Override
+              public Step create() throws DirectiveParseException {
+                return new CatalogLookup(lineno, directive, new ICDCatalog(name), column);
+              }
+            });
           }
         }
         break;
 
         // table-lookup <column> <table>
         case "table-lookup" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String table = getNextToken(tokenizer, command, "table", lineno);
-          steps.add(new TableLookup(lineno, directive, column, table));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String table = getNextToken(tokenizer, command, "table", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new TableLookup(lineno, directive, column, table);
+            }
+          });
         }
         break;
 
         // stemming <column>
         case "stemming" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new Stemming(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Stemming(lineno, directive, column);
+            }
+          });
         }
         break;
 
         // columns <sed>
         case "columns-replace" : {
-          String sed = getNextToken(tokenizer, command, "sed-expression", lineno);
-          steps.add(new ColumnsReplace(lineno, directive, sed));
+          final String sed = getNextToken(tokenizer, command, "sed-expression", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new ColumnsReplace(lineno, directive, sed);
+            }
+          });
         }
         break;
 
         // extract-regex-groups <column> <regex>
         case "extract-regex-groups" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String regex = getNextToken(tokenizer, command, "regex", lineno);
-          steps.add(new ExtractRegexGroups(lineno, directive, column, regex));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String regex = getNextToken(tokenizer, command, "regex", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new ExtractRegexGroups(lineno, directive, column, regex);
+            }
+          });
         }
         break;
 
         // split-url <column>
         case "split-url" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          steps.add(new SplitURL(lineno, directive, column));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new SplitURL(lineno, directive, column);
+            }
+          });
         }
         break;
 
         // cleanse-column-names
         case "cleanse-column-names" : {
-          steps.add(new CleanseColumnNames(lineno, directive));
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new CleanseColumnNames(lineno, directive);
+            }
+          });
         }
         break;
 
         // change-column-case <upper|lower|uppercase|lowercase>
         case "change-column-case" : {
           String casing = getNextToken(tokenizer, command, "case", lineno);
-          boolean toLower = false;
-          if (casing == null || casing.isEmpty() || casing.equalsIgnoreCase("lower")
-            || casing.equalsIgnoreCase("lowercase")) {
-            toLower = true;
-          }
-          steps.add(new ChangeColCaseNames(lineno, directive, toLower));
+          final boolean toLower = casing == null || casing.isEmpty() || casing.equalsIgnoreCase("lower")
+            || casing.equalsIgnoreCase("lowercase");
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new ChangeColCaseNames(lineno, directive, toLower);
+            }
+          });
         }
         break;
 
         // set-column <column> <expression>
         case "set-column" : {
-          String column = getNextToken(tokenizer, command, "column", lineno);
-          String expr = getNextToken(tokenizer, "\n", command, "expression", lineno);
-          steps.add(new SetColumn(lineno, directive, column, expr));
+          final String column = getNextToken(tokenizer, command, "column", lineno);
+          final String expr = getNextToken(tokenizer, "\n", command, "expression", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new SetColumn(lineno, directive, column, expr);
+            }
+          });
         }
         break;
 
         // encode <base32|base64|hex> <column>
         case "encode" : {
           String type = getNextToken(tokenizer, command, "type", lineno);
-          String column = getNextToken(tokenizer, command, "column", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
           type = type.toUpperCase();
           if (!type.equals("BASE64") && !type.equals("BASE32") && !type.equals("HEX")) {
             throw new DirectiveParseException(
@@ -999,14 +1416,20 @@ public class TextDirectives implements Directives {
                             type)
             );
           }
-          steps.add(new Encode(lineno, directive, Encode.Type.valueOf(type), column));
+          final Encode.Type encoding = Encode.Type.valueOf(type);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Encode(lineno, directive, encoding, column);
+            }
+          });
         }
         break;
 
         // decode <base32|base64|hex> <column>
         case "decode" : {
           String type = getNextToken(tokenizer, command, "type", lineno);
-          String column = getNextToken(tokenizer, command, "column", lineno);
+          final String column = getNextToken(tokenizer, command, "column", lineno);
           type = type.toUpperCase();
           if (!type.equals("BASE64") && !type.equals("BASE32") && !type.equals("HEX")) {
             throw new DirectiveParseException(
@@ -1014,28 +1437,49 @@ public class TextDirectives implements Directives {
                             type)
             );
           }
-          steps.add(new Decode(lineno, directive, Decode.Type.valueOf(type), column));
+          final Decode.Type encoding = Decode.Type.valueOf(type);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Decode(lineno, directive, encoding, column);
+            }
+          });
         }
         break;
 
         //trim <column>
         case "trim": {
-          String col = getNextToken(tokenizer, command, "col", lineno);
-          steps.add(new Trim(lineno, directive, col));
+          final String col = getNextToken(tokenizer, command, "col", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new Trim(lineno, directive, col);
+            }
+          });
         }
         break;
 
         //ltrim <column>
         case "ltrim": {
-          String col = getNextToken(tokenizer, command, "col", lineno);
-          steps.add(new LeftTrim(lineno, directive, col));
+          final String col = getNextToken(tokenizer, command, "col", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new LeftTrim(lineno, directive, col);
+            }
+          });
         }
         break;
 
         //rtrim <column>
         case "rtrim": {
-          String col = getNextToken(tokenizer, command, "col", lineno);
-          steps.add(new RightTrim(lineno, directive, col));
+          final String col = getNextToken(tokenizer, command, "col", lineno);
+          factories.add(new StepFactory() {
+            @Override
+            public Step create() throws DirectiveParseException {
+              return new RightTrim(lineno, directive, col);
+            }
+          });
         }
         break;
 
@@ -1047,11 +1491,91 @@ public class TextDirectives implements Directives {
             String.format("Unknown directive '%s' found in the directive at line %d", command, lineno)
           );
       }
-      lineno++;
+      line.parsed = new Parsed(root, factories);
+      for (StepFactory factory : factories) {
+        steps.add(factory.create());
+      }
     }
     return steps;
   }
 
+  /**
+   * Splits the directives into the lines to be parsed, skipping empty lines and comments. The lines
+   * of a recipe are reused across all the parses of the same recipe.
+   *
+   * @return List of directive lines.
+   */
+  private List<Line> lines() {
+    final List<String> recipe = ImmutableList.copyOf(directives);
+    try {
+      return RECIPES.get(recipe, new Callable<List<Line>>() {
+        @Override
+        public List<Line> call() throws Exception {
+          List<Line> lines = new ArrayList<>();
+          int lineno = 1;
+          for (String directive : recipe) {
+            directive = directive.trim();
+            if (directive.isEmpty() || directive.startsWith("//") || directive.startsWith("#")) {
+              continue;
+            }
+            lines.add(new Line(lineno, directive, new StringTokenizer(directive, " ").nextToken()));
+            lineno++;
+          }
+          return ImmutableList.copyOf(lines);
+        }
+      });
+    } catch (ExecutionException e) {
+      // Splitting the lines does not throw checked exceptions.
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * @return statistics of the cache of recipes parsed.
+   */
+  @VisibleForTesting
+  static CacheStats getCacheStats() {
+    return RECIPES.stats();
+  }
+
+  /**
+   * A directive line of a recipe.
+   */
+  private static final class Line {
+    private final int lineno;
+    private final String directive;
+    private final String command;
+    // Factories of the steps the line was last parsed into.
+    private volatile Parsed parsed;
+
+    Line(int lineno, String directive, String command) {
+      this.lineno = lineno;
+      this.directive = directive;
+      this.command = command;
+    }
+  }
+
+  /**
+   * Factories of the steps a directive line is parsed into, for the root command the line was parsed as.
+   */
+  private static final class Parsed {
+    private final String root;
+    private final List<StepFactory> factories;
+
+    Parsed(String root, List<StepFactory> factories) {
+      this.root = root;
+      this.factories = ImmutableList.copyOf(factories);
+    }
+  }
+
+  /**
+   * Creates the steps of a directive from the arguments it was parsed into. Arguments that are mutable
+   * are copied for every step, as the steps created from a line parsed may be executed concurrently.
+   */
+  private interface StepFactory {
+    Step create() throws DirectiveParseException;
+  }
+
   // If there are more tokens, then it proceeds with parsing, else throws exception.
   private String getNextToken(StringTokenizer tokenizer, String directive,
                           String field, int lineno) throws DirectiveParseException {
@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.statistics;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Profile of the values of a column, accumulated in a single pass over the records.
+ *
+ * <p>
+ *   Profiles of disjoint sets of records are merged into the profile of all the records, so that
+ *   records can be profiled in parallel. The number of distinct values, quantiles and most frequent
+ *   values are estimated with sketches of bounded size.
+ * </p>
+ */
+public final class ColumnProfile {
+  // Maximum number of values tracked for most frequent values.
+  private static final int FREQUENT_ITEMS = 64;
+  // Number of numeric values sampled for quantiles.
+  private static final int QUANTILE_SAMPLES = 1024;
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private long count;
+  private long nulls;
+  private long empties;
+  private final Map<String, Long> types = new TreeMap<>();
+  private final HyperLogLog distinct = new HyperLogLog();
+  private final FrequentItems frequent = new FrequentItems(FREQUENT_ITEMS);
+  private final QuantileSketch quantiles;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+
+  /**
+   * @param seed of the sampling of numeric values.
+   */
+  public ColumnProfile(long seed) {
+    this.quantiles = new QuantileSketch(QUANTILE_SAMPLES, seed);
+  }
+
+  /**
+   * Adds a value of the column.
+   *
+   * @param object value of the column.
+   * @param detected types detected for the value, empty if the value is not a non-empty string.
+   */
+  public void add(Object object, Set<String> detected) {
+    count++;
+    if (object == null) {
+      nulls++;
+      return;
+    }
+
+    String value = object.toString();
+    if (object instanceof String && value.isEmpty()) {
+      empties++;
+    }
+    for (String type : detected) {
+      Long n = types.get(type);
+      types.put(type, n == null ? 1 : n + 1);
+    }
+    distinct.add(HASH.hashString(value, Charsets.UTF_8).asLong());
+    frequent.add(value);
+
+    double number = Double.NaN;
+    if (object instanceof Number) {
+      number = ((Number) object).doubleValue();
+    } else if (object instanceof String) {
+      number = toNumber(value);
+    }
+    // Values out of the range of doubles, like 1e999, are not numbers that can be summarized.
+    if (!Double.isNaN(number) && !Double.isInfinite(number)) {
+      quantiles.add(number);
+      min = Double.isNaN(min) ? number : Math.min(min, number);
+      max = Double.isNaN(max) ? number : Math.max(max, number);
+    }
+  }
+
+  /**
+   * Merges the profile of other records of the column into this one.
+   *
+   * @param other profile to be merged.
+   */
+  public void merge(ColumnProfile other) {
+    count += other.count;
+    nulls += other.nulls;
+    empties += other.empties;
+    for (Map.Entry<String, Long> type : other.types.entrySet()) {
+      Long n = types.get(type.getKey());
+      types.put(type.getKey(), n == null ? type.getValue() : n + type.getValue());
+    }
+    distinct.merge(other.distinct);
+    frequent.merge(other.frequent);
+    quantiles.merge(other.quantiles);
+    if (!Double.isNaN(other.min)) {
+      min = Double.isNaN(min) ? other.min : Math.min(min, other.min);
+      max = Double.isNaN(max) ? other.max : Math.max(max, other.max);
+    }
+  }
+
+  /**
+   * @return number of records having the column.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return number of null values.
+   */
+  public long getNulls() {
+    return nulls;
+  }
+
+  /**
+   * @return number of non-null values.
+   */
+  public long getNonNulls() {
+    return count - nulls;
+  }
+
+  /**
+   * @return number of empty strings.
+   */
+  public long getEmpties() {
+    return empties;
+  }
+
+  /**
+   * @return number of values each type was detected for.
+   */
+  public Map<String, Long> getTypes() {
+    return Collections.unmodifiableMap(types);
+  }
+
+  /**
+   * @return estimated number of distinct non-null values.
+   */
+  public long getCardinality() {
+    return distinct.cardinality();
+  }
+
+  /**
+   * @return number of numeric values.
+   */
+  public long getNumerics() {
+    return quantiles.getCount();
+  }
+
+  /**
+   * @return smallest numeric value, NaN if there are no numeric values.
+   */
+  public double getMin() {
+    return min;
+  }
+
+  /**
+   * @return largest numeric value, NaN if there are no numeric values.
+   */
+  public double getMax() {
+    return max;
+  }
+
+  /**
+   * @param quantile between 0 and 1.
+   * @return estimated numeric value at the quantile, NaN if there are no numeric values.
+   */
+  public double getQuantile(double quantile) {
+    return quantiles.quantile(quantile);
+  }
+
+  /**
+   * @param limit maximum number of values returned.
+   * @return most frequent values and their estimated counts, most frequent first.
+   */
+  public List<Map.Entry<String, Long>> getTop(int limit) {
+    return frequent.top(limit);
+  }
+
+  /**
+   * Parses a string holding a decimal number.
+   *
+   * @return the number, NaN if the string is not a number.
+   */
+  private static double toNumber(String value) {
+    int length = value.length();
+    if (length == 0 || length > 32) {
+      return Double.NaN;
+    }
+    // Avoids the cost of an exception for the common case of strings that are obviously not numbers.
+    for (int i = 0; i < length; ++i) {
+      char c = value.charAt(i);
+      if (!((c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E')) {
+        return Double.NaN;
+      }
+    }
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+}
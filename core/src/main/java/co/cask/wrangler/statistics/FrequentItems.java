@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks the most frequent values seen, using the Misra-Gries summary.
+ *
+ * <p>
+ *   At most a fixed number of values are tracked. Every value occurring more often than n / (capacity + 1)
+ *   times is guaranteed to be tracked, and the count of a value is underestimated by at most that much.
+ *   Summaries are mergeable, so that values can be counted in parallel.
+ * </p>
+ */
+public final class FrequentItems {
+  private final int capacity;
+  private final Map<String, Long> counts = new HashMap<>();
+
+  /**
+   * @param capacity maximum number of values tracked.
+   */
+  public FrequentItems(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Adds a value to the summary.
+   *
+   * @param value to be added.
+   */
+  public void add(String value) {
+    Long count = counts.get(value);
+    if (count != null) {
+      counts.put(value, count + 1);
+    } else if (counts.size() < capacity) {
+      counts.put(value, 1L);
+    } else {
+      decrement(1);
+    }
+  }
+
+  /**
+   * Merges the values counted by another summary into this one.
+   *
+   * @param other summary to be merged.
+   */
+  public void merge(FrequentItems other) {
+    for (Map.Entry<String, Long> entry : other.counts.entrySet()) {
+      Long count = counts.get(entry.getKey());
+      counts.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+    }
+    if (counts.size() > capacity) {
+      // Subtracting the count of the (capacity + 1)th most frequent value keeps at most capacity values.
+      List<Long> values = new ArrayList<>(counts.values());
+      Collections.sort(values, Collections.reverseOrder());
+      decrement(values.get(capacity));
+    }
+  }
+
+  /**
+   * Returns the most frequent values, most frequent first.
+   *
+   * @param limit maximum number of values returned.
+   * @return values and their estimated counts.
+   */
+  public List<Map.Entry<String, Long>> top(int limit) {
+    List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+      @Override
+      public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+        int compare = Long.compare(b.getValue(), a.getValue());
+        return compare != 0 ? compare : a.getKey().compareTo(b.getKey());
+      }
+    });
+    return entries.subList(0, Math.min(limit, entries.size()));
+  }
+
+  private void decrement(long amount) {
+    Iterator<Map.Entry<String, Long>> it = counts.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, Long> entry = it.next();
+      long count = entry.getValue() - amount;
+      if (count <= 0) {
+        it.remove();
+      } else {
+        entry.setValue(count);
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.statistics;
+
+/**
+ * Estimates the number of distinct values seen, using the HyperLogLog algorithm.
+ *
+ * <p>
+ *   Uses 2^12 registers of a byte each, for a standard error of about 1.6%. Values are added as 64 bit
+ *   hashes, hence there is no need for correction of large cardinalities. Estimators are merged by
+ *   taking the maximum of each register, so that values can be counted in parallel.
+ * </p>
+ */
+public final class HyperLogLog {
+  private static final int PRECISION = 12;
+  private static final int REGISTERS = 1 << PRECISION;
+  private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+  private final byte[] registers = new byte[REGISTERS];
+
+  /**
+   * Adds a value to the estimator.
+   *
+   * @param hash 64 bit hash of the value.
+   */
+  public void add(long hash) {
+    int index = (int) (hash >>> (Long.SIZE - PRECISION));
+    // Guard bit bounds the rank when the rest of the hash is all zeros.
+    long rest = (hash << PRECISION) | (1L << (PRECISION - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+    if (rank > registers[index]) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * Merges the values seen by another estimator into this one.
+   *
+   * @param other estimator to be merged.
+   */
+  public void merge(HyperLogLog other) {
+    for (int i = 0; i < REGISTERS; ++i) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * @return estimated number of distinct values.
+   */
+  public long cardinality() {
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+    if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+      // Linear counting is more accurate for small cardinalities.
+      estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+    }
+    return Math.round(estimate);
+  }
+}
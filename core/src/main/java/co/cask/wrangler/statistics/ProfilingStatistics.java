@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.statistics;
+
+import co.cask.wrangler.api.Record;
+import co.cask.wrangler.api.statistics.ColumnMetric;
+import co.cask.wrangler.api.statistics.Statistics;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import io.dataapps.chlorine.finder.FinderEngine;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profiles the columns of the records in parallel, in a single pass over the records.
+ *
+ * <p>
+ *   Records are split in chunks that are profiled by the worker threads, the profiles of the chunks are
+ *   then merged into a {@link ColumnProfile} per column. The record aggregated holds the same statistics
+ *   as the one produced by {@link BasicStatistics}, computed from the profiles. Records profiled with
+ *   {@link #profile(List)} can be aggregated from their profiles, without profiling them again.
+ * </p>
+ *
+ * <p>
+ *   Detecting the types of a value runs every finder on it, hence the types detected are cached by value,
+ *   as columns often repeat the same values.
+ * </p>
+ */
+public final class ProfilingStatistics implements Statistics, Closeable {
+  // Default number of records in a chunk profiled by a worker.
+  private static final int DEFAULT_CHUNK_SIZE = 1024;
+  // Values longer than this are not cached, as they are unlikely to repeat.
+  private static final int MAX_CACHED_LENGTH = 128;
+
+  // Types detected for the values, shared by the profilers as the finders are the same for all of them.
+  private static final Cache<String, Set<String>> TYPES = CacheBuilder.newBuilder()
+    .maximumSize(16 * 1024)
+    .build();
+
+  private final FinderEngine engine;
+  private final int chunkSize;
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates a profiler with as many workers as there are processors.
+   */
+  public ProfilingStatistics() throws Exception {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a profiler.
+   *
+   * @param threads number of worker threads.
+   * @param chunkSize maximum number of records profiled by a worker at a time.
+   */
+  public ProfilingStatistics(int threads, int chunkSize) throws Exception {
+    this.engine = new FinderEngine("wrangler-finder.xml", true, false);
+    this.chunkSize = Math.max(1, chunkSize);
+    this.pool = new ForkJoinPool(threads, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("wrangler-profiler-" + thread.getPoolIndex());
+        return thread;
+      }
+    }, null, false);
+  }
+
+  /**
+   * Profiles the columns of the records.
+   *
+   * @param records to be profiled.
+   * @return profile of each column, sorted by column name.
+   */
+  public Map<String, ColumnProfile> profile(List<Record> records) {
+    if (records.isEmpty()) {
+      return new TreeMap<>();
+    }
+    return pool.invoke(new ProfileTask(records, 0));
+  }
+
+  @Override
+  public Record aggregate(List<Record> records) {
+    return aggregate(profile(records), records.size());
+  }
+
+  /**
+   * Aggregates the statistics of records from their profiles.
+   *
+   * @param profiles of the columns of the records, from {@link #profile(List)}.
+   * @param count number of records profiled.
+   * @return record with the same statistics as {@link #aggregate(List)}.
+   */
+  public Record aggregate(Map<String, ColumnProfile> profiles, double count) {
+    ColumnMetric types = new ColumnMetric();
+    ColumnMetric stats = new ColumnMetric();
+    for (Map.Entry<String, ColumnProfile> entry : profiles.entrySet()) {
+      String column = entry.getKey();
+      ColumnProfile profile = entry.getValue();
+      set(stats, column, "null", profile.getNulls());
+      set(stats, column, "non-null", profile.getNonNulls());
+      set(stats, column, "empty", profile.getEmpties());
+      for (Map.Entry<String, Long> type : profile.getTypes().entrySet()) {
+        set(types, column, type.getKey(), type.getValue());
+      }
+    }
+
+    Record recordTypes = new Record();
+    for (String column : types.getColumns()) {
+      recordTypes.add(column, types.percentage(column, count));
+    }
+
+    Record recordStats = new Record();
+    for (String column : stats.getColumns()) {
+      recordStats.add(column, stats.percentage(column, count));
+    }
+
+    Record record = new Record();
+    record.add("types", recordTypes);
+    record.add("stats", recordStats);
+    record.add("total", count);
+    return record;
+  }
+
+  /**
+   * Shuts down the worker threads.
+   */
+  @Override
+  public void close() {
+    pool.shutdown();
+    try {
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void set(ColumnMetric metric, String column, String measure, long value) {
+    // Measures that never occurred are left out, the same as with BasicStatistics.
+    if (value > 0) {
+      metric.set(column, measure, value);
+    }
+  }
+
+  /**
+   * Detects the types of a non-empty string.
+   */
+  private Set<String> detect(String value) {
+    if (value.length() > MAX_CACHED_LENGTH) {
+      return engine.findWithType(value).keySet();
+    }
+    Set<String> types = TYPES.getIfPresent(value);
+    if (types == null) {
+      types = ImmutableSet.copyOf(engine.findWithType(value).keySet());
+      TYPES.put(value, types);
+    }
+    return types;
+  }
+
+  /**
+   * Profiles a chunk of the records.
+   */
+  private Map<String, ColumnProfile> profileChunk(List<Record> records, long seed) {
+    Map<String, ColumnProfile> profiles = new TreeMap<>();
+    Set<String> none = Collections.emptySet();
+    for (Record record : records) {
+      for (int i = 0; i < record.length(); ++i) {
+        String column = record.getColumn(i);
+        Object object = record.getValue(i);
+        ColumnProfile profile = profiles.get(column);
+        if (profile == null) {
+          profile = new ColumnProfile(seed);
+          profiles.put(column, profile);
+        }
+        Set<String> types = none;
+        if (object instanceof String && !((String) object).isEmpty()) {
+          types = detect((String) object);
+        }
+        profile.add(object, types);
+      }
+    }
+    return profiles;
+  }
+
+  /**
+   * Splits the records in halves until they are small enough to be profiled by a worker, the profiles
+   * of both halves are then merged.
+   */
+  private final class ProfileTask extends RecursiveTask<Map<String, ColumnProfile>> {
+    private final List<Record> records;
+    // Offset of the records in the input, seeds the sampling so that profiles are repeatable.
+    private final long offset;
+
+    ProfileTask(List<Record> records, long offset) {
+      this.records = records;
+      this.offset = offset;
+    }
+
+    @Override
+    protected Map<String, ColumnProfile> compute() {
+      int size = records.size();
+      if (size <= chunkSize) {
+        return profileChunk(records, offset);
+      }
+
+      ProfileTask left = new ProfileTask(records.subList(0, size / 2), offset);
+      ProfileTask right = new ProfileTask(records.subList(size / 2, size), offset + size / 2);
+      left.fork();
+      Map<String, ColumnProfile> second = right.compute();
+      Map<String, ColumnProfile> first = left.join();
+      for (Map.Entry<String, ColumnProfile> entry : second.entrySet()) {
+        ColumnProfile profile = first.get(entry.getKey());
+        if (profile == null) {
+          first.put(entry.getKey(), entry.getValue());
+        } else {
+          profile.merge(entry.getValue());
+        }
+      }
+      return first;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.statistics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Estimates quantiles of numeric values from a uniform random sample of the values.
+ *
+ * <p>
+ *   Keeps a reservoir of a fixed number of values. Sketches are merged by drawing from each of the
+ *   reservoirs in proportion to the number of values they have seen, so that values can be sampled
+ *   in parallel.
+ * </p>
+ */
+public final class QuantileSketch {
+  private final int capacity;
+  private final Random random;
+  private double[] samples;
+  private int size;
+  private long count;
+
+  /**
+   * @param capacity maximum number of values kept.
+   * @param seed of the random sampling, for repeatable estimates.
+   */
+  public QuantileSketch(int capacity, long seed) {
+    this.capacity = capacity;
+    this.random = new Random(seed);
+    this.samples = new double[Math.min(capacity, 16)];
+  }
+
+  /**
+   * Adds a value to the sketch.
+   *
+   * @param value to be added.
+   */
+  public void add(double value) {
+    count++;
+    if (size < capacity) {
+      if (size == samples.length) {
+        samples = Arrays.copyOf(samples, Math.min(capacity, size * 2));
+      }
+      samples[size++] = value;
+    } else {
+      long index = (long) (random.nextDouble() * count);
+      if (index < capacity) {
+        samples[(int) index] = value;
+      }
+    }
+  }
+
+  /**
+   * Merges the values seen by another sketch into this one.
+   *
+   * @param other sketch to be merged.
+   */
+  public void merge(QuantileSketch other) {
+    if (size + other.size <= capacity && count == size && other.count == other.size) {
+      // Both hold all the values they have seen.
+      for (int i = 0; i < other.size; ++i) {
+        add(other.samples[i]);
+      }
+      return;
+    }
+
+    double[] mine = shuffled(samples, size);
+    double[] theirs = shuffled(other.samples, other.size);
+    int m = 0;
+    int t = 0;
+    double[] merged = new double[Math.min(capacity, size + other.size)];
+    long total = count + other.count;
+    for (int i = 0; i < merged.length; ++i) {
+      boolean fromMine = t == theirs.length
+        || (m < mine.length && random.nextDouble() * total < count);
+      merged[i] = fromMine ? mine[m++] : theirs[t++];
+    }
+    samples = merged;
+    size = merged.length;
+    count = total;
+  }
+
+  /**
+   * @return number of values seen.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Estimates the value at a quantile.
+   *
+   * @param quantile between 0 and 1.
+   * @return the estimated value, NaN if no values were seen.
+   */
+  public double quantile(double quantile) {
+    if (size == 0) {
+      return Double.NaN;
+    }
+    double[] sorted = Arrays.copyOf(samples, size);
+    Arrays.sort(sorted);
+    int index = (int) Math.round(quantile * (size - 1));
+    return sorted[Math.max(0, Math.min(size - 1, index))];
+  }
+
+  private double[] shuffled(double[] values, int length) {
+    double[] copy = Arrays.copyOf(values, length);
+    for (int i = length - 1; i > 0; --i) {
+      int j = random.nextInt(i + 1);
+      double tmp = copy[i];
+      copy[i] = copy[j];
+      copy[j] = tmp;
+    }
+    return copy;
+  }
+}
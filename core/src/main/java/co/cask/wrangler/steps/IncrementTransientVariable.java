@@ -7,12 +7,10 @@ import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
 import co.cask.wrangler.steps.transformation.JexlHelper;
+import co.cask.wrangler.steps.transformation.RecordJexlContext;
 import co.cask.wrangler.steps.transformation.functions.Types;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.List;
 
@@ -28,15 +26,15 @@ public class IncrementTransientVariable extends AbstractStep {
   private final String variable;
   private final long incrementBy;
   private final String expression;
-  private final JexlEngine engine;
   private final JexlScript script;
+  private final RecordJexlContext ctx;
 
   public IncrementTransientVariable(int lineno, String detail, String variable, String value, String expression) {
     super(lineno, detail);
     this.variable = variable;
     this.expression = expression;
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(this.expression);
+    script = JexlHelper.compile(this.expression);
+    ctx = new RecordJexlContext(script);
     if (Types.isNumber(value)) {
       incrementBy = Long.parseLong(value);
     } else {
@@ -55,19 +53,8 @@ public class IncrementTransientVariable extends AbstractStep {
   public List<Record> execute(List<Record> records, PipelineContext context)
     throws StepException, ErrorRecordException {
     for (Record record : records) {
-      // Move the fields from the record into the context.
-      JexlContext ctx = new MapContext();
-      ctx.set("this", record);
-      for (int i = 0; i < record.length(); ++i) {
-        ctx.set(record.getColumn(i), record.getValue(i));
-      }
-
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
+      // Binds the record and transient variables to the context.
+      ctx.bind(record, context != null ? context.getTransientStore() : null, null);
 
       // Execution of the script / expression based on the record data
       // mapped into context.
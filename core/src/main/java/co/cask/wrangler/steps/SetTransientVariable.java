@@ -7,11 +7,9 @@ import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
 import co.cask.wrangler.steps.transformation.JexlHelper;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
+import co.cask.wrangler.steps.transformation.RecordJexlContext;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.List;
 
@@ -29,15 +27,15 @@ import java.util.List;
 public class SetTransientVariable extends AbstractStep {
   private final String variable;
   private final String expression;
-  private final JexlEngine engine;
   private final JexlScript script;
+  private final RecordJexlContext ctx;
 
   public SetTransientVariable(int lineno, String detail, String variable, String expression) {
     super(lineno, detail);
     this.variable = variable;
     this.expression = expression;
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(this.expression);
+    script = JexlHelper.compile(this.expression);
+    ctx = new RecordJexlContext(script);
   }
 
   /**
@@ -51,19 +49,8 @@ public class SetTransientVariable extends AbstractStep {
   public List<Record> execute(List<Record> records, PipelineContext context)
     throws StepException, ErrorRecordException {
     for (Record record : records) {
-      // Move the fields from the record into the context.
-      JexlContext ctx = new MapContext();
-      ctx.set("this", record);
-      for (int i = 0; i < record.length(); ++i) {
-        ctx.set(record.getColumn(i), record.getValue(i));
-      }
-
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
+      // Binds the record and transient variables to the context.
+      ctx.bind(record, context != null ? context.getTransientStore() : null, null);
 
       // Execution of the script / expression based on the record data
       // mapped into context.
@@ -21,8 +21,7 @@ import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
-import org.unix4j.Unix4j;
-import org.unix4j.builder.Unix4jCommandBuilder;
+import co.cask.wrangler.utils.SedExpression;
 
 import java.util.List;
 
@@ -37,11 +36,21 @@ import java.util.List;
   description = "Modifies column names in bulk using a sed-format expression"
 )
 public class ColumnsReplace extends AbstractStep {
-  private final String sed;
+  private final SedExpression sed;
+  // Reason the expression is not valid, reported when there are columns to be renamed.
+  private final String error;
 
   public ColumnsReplace(int lineno, String detail, String sed) {
     super(lineno, detail);
-    this.sed = sed.trim();
+    SedExpression expression = null;
+    String error = null;
+    try {
+      expression = SedExpression.compile(sed.trim());
+    } catch (IllegalArgumentException e) {
+      error = e.getMessage();
+    }
+    this.sed = expression;
+    this.error = error;
   }
 
   /**
@@ -56,9 +65,13 @@ public class ColumnsReplace extends AbstractStep {
     for (Record record : records) {
       for (int i = 0; i < record.length(); ++i) {
         String name = record.getColumn(i);
+        if (sed == null) {
+          throw new StepException(
+            String.format(toString() + " : " + error)
+          );
+        }
         try {
-          Unix4jCommandBuilder builder = Unix4j.echo(name).sed(sed);
-          record.setColumn(i, builder.toStringResult());
+          record.setColumn(i, sed.apply(name));
         } catch (IllegalArgumentException e) {
           throw new StepException(
             String.format(toString() + " : " + e.getMessage())
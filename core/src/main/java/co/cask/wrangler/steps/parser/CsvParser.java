@@ -24,8 +24,6 @@ import co.cask.wrangler.api.Usage;
 import co.cask.wrangler.dq.DataType;
 import co.cask.wrangler.dq.TypeInference;
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -57,6 +55,12 @@ public class CsvParser extends AbstractStep {
   // Header names.
   private List<String> headers = new ArrayList<>();
 
+  // Splits the lines into records, reused across lines.
+  private final CsvTokenizer tokenizer;
+
+  // Name of the columns the fields are added as, either the header names or generated from the column name.
+  private String[] names = new String[0];
+
   public CsvParser(int lineno, String detail, Options options, String col, boolean hasHeader) {
     super(lineno, detail);
     this.col = col;
@@ -65,6 +69,7 @@ public class CsvParser extends AbstractStep {
       .withAllowMissingColumnNames(options.allowMissingColumnNames)
       .withIgnoreSurroundingSpaces(options.ignoreSurroundingSpaces)
       .withRecordSeparator(options.recordSeparator);
+    this.tokenizer = new CsvTokenizer(format);
     this.hasHeader = hasHeader;
   }
 
@@ -78,63 +83,72 @@ public class CsvParser extends AbstractStep {
   @Override
   public List<Record> execute(List<Record> records, PipelineContext context)
     throws StepException {
-
+    List<Record> results = new ArrayList<>(records.size());
     for (Record record : records) {
       int idx = record.find(col);
       if (idx == -1) {
+        results.add(record);
         continue;
       }
       String line = (String) record.getValue(idx);
       if(line == null || line.isEmpty()) {
+        results.add(record);
         continue;
       }
-      CSVParser parser = null;
       try {
-        parser = CSVParser.parse(line, format);
-        List<CSVRecord> csvRecords = parser.getRecords();
-        for (CSVRecord csvRecord : csvRecords) {
-          if(!checkedHeader && hasHeader && isHeader(csvRecord)) {
-            for (int i = 0; i < csvRecord.size(); i++) {
-              headers.add(csvRecord.get(i));
-            }
-            if (records.size() > 0) {
-              return new ArrayList<>();
-            }
+        tokenizer.reset(line);
+        boolean header = false;
+        List<String> fields;
+        while ((fields = tokenizer.next()) != null) {
+          if(!checkedHeader && hasHeader && isHeader(fields)) {
+            headers.addAll(fields);
+            names = headers.toArray(new String[headers.size()]);
+            // Only the record carrying the header is dropped, rest of the batch is still parsed.
+            header = true;
           } else {
-            toRow(csvRecord, record);
+            toRow(fields, record);
           }
         }
+        if (!header) {
+          results.add(record);
+        }
       } catch (IOException e) {
         throw new StepException(
           String.format("%s : Issue parsing the record. %s", toString(), e.getMessage())
         );
       }
     }
-    return records;
+    return results;
   }
 
   /**
-   * Converts a {@link CSVRecord} to {@link Record}.
+   * Adds the fields of a CSV record to the {@link Record}.
    *
-   * @param record
-   * @return
+   * @param fields of the CSV record.
+   * @param row to which the fields are added.
    */
-  private void toRow(CSVRecord record, Record row) {
-    int size = headers.size();
-    for ( int i = 0; i < record.size(); i++) {
-      if (size > 0) {
-        row.add(headers.get(i), record.get(i));
-      } else {
-        row.add(col + "_" + (i + 1), record.get(i));
+  private void toRow(List<String> fields, Record row) {
+    int size = fields.size();
+    if (headers.isEmpty() && names.length < size) {
+      // Column names are generated once, rather than for every row.
+      String[] generated = new String[size];
+      System.arraycopy(names, 0, generated, 0, names.length);
+      for (int i = names.length; i < size; i++) {
+        generated[i] = col + "_" + (i + 1);
       }
+      names = generated;
+    }
+    row.ensureCapacity(row.length() + size);
+    for (int i = 0; i < size; i++) {
+      row.add(names[i], fields.get(i));
     }
   }
 
-  private boolean isHeader(CSVRecord record) {
+  private boolean isHeader(List<String> fields) {
     checkedHeader = true;
     Set<String> columns = new HashSet<>();
-    for (int i = 0; i < record.size(); i++) {
-      String value = record.get(i);
+    for (int i = 0; i < fields.size(); i++) {
+      String value = fields.get(i);
       if (value == null || value.trim().isEmpty()) {
         return false;
       }
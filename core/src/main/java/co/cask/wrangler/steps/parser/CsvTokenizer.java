@@ -0,0 +1,263 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.steps.parser;
+
+import org.apache.commons.csv.CSVFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits CSV values into records of fields, the same way {@link org.apache.commons.csv.CSVParser} does
+ * for the delimiter, quote, surrounding spaces and empty lines settings of a {@link CSVFormat}.
+ *
+ * <p>
+ *   The tokenizer is reset with every value to be split and reuses the list of fields across records,
+ *   hence it is not thread-safe. Fields that have no doubled quotes are cut out of the value as they are,
+ *   rather than being copied a character at a time.
+ * </p>
+ */
+final class CsvTokenizer {
+  // Characters read before the start of the value and after its end.
+  private static final int UNDEFINED = -2;
+  private static final int END = -1;
+  // Quote character of formats that have no quotes.
+  private static final int NO_QUOTE = -3;
+
+  // Types of tokens.
+  private static final int TOKEN = 0;
+  private static final int EORECORD = 1;
+  private static final int EOF = 2;
+
+  private final char delimiter;
+  private final int quote;
+  private final boolean ignoreSurroundingSpaces;
+  private final boolean ignoreEmptyLines;
+
+  // Fields of the current record.
+  private final List<String> fields = new ArrayList<>();
+  // Content of quoted fields with doubled quotes.
+  private final StringBuilder content = new StringBuilder();
+
+  private String value = "";
+  private int pos;
+  // Last character read.
+  private int last = UNDEFINED;
+
+  // Content of the last token and whether it is complete at the end of the value.
+  private String token;
+  private boolean ready;
+
+  /**
+   * @param format the settings of which are honored.
+   */
+  CsvTokenizer(CSVFormat format) {
+    if (format.isEscapeCharacterSet() || format.isCommentMarkerSet() || format.getTrim()
+      || format.getNullString() != null || format.getTrailingDelimiter()) {
+      throw new IllegalArgumentException("Escapes, comments, trimming and null strings are not supported.");
+    }
+    this.delimiter = format.getDelimiter();
+    this.quote = format.isQuoteCharacterSet() ? format.getQuoteCharacter() : NO_QUOTE;
+    this.ignoreSurroundingSpaces = format.getIgnoreSurroundingSpaces();
+    this.ignoreEmptyLines = format.getIgnoreEmptyLines();
+  }
+
+  /**
+   * Starts splitting a value.
+   *
+   * @param value to be split into records.
+   */
+  void reset(String value) {
+    this.value = value;
+    this.pos = 0;
+    this.last = UNDEFINED;
+  }
+
+  /**
+   * Splits the next record of the value.
+   *
+   * @return fields of the record, valid until the next call. null when there are no more records.
+   * @throws IOException if a quoted field is malformed.
+   */
+  List<String> next() throws IOException {
+    fields.clear();
+    int type;
+    do {
+      type = nextToken();
+      if (type != EOF || ready) {
+        fields.add(token);
+      }
+    } while (type == TOKEN);
+    return fields.isEmpty() ? null : fields;
+  }
+
+  private int nextToken() throws IOException {
+    token = "";
+    ready = false;
+
+    int lastChar = last;
+    int c = read();
+    boolean eol = readEndOfLine(c);
+    if (ignoreEmptyLines) {
+      while (eol && isStartOfLine(lastChar)) {
+        lastChar = c;
+        c = read();
+        eol = readEndOfLine(c);
+        if (c == END) {
+          return EOF;
+        }
+      }
+    }
+    if (lastChar == END || (lastChar != delimiter && c == END)) {
+      return EOF;
+    }
+
+    if (ignoreSurroundingSpaces) {
+      while (isWhitespace(c) && !eol) {
+        c = read();
+        eol = readEndOfLine(c);
+      }
+    }
+    if (c == delimiter) {
+      return TOKEN;
+    } else if (eol) {
+      return EORECORD;
+    } else if (c == quote) {
+      return quoted();
+    } else if (c == END) {
+      ready = true;
+      return EOF;
+    }
+    return simple();
+  }
+
+  /**
+   * Reads a field that is not quoted, the first character of which was just read.
+   */
+  private int simple() {
+    int start = pos - 1;
+    int end = start;
+    int length = value.length();
+    while (end < length) {
+      char c = value.charAt(end);
+      if (c == delimiter || c == '\n' || c == '\r') {
+        break;
+      }
+      end++;
+    }
+    token = value.substring(start, ignoreSurroundingSpaces ? trimTrailing(start, end) : end);
+
+    pos = end;
+    int c = read();
+    if (c == END) {
+      ready = true;
+      return EOF;
+    } else if (c == delimiter) {
+      return TOKEN;
+    }
+    readEndOfLine(c);
+    return EORECORD;
+  }
+
+  /**
+   * Reads a quoted field, the opening quote of which was just read.
+   */
+  private int quoted() throws IOException {
+    int startLine = lineNumber();
+    int start = pos;
+    boolean doubled = false;
+    while (true) {
+      int end = value.indexOf(quote, pos);
+      if (end == -1) {
+        pos = value.length();
+        last = END;
+        throw new IOException("(startline " + startLine + ") EOF reached before encapsulated token finished");
+      }
+      if (end + 1 < value.length() && value.charAt(end + 1) == quote) {
+        // Doubled quote stands for a quote within the field.
+        if (!doubled) {
+          content.setLength(0);
+          doubled = true;
+        }
+        content.append(value, start, end + 1);
+        pos = end + 2;
+        start = pos;
+        continue;
+      }
+      token = doubled ? content.append(value, start, end).toString() : value.substring(start, end);
+      pos = end + 1;
+      last = quote;
+      break;
+    }
+
+    while (true) {
+      int c = read();
+      if (c == delimiter) {
+        return TOKEN;
+      } else if (c == END) {
+        ready = true;
+        return EOF;
+      } else if (readEndOfLine(c)) {
+        return EORECORD;
+      } else if (!isWhitespace(c)) {
+        throw new IOException("(line " + lineNumber() + ") invalid char between encapsulated token and delimiter");
+      }
+    }
+  }
+
+  private int read() {
+    last = pos < value.length() ? value.charAt(pos++) : END;
+    return last;
+  }
+
+  /**
+   * Checks if a character ends a line, consuming the line feed that follows a carriage return.
+   */
+  private boolean readEndOfLine(int c) {
+    if (c == '\r' && pos < value.length() && value.charAt(pos) == '\n') {
+      c = read();
+    }
+    return c == '\n' || c == '\r';
+  }
+
+  private boolean isWhitespace(int c) {
+    return c != END && c != delimiter && Character.isWhitespace((char) c);
+  }
+
+  private static boolean isStartOfLine(int c) {
+    return c == '\n' || c == '\r' || c == UNDEFINED;
+  }
+
+  private int trimTrailing(int start, int end) {
+    while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+      end--;
+    }
+    return end;
+  }
+
+  private int lineNumber() {
+    int line = 1;
+    for (int i = 0; i < pos && i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 >= value.length() || value.charAt(i + 1) != '\n'))) {
+        line++;
+      }
+    }
+    return line;
+  }
+}
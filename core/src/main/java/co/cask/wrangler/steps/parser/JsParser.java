@@ -25,19 +25,29 @@ import co.cask.wrangler.dq.TypeInference;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
 import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A JSON Parser Stage for parsing the provided {@link Record} based on the configuration.
@@ -57,6 +67,15 @@ public class JsParser extends AbstractStep {
   // JSON parser.
   private static final JsonParser parser = new JsonParser();
 
+  // Column name of the object being flattened, reused as the prefix of the column names of its fields.
+  private final StringBuilder path = new StringBuilder();
+
+  // Names of the fields seen in each of the objects being flattened, by nesting level.
+  private final List<Set<String>> seen = new ArrayList<>();
+
+  // Values replaced while flattening, as index followed by the previous value, to be restored on fallback.
+  private final List<Object> replaced = new ArrayList<>();
+
   public JsParser(int lineno, String detail, String col, int maxDepth) {
     super(lineno, detail);
     this.col = col;
@@ -89,8 +108,17 @@ public class JsParser extends AbstractStep {
         try {
           JsonElement element = null;
           if(value instanceof String) {
-            String document = (String) value;
-            element = parser.parse(document.trim());
+            String document = ((String) value).trim();
+            if (document.startsWith("{")) {
+              record.remove(idx);
+              if (!stream(document, record)) {
+                // A field is repeated within an object, the tree of the document is flattened instead.
+                flattenJson(parser.parse(document).getAsJsonObject(), col, 1, maxDepth, record);
+              }
+              results.add(record);
+              continue;
+            }
+            element = parser.parse(document);
           } else if (value instanceof JsonObject || value instanceof JsonArray) {
             element = (JsonElement) value;
           } else {
@@ -127,6 +155,124 @@ public class JsParser extends AbstractStep {
     return results;
   }
 
+  /**
+   * Flattens a JSON object straight from the document, without building the tree of the document. Only the
+   * values beyond 'maxDepth' and arrays are built as trees, as they are added to the record as such.
+   *
+   * <p>
+   *   Fields repeated within an object replace the value of the first one in the tree, hence when a field is
+   *   repeated the record is restored and false is returned, for the tree to be flattened instead.
+   * </p>
+   *
+   * @param document holding the JSON object.
+   * @param record to which the flattened fields are added.
+   * @return true if the object was flattened, false if the record was restored.
+   */
+  private boolean stream(String document, Record record) {
+    int length = record.length();
+    replaced.clear();
+    path.setLength(0);
+    path.append(col);
+    JsonReader reader = new JsonReader(new StringReader(document));
+    reader.setLenient(true);
+    try {
+      if (!flatten(reader, 1, 0, record)) {
+        while (record.length() > length) {
+          record.remove(record.length() - 1);
+        }
+        for (int i = replaced.size() - 2; i >= 0; i -= 2) {
+          record.setValue((Integer) replaced.get(i), replaced.get(i + 1));
+        }
+        return false;
+      }
+      if (reader.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonSyntaxException("Did not consume the entire document.");
+      }
+      return true;
+    } catch (MalformedJsonException e) {
+      throw new JsonSyntaxException(e);
+    } catch (IOException e) {
+      throw new JsonIOException(e);
+    }
+  }
+
+  /**
+   * Flattens the object the reader is at, the same way {@link #flattenJson(JsonObject, String, int, int, Record)}
+   * flattens the tree of the object. The column name of the object is held in {@link #path}.
+   *
+   * @return false if a field is repeated within an object.
+   */
+  private boolean flatten(JsonReader reader, int depth, int level, Record record) throws IOException {
+    if (depth > maxDepth) {
+      JsonElement element = parser.parse(reader);
+      String name = path.toString();
+      int idx = record.find(name);
+      if (idx != -1) {
+        replaced.add(idx);
+        replaced.add(record.getValue(idx));
+        record.setValue(idx, element);
+      } else {
+        record.add(name, element);
+      }
+      return true;
+    }
+
+    if (seen.size() == level) {
+      seen.add(new HashSet<String>());
+    }
+    Set<String> names = seen.get(level);
+    names.clear();
+
+    int prefix = path.length();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String key = reader.nextName();
+      if (!names.add(key)) {
+        return false;
+      }
+      path.setLength(prefix);
+      path.append('_').append(key);
+      switch (reader.peek()) {
+        case BEGIN_OBJECT:
+          if (!flatten(reader, depth++, level + 1, record)) {
+            return false;
+          }
+          break;
+        case BEGIN_ARRAY:
+          record.add(path.toString(), parser.parse(reader));
+          break;
+        case STRING:
+          record.add(path.toString(), reader.nextString());
+          break;
+        case NUMBER:
+          record.add(path.toString(), toNumber(reader.nextString()));
+          break;
+        case BOOLEAN:
+          record.add(path.toString(), reader.nextBoolean());
+          break;
+        case NULL:
+          reader.nextNull();
+          record.add(path.toString(), JsonNull.INSTANCE);
+          break;
+        default:
+          throw new MalformedJsonException("Unexpected " + reader.peek());
+      }
+    }
+    reader.endObject();
+    path.setLength(prefix);
+    return true;
+  }
+
+  /**
+   * Converts a JSON number the same way {@link #getValue(JsonPrimitive)} converts numbers parsed into a tree.
+   */
+  private static Object toNumber(String number) {
+    if (TypeInference.isInteger(number)) {
+      return new BigInteger(number).longValue();
+    }
+    return new BigDecimal(number).doubleValue();
+  }
+
   /**
    * Recursively flattens JSON until the 'maxDepth' is reached.
    *
@@ -138,7 +284,7 @@ public class JsParser extends AbstractStep {
    */
   public static void flattenJson(JsonObject root, String field, int depth, int maxDepth, Record record) {
     if (depth > maxDepth) {
-      record.addOrSet(String.format("%s", field), root);
+      record.addOrSet(field, root);
       return;
     }
 
@@ -148,10 +294,9 @@ public class JsParser extends AbstractStep {
       String key = next.getKey();
       JsonElement element = next.getValue();
       if (element instanceof JsonObject) {
-        flattenJson(element.getAsJsonObject(),
-                    String.format("%s_%s", field, key), depth++, maxDepth, record);
+        flattenJson(element.getAsJsonObject(), field + "_" + key, depth++, maxDepth, record);
       } else {
-        record.add(String.format("%s_%s", field, key), getValue(element));
+        record.add(field + "_" + key, getValue(element));
       }
     }
   }
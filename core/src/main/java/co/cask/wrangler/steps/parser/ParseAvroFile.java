@@ -16,11 +16,12 @@
 
 package co.cask.wrangler.steps.parser;
 
-import co.cask.wrangler.api.AbstractStep;
+import co.cask.wrangler.api.AbstractStreamingStep;
 import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
+import com.google.common.collect.AbstractIterator;
 import com.google.gson.Gson;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileReader;
@@ -31,7 +32,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -43,7 +45,7 @@ import java.util.Map;
   usage = "parse-as-avro-file <column>",
   description = "Parses as AVRO File record."
 )
-public class ParseAvroFile extends AbstractStep {
+public class ParseAvroFile extends AbstractStreamingStep {
   private static final Logger LOG = LoggerFactory.getLogger(ParseAvroFile.class);
   private final String column;
   private final Gson gson;
@@ -55,47 +57,60 @@ public class ParseAvroFile extends AbstractStep {
   }
 
   /**
-   * Executes a wrangle step on single {@link Record} and return an array of wrangled {@link Record}.
+   * Executes a wrangle step on single {@link Record}, reading the records of the AVRO file
+   * as they are iterated over.
    *
-   * @param records  Input {@link Record} to be wrangled by this step.
+   * @param record  Input {@link Record} to be wrangled by this step.
    * @param context {@link PipelineContext} passed to each step.
-   * @return Wrangled {@link Record}.
+   * @return Iterator over a {@link Record} for each of the records in the file.
    */
   @Override
-  public List<Record> execute(List<Record> records, final PipelineContext context) throws StepException {
-    List<Record> results = new ArrayList<>();
-    for (Record record : records) {
-      int idx = record.find(column);
-      if (idx != -1) {
-        Object object = record.getValue(idx);
-        if (object instanceof byte[]) {
-          DataFileReader<GenericRecord> reader = null;
-          try {
-            reader =
-              new DataFileReader<>(new SeekableByteArrayInput((byte[]) object),
-                                                new GenericDatumReader<GenericRecord>());
-            while(reader.hasNext()) {
-              Record newRecord = new Record();
-              add(reader.next(), newRecord, null);
-              results.add(newRecord);
-            }
-          } catch (IOException e) {
-            throw new StepException(toString() + " : Failed to parse Avro data file." + e.getMessage());
-          } finally {
-            if (reader != null) {
-              try {
-                reader.close();
-              } catch (IOException e) {
-                // Nothing can be done.
-              }
-            }
+  public Iterator<Record> stream(Record record, final PipelineContext context) throws StepException {
+    int idx = record.find(column);
+    if (idx == -1) {
+      return Collections.emptyIterator();
+    }
+
+    Object object = record.getValue(idx);
+    if (!(object instanceof byte[])) {
+      throw new StepException(toString() + " : column " + column + " should be of type byte array avro file.");
+    }
+
+    final DataFileReader<GenericRecord> reader;
+    try {
+      reader = new DataFileReader<>(new SeekableByteArrayInput((byte[]) object),
+                                    new GenericDatumReader<GenericRecord>());
+    } catch (IOException e) {
+      throw new StepException(toString() + " : Failed to parse Avro data file." + e.getMessage());
+    }
+
+    return new AbstractIterator<Record>() {
+      @Override
+      protected Record computeNext() {
+        boolean done = true;
+        try {
+          if (!reader.hasNext()) {
+            return endOfData();
+          }
+          Record newRecord = new Record();
+          add(reader.next(), newRecord, null);
+          done = false;
+          return newRecord;
+        } finally {
+          if (done) {
+            close(reader);
           }
-        } else {
-          throw new StepException(toString() + " : column " + column + " should be of type byte array avro file.");
         }
       }
+    };
+  }
+
+  private static void close(DataFileReader<GenericRecord> reader) {
+    try {
+      reader.close();
+    } catch (IOException e) {
+      // Nothing can be done.
     }
-    return results;
   }
 
   /**
@@ -16,26 +16,33 @@
 
 package co.cask.wrangler.steps.parser;
 
-import co.cask.wrangler.api.AbstractStep;
+import co.cask.wrangler.api.AbstractStreamingStep;
 import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
+import co.cask.wrangler.api.StreamException;
 import co.cask.wrangler.api.Usage;
 import co.cask.wrangler.steps.transformation.functions.Types;
-import com.google.common.io.Closeables;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.google.common.collect.AbstractIterator;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  * A step to parse Excel files.
@@ -45,8 +52,17 @@ import java.util.List;
   usage = "parse-as-excel <column> [<sheet number | sheet name>]",
   description = "Parses column as Excel file."
 )
-public class ParseExcel extends AbstractStep {
+public class ParseExcel extends AbstractStreamingStep {
   private static final Logger LOG = LoggerFactory.getLogger(ParseExcel.class);
+
+  // Reads the parts of the workbook, without resolving any external entities.
+  private static final XMLInputFactory XML = XMLInputFactory.newInstance();
+
+  static {
+    XML.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    XML.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
+
   private final String column;
   private final String sheet;
 
@@ -61,89 +77,256 @@ public class ParseExcel extends AbstractStep {
   }
 
   /**
-   * Executes a wrangle step on single {@link Record} and return an array of wrangled {@link Record}.
+   * Executes a wrangle step on single {@link Record}, creating the records for the rows of the
+   * sheet as they are iterated over.
    *
-   * @param records  Input {@link Record} to be wrangled by this step.
+   * @param record  Input {@link Record} to be wrangled by this step.
    * @param context {@link PipelineContext} passed to each step.
-   * @return Wrangled {@link Record}.
+   * @return Iterator over a {@link Record} for each of the rows in the sheet.
    */
   @Override
-  public List<Record> execute(List<Record> records, final PipelineContext context) throws StepException {
-    List<Record> results = new ArrayList<>();
-    ByteArrayInputStream input = null;
+  public Iterator<Record> stream(Record record, final PipelineContext context) throws StepException {
+    int idx = record.find(column);
+    if (idx == -1) {
+      return Collections.emptyIterator();
+    }
+
+    Object object = record.getValue(idx);
+    byte[] bytes = null;
+    if (object instanceof byte[]) {
+      bytes = (byte[]) object;
+    } else if (object instanceof ByteBuffer) {
+      ByteBuffer buffer = (ByteBuffer) object;
+      bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+    } else {
+      throw new StepException(toString() + " : column " + column + " is not byte array or byte buffer.");
+    }
+
     try {
-      for (Record record : records) {
-        int idx = record.find(column);
-        if (idx != -1) {
-          Object object = record.getValue(idx);
-          byte[] bytes = null;
-          if (object instanceof byte[]) {
-            bytes = (byte[]) object;
-          } else if (object instanceof ByteBuffer) {
-            ByteBuffer buffer = (ByteBuffer) object;
-            bytes = new byte[buffer.remaining()];
-            buffer.get(bytes);
-          } else {
-            throw new StepException(toString() + " : column " + column + " is not byte array or byte buffer.");
-          }
+      return new Rows(OPCPackage.open(new ByteArrayInputStream(bytes)));
+    } catch (IOException | OpenXML4JException | SAXException | XMLStreamException e) {
+      throw new StepException(toString() + " Issue parsing excel file. " + e.getMessage());
+    }
+  }
 
-          if (bytes != null) {
-            input = new ByteArrayInputStream(bytes);
-            XSSFWorkbook book = new XSSFWorkbook(input);
-            XSSFSheet excelsheet;
-            if (Types.isInteger(sheet)) {
-              excelsheet = book.getSheetAt(Integer.parseInt(sheet));
-            } else {
-              excelsheet = book.getSheet(sheet);
-            }
+  /**
+   * Reads the rows of the sheet from the XML of the sheet as they are iterated over, rather than
+   * loading the whole workbook. Only the shared strings of the workbook are held in memory.
+   */
+  private final class Rows extends AbstractIterator<Record> {
+    private final OPCPackage pkg;
+    private final ReadOnlySharedStringsTable strings;
+    private final XMLStreamReader reader;
+    // Index of the last row of the sheet.
+    private final int last;
+    private int rows = 0;
 
-            if (excelsheet == null) {
-              throw new StepException(
-                String.format("Failed to extract sheet '%s' from the excel. Sheet '%s' does not exist.", sheet, sheet)
-              );
-            }
+    Rows(OPCPackage pkg) throws StepException, IOException, OpenXML4JException, SAXException, XMLStreamException {
+      this.pkg = pkg;
+      boolean opened = false;
+      try {
+        XSSFReader xssf = new XSSFReader(pkg);
+        // Phonetic runs are not part of the text of the cells.
+        this.strings = new ReadOnlySharedStringsTable(pkg, false);
+        String id = sheet(xssf);
+        this.last = lastRow(XML.createXMLStreamReader(xssf.getSheet(id)));
+        this.reader = XML.createXMLStreamReader(xssf.getSheet(id));
+        opened = true;
+      } finally {
+        if (!opened) {
+          pkg.revert();
+        }
+      }
+    }
 
-            int last = excelsheet.getLastRowNum();
-
-            Iterator<Row> it = excelsheet.iterator();
-            int rows = 0;
-            while (it.hasNext()) {
-              Row row = it.next();
-              Iterator<Cell> cellIterator = row.cellIterator();
-              Record newRecord = new Record();
-              newRecord.add("fwd", rows);
-              newRecord.add("bkd", last - rows - 1);
-              while (cellIterator.hasNext()) {
-                Cell cell = cellIterator.next();
-                String name = columnName(cell.getAddress().getColumn());
-                switch (cell.getCellTypeEnum()) {
-                  case STRING:
-                    newRecord.add(name, cell.getStringCellValue());
-                    break;
-
-                  case NUMERIC:
-                    newRecord.add(name, cell.getNumericCellValue());
-                    break;
-
-                  case BOOLEAN:
-                    newRecord.add(name, cell.getBooleanCellValue());
-                    break;
-                }
+    /**
+     * Finds the relationship id of the sheet to be parsed, by its position or its name in the workbook.
+     */
+    private String sheet(XSSFReader xssf) throws StepException, IOException, InvalidFormatException,
+      XMLStreamException {
+      int index = Types.isInteger(sheet) ? Integer.parseInt(sheet) : -1;
+      XMLStreamReader workbook = XML.createXMLStreamReader(xssf.getWorkbookData());
+      try {
+        int i = 0;
+        while (workbook.hasNext()) {
+          if (workbook.next() != XMLStreamConstants.START_ELEMENT || !"sheet".equals(workbook.getLocalName())) {
+            continue;
+          }
+          if (i == index || (index == -1 && sheet.equalsIgnoreCase(workbook.getAttributeValue(null, "name")))) {
+            for (int j = 0; j < workbook.getAttributeCount(); ++j) {
+              if ("id".equals(workbook.getAttributeLocalName(j))) {
+                return workbook.getAttributeValue(j);
               }
-              results.add(newRecord);
-              rows++;
             }
           }
+          i++;
         }
+      } finally {
+        workbook.close();
       }
-    } catch (IOException e) {
-      throw new StepException(toString() + " Issue parsing excel file. " + e.getMessage());
-    } finally {
-      if (input != null) {
-        Closeables.closeQuietly(input);
+      throw new StepException(
+        String.format("Failed to extract sheet '%s' from the excel. Sheet '%s' does not exist.", sheet, sheet)
+      );
+    }
+
+    @Override
+    protected Record computeNext() {
+      boolean done = true;
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(reader.getLocalName())) {
+            Record newRecord = row();
+            done = false;
+            return newRecord;
+          }
+        }
+        return endOfData();
+      } catch (XMLStreamException | RuntimeException e) {
+        throw new StreamException(
+          new StepException(ParseExcel.this.toString() + " Issue parsing excel file. " + e.getMessage())
+        );
+      } finally {
+        if (done) {
+          close();
+        }
+      }
+    }
+
+    /**
+     * Creates a record from the cells of the row the reader is positioned at.
+     */
+    private Record row() throws XMLStreamException {
+      Record newRecord = new Record();
+      newRecord.add("fwd", rows);
+      newRecord.add("bkd", last - rows - 1);
+      int column = -1;
+      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+        String ref = reader.getAttributeValue(null, "r");
+        column = ref == null ? column + 1 : new CellReference(ref).getCol();
+        Object value = cell(reader.getAttributeValue(null, "t"));
+        if (value != null) {
+          newRecord.add(columnName(column), value);
+        }
       }
+      rows++;
+      return newRecord;
+    }
+
+    /**
+     * Reads the value of the cell the reader is positioned at, the way {@link org.apache.poi.ss.usermodel.Cell}
+     * exposes it: strings, numbers and booleans, formulas and blank or error cells being skipped.
+     *
+     * @param type of the cell.
+     * @return value of the cell, null if it is skipped.
+     */
+    private Object cell(String type) throws XMLStreamException {
+      String value = null;
+      boolean formula = false;
+      while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case "v":
+            value = reader.getElementText();
+            break;
+
+          case "is":
+            value = text();
+            break;
+
+          case "f":
+            formula = true;
+            skip();
+            break;
+
+          default:
+            skip();
+            break;
+        }
+      }
+      if (formula || value == null) {
+        return null;
+      }
+      if (type == null || "n".equals(type)) {
+        return value.isEmpty() ? null : Double.parseDouble(value);
+      }
+      switch (type) {
+        case "s":
+          return strings.getEntryAt(Integer.parseInt(value));
+        case "str":
+        case "inlineStr":
+          return value;
+        case "b":
+          return "1".equals(value) || "true".equalsIgnoreCase(value);
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * Concatenates the text of an inline string, including the text of its runs but not of its phonetic runs.
+     */
+    private String text() throws XMLStreamException {
+      StringBuilder text = new StringBuilder();
+      int depth = 1;
+      while (depth > 0) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          if ("t".equals(reader.getLocalName())) {
+            text.append(reader.getElementText());
+          } else if ("rPh".equals(reader.getLocalName())) {
+            skip();
+          } else {
+            depth++;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+        }
+      }
+      return text.toString();
+    }
+
+    /**
+     * Skips the element the reader is positioned at, along with its children.
+     */
+    private void skip() throws XMLStreamException {
+      int depth = 1;
+      while (depth > 0) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          depth--;
+        }
+      }
+    }
+
+    private void close() {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        // Nothing can be done.
+      }
+      pkg.revert();
+    }
+  }
+
+  /**
+   * Scans the sheet for the index of its last row, as the dimension recorded in the sheet is not
+   * always accurate.
+   */
+  private static int lastRow(XMLStreamReader reader) throws XMLStreamException {
+    try {
+      int last = -1;
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(reader.getLocalName())) {
+          String ref = reader.getAttributeValue(null, "r");
+          last = ref == null ? last + 1 : Integer.parseInt(ref) - 1;
+        }
+      }
+      return Math.max(last, 0);
+    } finally {
+      reader.close();
     }
-    return results;
   }
 
   private String columnName(int number) {
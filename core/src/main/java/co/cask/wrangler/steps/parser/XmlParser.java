@@ -17,6 +17,7 @@
 package co.cask.wrangler.steps.parser;
 
 import co.cask.wrangler.api.AbstractStep;
+import co.cask.wrangler.api.ErrorRecordException;
 import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
@@ -33,6 +34,11 @@ import java.util.List;
  * A XML Parser.
  *
  * <p>
+ *   A {@link VTDGen} is kept for every thread and reused for all the documents the thread parses.
+ *   Documents that are not well formed are sent to error.
+ * </p>
+ *
+ * <p>
  *   TODO: This code has to be moved out into a plugin due to VTDNav once we have
  *   the plugin framework.
  * </p>
@@ -43,9 +49,16 @@ import java.util.List;
   description = "Parses a column as XML."
 )
 public class XmlParser extends AbstractStep {
+  // Parser of each thread, as a parser is not thread-safe.
+  private static final ThreadLocal<VTDGen> PARSERS = new ThreadLocal<VTDGen>() {
+    @Override
+    protected VTDGen initialValue() {
+      return new VTDGen();
+    }
+  };
+
   // Column within the input row that needs to be parsed as CSV
   private String col;
-  private final VTDGen vg = new VTDGen();
 
 
   public XmlParser(int lineno, String detail, String col) {
@@ -62,8 +75,8 @@ public class XmlParser extends AbstractStep {
    */
   @Override
   public List<Record> execute(List<Record> records, PipelineContext context)
-    throws StepException {
-
+    throws StepException, ErrorRecordException {
+    VTDGen vg = PARSERS.get();
     for (Record record : records) {
       int idx = record.find(col);
       if (idx == -1) {
@@ -81,7 +94,9 @@ public class XmlParser extends AbstractStep {
         try {
           vg.parse(true);
         } catch (ParseException e) {
-          e.printStackTrace();
+          throw new ErrorRecordException(
+            String.format("%s : Failed to parse column '%s' as XML. %s", toString(), col, e.getMessage()), 2
+          );
         }
         VTDNav vn = vg.getNav();
         record.setValue(idx, vn);
@@ -23,11 +23,9 @@ import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
 import co.cask.wrangler.steps.transformation.JexlHelper;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
+import co.cask.wrangler.steps.transformation.RecordJexlContext;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.List;
 
@@ -41,15 +39,15 @@ import java.util.List;
 )
 public class Fail extends AbstractStep {
   private final String condition;
-  private final JexlEngine engine;
   private final JexlScript script;
+  private final RecordJexlContext ctx;
 
   public Fail(int lineno, String detail, String condition) {
     super(lineno, detail);
     this.condition = condition;
     // Create and build the script.
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(condition);
+    script = JexlHelper.compile(condition);
+    ctx = new RecordJexlContext(script);
   }
 
   /**
@@ -64,12 +62,8 @@ public class Fail extends AbstractStep {
   public List<Record> execute(List<Record> records, PipelineContext context)
     throws StepException {
     for (Record record : records) {
-      // Move the fields from the record into the context.
-      JexlContext ctx = new MapContext();
-      ctx.set("this", record);
-      for (int i = 0; i < record.length(); ++i) {
-        ctx.set(record.getColumn(i), record.getValue(i));
-      }
+      // Binds the record to the context.
+      ctx.bind(record, null, null);
 
       // Execution of the script / expression based on the record data
       // mapped into context.
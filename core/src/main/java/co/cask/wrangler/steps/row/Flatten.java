@@ -16,16 +16,17 @@
 
 package co.cask.wrangler.steps.row;
 
-import co.cask.wrangler.api.AbstractStep;
+import co.cask.wrangler.api.AbstractStreamingStep;
 import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
 import co.cask.wrangler.steps.parser.JsParser;
+import com.google.common.collect.AbstractIterator;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -36,63 +37,63 @@ import java.util.List;
   usage = "flatten <column>[,<column>*]",
   description = "Separates array elements of one or more columns into indvidual records, copying the other columns"
 )
-public class Flatten extends AbstractStep {
+public class Flatten extends AbstractStreamingStep {
   // Column within the input row that needs to be parsed as Json
   private String[] columns;
-  private int[] locations;
-  private int count = 0;
 
   public Flatten(int lineno, String detail, String[] columns) {
     super(lineno, detail);
     this.columns = columns;
-    this.locations = new int[columns.length];
   }
 
   /**
    * Flattens a record based on the columns specified to be flattened.
    *
-   * @param records Input {@link Record} to be wrangled by this step.
+   * @param record Input {@link Record} to be wrangled by this step.
    * @param context Specifies the context of the pipeline.
-   * @return New Row containing multiple columns based on CSV parsing.
+   * @return Iterator over a record for each of the elements of the columns flattened.
    * @throws StepException In case CSV parsing generates more record.
    */
   @Override
-  public List<Record> execute(List<Record> records, PipelineContext context) throws StepException {
-    List<Record> results = new ArrayList<>();
+  public Iterator<Record> stream(final Record record, PipelineContext context) throws StepException {
+    // Find the location of the columns to be flatten within the record.
+    final int count = columns.length;
+    final int[] locations = new int[count];
+    for (int i = 0; i < count; ++i) {
+      locations[i] = record.find(columns[i]);
+    }
 
-    // Iterate through the records.
-    for (Record record : records) {
-      count = 0;
-      // Only once find the location of the columns to be flatten within
-      // the record. It's assumed that all records to passed to this
-      // instance are same.
-      for (String column : columns) {
-        locations[count] = record.find(column);
-        ++count;
-      }
-      // For each record we find the maximum number of
-      // values in each of the columns specified to be
-      // flattened.
-      int max = Integer.MIN_VALUE;
-      for (int i = 0; i < count; ++i) {
-        if (locations[i] != -1) {
-          Object value = record.getValue(locations[i]);
-          int m = -1;
-          if (value instanceof JsonArray) {
-            m = ((JsonArray) value).size();
-          } else if (value instanceof List){
-            m = ((List) value).size();
-          } else {
-            m = 1;
-          }
-          if (m > max) {
-            max = m;
-          }
+    // For each record we find the maximum number of
+    // values in each of the columns specified to be
+    // flattened.
+    int m = Integer.MIN_VALUE;
+    for (int i = 0; i < count; ++i) {
+      if (locations[i] != -1) {
+        Object value = record.getValue(locations[i]);
+        int size = -1;
+        if (value instanceof JsonArray) {
+          size = ((JsonArray) value).size();
+        } else if (value instanceof List){
+          size = ((List) value).size();
+        } else {
+          size = 1;
+        }
+        if (size > m) {
+          m = size;
         }
       }
+    }
+    final int max = m;
+
+    // We iterate through the arrays and populate all the columns.
+    return new AbstractIterator<Record>() {
+      private int k = 0;
 
-      // We iterate through the arrays and populate all the columns.
-      for(int k = 0; k < max; ++k) {
+      @Override
+      protected Record computeNext() {
+        if (k >= max) {
+          return endOfData();
+        }
         Record r = new Record(record);
         for (int i = 0; i < count; ++i) {
           if (locations[i] != -1) {
@@ -128,10 +129,9 @@ public class Flatten extends AbstractStep {
             r.addOrSet(columns[i], null);
           }
         }
-        results.add(r);
+        k++;
+        return r;
       }
-    }
-    return results;
+    };
   }
-
 }
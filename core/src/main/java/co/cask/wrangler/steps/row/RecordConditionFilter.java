@@ -22,11 +22,9 @@ import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
 import co.cask.wrangler.steps.transformation.JexlHelper;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
+import co.cask.wrangler.steps.transformation.RecordJexlContext;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -47,8 +45,8 @@ import java.util.List;
 )
 public class RecordConditionFilter extends AbstractStep {
   private final String condition;
-  private final JexlEngine engine;
   private final JexlScript script;
+  private final RecordJexlContext ctx;
   private final boolean isTrue;
 
   public RecordConditionFilter(int lineno, String detail, String condition, boolean isTrue) {
@@ -56,8 +54,8 @@ public class RecordConditionFilter extends AbstractStep {
     this.condition = condition;
     this.isTrue = isTrue;
     // Create and build the script.
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(condition);
+    script = JexlHelper.compile(condition);
+    ctx = new RecordJexlContext(script);
   }
 
   /**
@@ -72,17 +70,8 @@ public class RecordConditionFilter extends AbstractStep {
   public List<Record> execute(List<Record> records, PipelineContext context) throws StepException {
     List<Record> results = new ArrayList<>();
     for (Record record : records) {
-      // Move the fields from the record into the context.
-      JexlContext ctx = new MapContext();
-      for (int i = 0; i < record.length(); ++i) {
-        ctx.set(record.getColumn(i), record.getValue(i));
-      }
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
+      // Binds the record and transient variables to the context.
+      ctx.bind(record, context != null ? context.getTransientStore() : null, null);
 
       // Execution of the script / expression based on the record data
       // mapped into context.
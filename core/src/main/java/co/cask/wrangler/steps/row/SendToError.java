@@ -23,11 +23,9 @@ import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
 import co.cask.wrangler.steps.transformation.JexlHelper;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
+import co.cask.wrangler.steps.transformation.RecordJexlContext;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -48,15 +46,15 @@ import java.util.List;
 )
 public class SendToError extends AbstractStep {
   private final String condition;
-  private final JexlEngine engine;
   private final JexlScript script;
+  private final RecordJexlContext ctx;
 
   public SendToError(int lineno, String detail, String condition) {
     super(lineno, detail);
     this.condition = condition;
     // Create and build the script.
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(condition);
+    script = JexlHelper.compile(condition);
+    ctx = new RecordJexlContext(script);
   }
 
   /**
@@ -72,18 +70,8 @@ public class SendToError extends AbstractStep {
     throws StepException, ErrorRecordException {
     List<Record> results = new ArrayList<>();
     for (Record record : records) {
-      // Move the fields from the record into the context.
-      JexlContext ctx = new MapContext();
-      ctx.set("this", record);
-      for (int i = 0; i < record.length(); ++i) {
-        ctx.set(record.getColumn(i), record.getValue(i));
-      }
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
+      // Binds the record and transient variables to the context.
+      ctx.bind(record, context != null ? context.getTransientStore() : null, null);
 
       // Execution of the script / expression based on the record data
       // mapped into context.
@@ -16,14 +16,16 @@
 
 package co.cask.wrangler.steps.row;
 
-import co.cask.wrangler.api.AbstractStep;
+import co.cask.wrangler.api.AbstractStreamingStep;
 import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.google.common.collect.AbstractIterator;
+
+import java.util.Collections;
+import java.util.Iterator;
 
 /**
  * A Split on Stage for splitting the string into multiple {@link Record}s.
@@ -33,7 +35,7 @@ import java.util.List;
   usage = "split-to-rows <column> <separator>",
   description = "Splits a column into multiple rows, copies the rest of the columns."
 )
-public class SplitToRows extends AbstractStep {
+public class SplitToRows extends AbstractStreamingStep {
   // Column on which to apply mask.
   private final String column;
 
@@ -49,36 +51,39 @@ public class SplitToRows extends AbstractStep {
   /**
    * Splits a record into multiple records based on separator.
    *
-   * @param records Input {@link Record} to be wrangled by this step.
+   * @param record Input {@link Record} to be wrangled by this step.
    * @param context Specifies the context of the pipeline.
-   * @return A newly transformed {@link Record} with masked column.
-   * @throws StepException thrown when there is issue with masking
+   * @return Iterator over a record for each of the parts of the column split.
+   * @throws StepException thrown when the column is not of type String.
    */
   @Override
-  public List<Record> execute(List<Record> records, PipelineContext context) throws StepException {
-    List<Record> results = new ArrayList<>();
+  public Iterator<Record> stream(final Record record, PipelineContext context) throws StepException {
+    final int idx = record.find(column);
+    if (idx == -1) {
+      return Collections.emptyIterator();
+    }
+
+    Object object = record.getValue(idx);
+    if (object == null || !(object instanceof String)) {
+      throw new StepException(
+        String.format("%s : Invalid type '%s' of column '%s'. Should be of type String.", toString(),
+                      object != null ? object.getClass().getName() : "null", column)
+      );
+    }
 
-    for (Record record : records) {
-      int idx = record.find(column);
-      if (idx != -1) {
-        Object object = record.getValue(idx);
-        if (object != null && object instanceof String) {
-          String[] lines = ((String) object).split(regex);
-          for (String line : lines) {
-            Record r = new Record(record);
-            r.setValue(idx, line);
-            results.add(r);
-          }
-        } else {
-          throw new StepException(
-            String.format("%s : Invalid type '%s' of column '%s'. Should be of type String.", toString(),
-                          object != null ? object.getClass().getName() : "null", column)
-          );
+    final String[] lines = ((String) object).split(regex);
+    return new AbstractIterator<Record>() {
+      private int next = 0;
 
+      @Override
+      protected Record computeNext() {
+        if (next >= lines.length) {
+          return endOfData();
         }
+        Record r = new Record(record);
+        r.setValue(idx, lines[next++]);
+        return r;
       }
-    }
-    return results;
+    };
   }
 }
-
@@ -43,11 +43,15 @@ public class CatalogLookup extends AbstractStep {
   // Column from which the ICD code needs to be read.
   private final String column;
 
+  // Column to which the description is written.
+  private final String description;
+
   public CatalogLookup(int lineno, String detail, StaticCatalog catalog, String column) {
     super(lineno, detail);
     this.column = column;
     this.catalog = catalog;
     this.name = catalog.getCatalog().replaceAll("-", "_");
+    this.description = String.format("%s_%s_description", column, name);
   }
 
   /**
@@ -67,15 +71,15 @@ public class CatalogLookup extends AbstractStep {
           String code = (String) object;
           StaticCatalog.Entry value = catalog.lookup(code);
           if (value != null) {
-            record.add(String.format("%s_%s_description", column, name), value.getDescription());
+            record.add(description, value.getDescription());
           } else {
-            record.add(String.format("%s_%s_description", column, name), null);
+            record.add(description, null);
           }
         } else {
-          record.add(String.format("%s_%s_description", column, name), null);
+          record.add(description, null);
         }
       } else {
-        record.add(String.format("%s_%s_description", column, name), null);
+        record.add(description, null);
       }
     }
     return records;
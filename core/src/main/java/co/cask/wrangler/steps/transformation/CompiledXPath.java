@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.steps.transformation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.ximpleware.AutoPilot;
+import com.ximpleware.NavException;
+import com.ximpleware.VTDNav;
+import com.ximpleware.XPathParseException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * An XPath compiled once and evaluated on many parsed XML documents.
+ *
+ * <p>
+ *   Prefixes used in an XPath are resolved when it is compiled, against the namespaces declared in the
+ *   document. The namespaces declared in a document are scanned for once, however many XPaths are evaluated
+ *   on it, and the XPath is compiled once for every distinct set of namespaces, which is usually the same
+ *   for all the documents of a kind.
+ * </p>
+ */
+final class CompiledXPath {
+  // Maximum number of distinct sets of namespaces an XPath is kept compiled for.
+  private static final int MAX_SHAPES = 16;
+
+  // Namespaces declared in the documents, keyed by the document they were scanned from.
+  private static final Cache<VTDNav, Map<String, String>> NAMESPACES = CacheBuilder.newBuilder()
+    .weakKeys()
+    .maximumSize(1024)
+    .build();
+
+  private final String xpath;
+
+  // XPath compiled for each set of namespaces, the least recently used being dropped first.
+  private final Map<Map<String, String>, AutoPilot> compiled =
+    new LinkedHashMap<Map<String, String>, AutoPilot>(MAX_SHAPES, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Map<String, String>, AutoPilot> eldest) {
+        return size() > MAX_SHAPES;
+      }
+    };
+
+  CompiledXPath(String xpath) {
+    this.xpath = xpath;
+  }
+
+  /**
+   * Selects the XPath on a document, ready to be evaluated with {@link AutoPilot#evalXPath()}.
+   *
+   * @param nav navigator of the parsed document.
+   * @return pilot bound to the document.
+   */
+  AutoPilot select(VTDNav nav) throws XPathParseException, NavException {
+    Map<String, String> namespaces = namespaces(nav);
+    AutoPilot ap = compiled.get(namespaces);
+    if (ap == null) {
+      ap = new AutoPilot();
+      // Namespaces are declared in a table shared by all the pilots, and resolved when the XPath is compiled.
+      synchronized (AutoPilot.class) {
+        for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+          ap.declareXPathNameSpace(namespace.getKey(), namespace.getValue());
+        }
+        ap.selectXPath(xpath);
+      }
+      compiled.put(namespaces, ap);
+    }
+    ap.bind(nav);
+    ap.resetXPath();
+    return ap;
+  }
+
+  /**
+   * @return namespaces declared in the document, keyed by their prefix.
+   */
+  private static Map<String, String> namespaces(final VTDNav nav) throws NavException {
+    try {
+      return NAMESPACES.get(nav, new Callable<Map<String, String>>() {
+        @Override
+        public Map<String, String> call() throws Exception {
+          return scan(nav);
+        }
+      });
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof NavException) {
+        throw (NavException) e.getCause();
+      }
+      throw new NavException(e.getCause().getMessage());
+    }
+  }
+
+  private static Map<String, String> scan(VTDNav nav) throws NavException {
+    Map<String, String> namespaces = new LinkedHashMap<>();
+    int tokenCount = nav.getTokenCount();
+    for (int i = 0; i < tokenCount; i++) {
+      if (nav.startsWith(i, "xmlns:")) {
+        String token = nav.toNormalizedString(i);
+        namespaces.put(token.substring(token.indexOf(":") + 1), nav.toNormalizedString(i + 1));
+      }
+    }
+    return namespaces.isEmpty() ? Collections.<String, String>emptyMap() : namespaces;
+  }
+}
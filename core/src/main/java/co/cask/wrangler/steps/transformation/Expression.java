@@ -21,11 +21,8 @@ import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
-import org.apache.commons.jexl3.JexlContext;
-import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlException;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.util.HashMap;
 import java.util.List;
@@ -55,12 +52,12 @@ public class Expression extends AbstractStep {
   // The actual expression
   private final String expression;
 
-  // Handler to Jexl Engine.
-  private final JexlEngine engine;
-
   // Parsed / Compiled expression.
   private final JexlScript script;
 
+  // Context exposing the record being processed to the script.
+  private final RecordJexlContext ctx;
+
   // Properties associated with pipeline
   private final Map<String, Object> properties = new HashMap<>();
 
@@ -70,8 +67,8 @@ public class Expression extends AbstractStep {
     this.column = column;
     this.expression = expression;
     // Create and build the script.
-    engine = JexlHelper.getEngine();
-    script = engine.createScript(expression);
+    script = JexlHelper.compile(expression);
+    ctx = new RecordJexlContext(script);
   }
 
   /**
@@ -90,18 +87,8 @@ public class Expression extends AbstractStep {
     }
 
     for (Record record : records) {
-      // Move the fields from the record into the context.
-      JexlContext ctx = new MapContext(properties);
-      ctx.set("this", record);
-      for (int i = 0; i < record.length(); ++i) {
-        ctx.set(record.getColumn(i), record.getValue(i));
-      }
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
+      // Binds the record, transient variables and properties to the context.
+      ctx.bind(record, context != null ? context.getTransientStore() : null, properties);
 
       // Execution of the script / expression based on the record data
       // mapped into context.
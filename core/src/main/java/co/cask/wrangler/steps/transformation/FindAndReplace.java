@@ -21,8 +21,7 @@ import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
-import org.unix4j.Unix4j;
-import org.unix4j.builder.Unix4jCommandBuilder;
+import co.cask.wrangler.utils.SedExpression;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -38,11 +37,22 @@ import java.util.List;
 public class FindAndReplace extends AbstractStep {
   private final String pattern;
   private final String column;
+  // Compiled expression, null when the expression is not valid and values are left as is.
+  private final SedExpression sed;
 
   public FindAndReplace(int lineno, String detail, String column, String pattern) {
     super(lineno, detail);
     this.pattern = pattern.trim();
     this.column = column;
+    this.sed = compile(this.pattern);
+  }
+
+  private static SedExpression compile(String pattern) {
+    try {
+      return SedExpression.compile(pattern);
+    } catch (Exception e) {
+      return null;
+    }
   }
 
   /**
@@ -62,12 +72,9 @@ public class FindAndReplace extends AbstractStep {
         Object v = record.getValue(idx);
         // Operates only on String types.
         try {
-          if (v instanceof String) {
+          if (sed != null && v instanceof String) {
             String value = (String) v; // Safely converts to String.
-            Unix4jCommandBuilder builder = Unix4j.echo(value).sed(pattern);
-            if (builder.toExitValue() == 0) {
-              record.setValue(idx, builder.toStringResult());
-            }
+            record.setValue(idx, sed.apply(value));
           }
         } catch (Exception e) {
           // If there is any issue, we pass it on without any transformation.
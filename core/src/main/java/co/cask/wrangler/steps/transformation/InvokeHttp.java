@@ -17,14 +17,20 @@
 package co.cask.wrangler.steps.transformation;
 
 import co.cask.wrangler.api.AbstractStep;
+import co.cask.wrangler.api.BatchStep;
 import co.cask.wrangler.api.DirectiveParseException;
+import co.cask.wrangler.api.ErrorRecord;
+import co.cask.wrangler.api.ErrorRecordCollector;
 import co.cask.wrangler.api.ErrorRecordException;
 import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -33,40 +39,126 @@ import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.nio.charset.Charset;
+import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A step that invokes HTTP endpoint.
+ *
+ * <p>
+ *   All the steps share a pool of keep-alive connections, and the requests for the records passed to the
+ *   step together are sent concurrently, with at most {@value #CONNECTIONS_PROPERTY} requests in flight
+ *   within the JVM. Executors running micro-batches pass all the records of a micro-batch to the step as a
+ *   {@link BatchStep}, so that the records the endpoint fails for are sent to error on their own.
+ *   When {@value #BATCH_SIZE_PROPERTY} is greater
+ *   than one, the parameters of up to that many records are sent as a JSON array in a single request, to
+ *   which the endpoint responds with a JSON array of as many results. If a batch fails, its records are
+ *   requested one at a time so that the failure is attributed to the record that caused it.
+ * </p>
+ *
+ * <p>
+ *   Responses are cached by the url, headers and parameters they were requested with, in a cache shared by
+ *   all the steps, so that steps created again for the same directive, as the service does on every request,
+ *   reuse the responses of the steps before them. The number of responses cached is configured by
+ *   {@value #CACHE_SIZE_PROPERTY} and the number of seconds they are cached for by
+ *   {@value #CACHE_EXPIRY_PROPERTY}.
+ * </p>
+ *
+ * <p>
+ *   The connections and the request threads live as long as the class, which has no point at which they
+ *   could be closed, as the steps are never closed. Neither holds a thread once idle: the request threads
+ *   exit after {@value #IDLE_SECONDS} seconds without requests and idle connections are closed by the
+ *   requests that follow instead of by a background thread, so that nothing keeps the class loader of a
+ *   plugin that is redeployed from being collected.
+ * </p>
  */
 @Usage(
   directive = "invoke-http",
   usage = "invoke-http <url> <column>[,<column>*] <header>[,<header>*]",
   description = "[EXPERIMENTAL] Invokes an HTTP endpoint, passing columns as a JSON map (potentially slow)"
 )
-public class InvokeHttp extends AbstractStep {
+public class InvokeHttp extends AbstractStep implements BatchStep {
+  // System property to configure the maximum number of connections and requests in flight.
+  public static final String CONNECTIONS_PROPERTY = "wrangler.invoke-http.connections";
+  // System property to configure the number of responses cached, 0 disables the cache.
+  public static final String CACHE_SIZE_PROPERTY = "wrangler.invoke-http.cache.size";
+  // System property to configure the number of seconds responses are cached for.
+  public static final String CACHE_EXPIRY_PROPERTY = "wrangler.invoke-http.cache.expiry";
+  // System property to configure the number of records sent in a single request.
+  public static final String BATCH_SIZE_PROPERTY = "wrangler.invoke-http.batch.size";
+
+  private static final int DEFAULT_CONNECTIONS = 16;
+  private static final int DEFAULT_CACHE_SIZE = 1024;
+  private static final int DEFAULT_BATCH_SIZE = 1;
+  private static final long DEFAULT_CACHE_EXPIRY = 300;
+  // Seconds after which idle request threads exit and idle connections are closed.
+  private static final int IDLE_SECONDS = 30;
+
+  private static final Type RESULT_TYPE = new TypeToken<Map<String, Object>>() { }.getType();
+  private static final Type RESULTS_TYPE = new TypeToken<List<Map<String, Object>>>() { }.getType();
+
+  private static final PoolingHttpClientConnectionManager CONNECTIONS;
+  private static final CloseableHttpClient CLIENT;
+  private static final ThreadPoolExecutor REQUESTS;
+  // Responses keyed by the request they were received for, null when responses are not cached.
+  private static final Cache<ResponseKey, Map<String, Object>> RESPONSES;
+
+  static {
+    int connections = Math.max(1, Integer.getInteger(CONNECTIONS_PROPERTY, DEFAULT_CONNECTIONS));
+    CONNECTIONS = new PoolingHttpClientConnectionManager();
+    CONNECTIONS.setMaxTotal(connections);
+    CONNECTIONS.setDefaultMaxPerRoute(connections);
+    CLIENT = HttpClients.custom()
+      .setConnectionManager(CONNECTIONS)
+      .build();
+    REQUESTS = new ThreadPoolExecutor(
+      connections, connections, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+      new ThreadFactoryBuilder().setNameFormat("wrangler-http-%d").setDaemon(true).build()
+    );
+    REQUESTS.allowCoreThreadTimeOut(true);
+    int cacheSize = Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+    RESPONSES = cacheSize > 0 ? CacheBuilder.newBuilder()
+      .maximumSize(cacheSize)
+      .expireAfterWrite(Long.getLong(CACHE_EXPIRY_PROPERTY, DEFAULT_CACHE_EXPIRY), TimeUnit.SECONDS)
+      .<ResponseKey, Map<String, Object>>build() : null;
+  }
+
   private final String url;
   private final List<String> columns;
   private final Gson gson = new Gson();
   private final Map<String, String> headers = new HashMap<>();
+  private final int batchSize;
 
   public InvokeHttp(int lineno, String detail, String url, List<String> columns, String hdrs)
     throws DirectiveParseException {
+    this(lineno, detail, url, columns, hdrs, Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE));
+  }
+
+  public InvokeHttp(int lineno, String detail, String url, List<String> columns, String hdrs,
+                    int batchSize) throws DirectiveParseException {
     super(lineno, detail);
     this.url = url;
     this.columns = columns;
+    this.batchSize = Math.max(1, batchSize);
     if (hdrs != null && !hdrs.isEmpty()) {
       String[] parsedHeaders = hdrs.split(",");
       for (String header : parsedHeaders) {
@@ -95,40 +187,218 @@ public class InvokeHttp extends AbstractStep {
   }
 
   /**
-   * Character based cut operations
+   * Invokes the HTTP endpoint for the records, adding the fields of the responses to them.
    *
    * @param records Input {@link Record} to be wrangled by this step.
    * @param context Specifies the context of the pipeline.
-   * @return Transformed {@link Record} in which the 'col' value is lower cased.
-   * @throws StepException thrown when type of 'col' is not STRING.
+   * @return Records with the fields of the responses added.
+   * @throws ErrorRecordException thrown with the reason the endpoint failed for the first record it failed for.
    */
   @Override
   public List<Record> execute(List<Record> records, PipelineContext context)
     throws StepException, ErrorRecordException {
-    for (Record record : records) {
-      Map<String, Object> parameters = new HashMap<>();
+    ErrorRecordCollector errors = new ErrorRecordCollector();
+    List<Record> results = execute(records, context, errors);
+    if (errors.size() > 0) {
+      ErrorRecord error = errors.get().get(0);
+      throw new ErrorRecordException(error.getMessage(), error.getCode());
+    }
+    return results;
+  }
+
+  /**
+   * Invokes the HTTP endpoint for the records, adding the fields of the responses to the records for which
+   * the endpoint succeeded and sending the others to error.
+   *
+   * @param records Input {@link Record} to be wrangled by this step.
+   * @param context Specifies the context of the pipeline.
+   * @param errors to which the records the endpoint failed for are added.
+   * @return Records for which the endpoint succeeded, with the fields of the responses added.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Record> execute(List<Record> records, PipelineContext context, ErrorRecordCollector errors)
+    throws StepException {
+    // Connections idle since the previous requests are closed, as there is no thread evicting them.
+    CONNECTIONS.closeExpiredConnections();
+    CONNECTIONS.closeIdleConnections(IDLE_SECONDS, TimeUnit.SECONDS);
+
+    // Records waiting for the response to each of the distinct parameters not cached.
+    Map<Map<String, Object>, List<Integer>> pending = new LinkedHashMap<>();
+    Object[] outcomes = new Object[records.size()];
+    for (int i = 0; i < records.size(); ++i) {
+      Record record = records.get(i);
+      Map<String, Object> parameter = new HashMap<>();
       for (String column : columns) {
         int idx = record.find(column);
         if (idx != -1) {
-          parameters.put(column, record.getValue(idx));
+          parameter.put(column, record.getValue(idx));
         }
       }
+      Map<String, Object> cached =
+        RESPONSES == null ? null : RESPONSES.getIfPresent(new ResponseKey(url, headers, parameter));
+      if (cached != null) {
+        outcomes[i] = cached;
+        continue;
+      }
+      List<Integer> waiting = pending.get(parameter);
+      if (waiting == null) {
+        waiting = new ArrayList<>(1);
+        pending.put(parameter, waiting);
+      }
+      waiting.add(i);
+    }
+
+    List<Map<String, Object>> requests = new ArrayList<>(pending.keySet());
+    List<Object> results = invoke(requests);
+    for (int i = 0; i < requests.size(); ++i) {
+      Object result = results.get(i);
+      if (RESPONSES != null && result instanceof Map) {
+        RESPONSES.put(new ResponseKey(url, headers, requests.get(i)), (Map<String, Object>) result);
+      }
+      for (int idx : pending.get(requests.get(i))) {
+        outcomes[idx] = result;
+      }
+    }
+
+    List<Record> wrangled = new ArrayList<>(records.size());
+    for (int i = 0; i < records.size(); ++i) {
+      Record record = records.get(i);
+      if (outcomes[i] instanceof Exception) {
+        // If there are any issues, they will be pushed on the error port.
+        errors.add(new ErrorRecord(record, ((Exception) outcomes[i]).getMessage(), 500));
+        continue;
+      }
+      Map<String, Object> result = (Map<String, Object>) outcomes[i];
+      for (Map.Entry<String, Object> entry : result.entrySet()) {
+        record.addOrSet(entry.getKey(), entry.getValue());
+      }
+      wrangled.add(record);
+    }
+    return wrangled;
+  }
+
+  /**
+   * Requests the results for the parameters, concurrently when there are more than one request to be sent.
+   *
+   * @return the result for each of the parameters, or the exception it failed with.
+   */
+  private List<Object> invoke(final List<Map<String, Object>> parameters) throws StepException {
+    if (parameters.size() <= 1 || batchSize >= parameters.size()) {
+      return invoke(parameters, 0, parameters.size());
+    }
+
+    List<Future<List<Object>>> futures = new ArrayList<>();
+    for (int i = 0; i < parameters.size(); i += batchSize) {
+      final int from = i;
+      final int to = Math.min(i + batchSize, parameters.size());
+      futures.add(REQUESTS.submit(new Callable<List<Object>>() {
+        @Override
+        public List<Object> call() throws Exception {
+          return invoke(parameters, from, to);
+        }
+      }));
+    }
+
+    List<Object> results = new ArrayList<>(parameters.size());
+    try {
+      for (Future<List<Object>> future : futures) {
+        results.addAll(future.get());
+      }
+    } catch (InterruptedException e) {
+      for (Future<List<Object>> future : futures) {
+        future.cancel(true);
+      }
+      Thread.currentThread().interrupt();
+      throw new StepException(toString() + " : interrupted while waiting for the responses.");
+    } catch (ExecutionException e) {
+      throw new StepException(toString() + " : " + e.getCause().getMessage(), e.getCause());
+    }
+    return results;
+  }
+
+  /**
+   * Requests the results for a range of the parameters, as a batch when there are more than one.
+   */
+  private List<Object> invoke(List<Map<String, Object>> parameters, int from, int to) {
+    List<Object> results = new ArrayList<>(to - from);
+    if (to - from > 1) {
       try {
-        Map<String, Object> result = InvokeHttp(url, parameters, headers);
-        for(Map.Entry<String, Object> entry : result.entrySet()) {
-          record.addOrSet(entry.getKey(), entry.getValue());
+        List<Map<String, Object>> batch = invoke(parameters.subList(from, to), RESULTS_TYPE);
+        if (batch != null && batch.size() == to - from) {
+          results.addAll(batch);
+          return results;
         }
       } catch (Exception e) {
-        // If there are any issues, they will be pushed on the error port.
-        throw new ErrorRecordException(e.getMessage(), 500);
+        // Records are requested one at a time, so that the failure is attributed to them.
+      }
+    }
+    for (int i = from; i < to; ++i) {
+      try {
+        Map<String, Object> result = invoke(parameters.get(i), RESULT_TYPE);
+        if (result == null) {
+          throw new ClientProtocolException("Response contains no content");
+        }
+        results.add(result);
+      } catch (Exception e) {
+        results.add(e);
+      }
+    }
+    return results;
+  }
+
+  private <T> T invoke(Object parameters, Type type) throws IOException {
+    byte[] body = gson.toJson(parameters).getBytes(StandardCharsets.UTF_8);
+    HttpPost post = new HttpPost(url);
+    post.addHeader("Content-type", "application/json; charset=UTF-8");
+    for (Map.Entry<String, String> entry : headers.entrySet()) {
+      post.addHeader(entry.getKey(), entry.getValue());
+    }
+    post.setEntity(new ByteArrayEntity(body));
+    return CLIENT.execute(post, new ServiceResponseHandler<T>(type));
+  }
+
+  /**
+   * Identifies a request by the endpoint it is sent to, with the headers and parameters it is sent with.
+   */
+  private static final class ResponseKey {
+    private final String url;
+    private final Map<String, String> headers;
+    private final Map<String, Object> parameters;
+
+    ResponseKey(String url, Map<String, String> headers, Map<String, Object> parameters) {
+      this.url = url;
+      this.headers = headers;
+      this.parameters = parameters;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ResponseKey)) {
+        return false;
       }
+      ResponseKey other = (ResponseKey) o;
+      return url.equals(other.url) && headers.equals(other.headers) && parameters.equals(other.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(url, headers, parameters);
     }
-    return records;
   }
 
-  private class ServiceResponseHandler implements ResponseHandler<Map<String, Object>> {
+  private final class ServiceResponseHandler<T> implements ResponseHandler<T> {
+    private final Type type;
+
+    ServiceResponseHandler(Type type) {
+      this.type = type;
+    }
+
     @Override
-    public Map<String, Object> handleResponse(HttpResponse response) throws ClientProtocolException, IOException {
+    public T handleResponse(HttpResponse response) throws ClientProtocolException, IOException {
       StatusLine statusLine = response.getStatusLine();
       HttpEntity entity = response.getEntity();
       if (statusLine.getStatusCode() >= 300) {
@@ -139,32 +409,8 @@ public class InvokeHttp extends AbstractStep {
       if (entity == null) {
         throw new ClientProtocolException("Response contains no content");
       }
-      Gson gson = new GsonBuilder().create();
-      Reader reader = new InputStreamReader(entity.getContent(), Charset.forName("UTF-8"));
-      Map<String, Object> v = gson.fromJson(reader, new TypeToken<Map<String, Object>>(){}.getType());
-      return v;
-    }
-  }
-
-  private Map<String, Object> InvokeHttp(String url, Map<String, Object> parameters,
-                                         Map<String, String> headers) throws IOException {
-    CloseableHttpClient client = null;
-    try {
-      String body = gson.toJson(parameters);
-      HttpPost post = new HttpPost(url);
-      post.addHeader("Content-type", "application/json; charset=UTF-8");
-      for (Map.Entry<String, String> entry : headers.entrySet()) {
-        post.addHeader(entry.getKey(), entry.getValue());
-      }
-      BasicHttpEntity entity = new BasicHttpEntity();
-      InputStream stream = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
-      entity.setContent(stream);
-      post.setEntity(entity);
-      client = HttpClients.createDefault();
-      return client.execute(post, new ServiceResponseHandler());
-    } finally {
-      if (client != null) {
-        client.close();
+      try (Reader reader = new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8)) {
+        return gson.fromJson(reader, type);
       }
     }
   }
@@ -23,29 +23,94 @@ import co.cask.wrangler.steps.transformation.functions.DataQuality;
 import co.cask.wrangler.steps.transformation.functions.Dates;
 import co.cask.wrangler.steps.transformation.functions.GeoFences;
 import co.cask.wrangler.steps.transformation.functions.JSON;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.commons.jexl3.JexlBuilder;
 import org.apache.commons.jexl3.JexlEngine;
+import org.apache.commons.jexl3.JexlException;
+import org.apache.commons.jexl3.JexlScript;
 import org.apache.commons.lang.StringUtils;
 
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Collection of registered functions for jexl context.
+ *
+ * <p>
+ *   A single {@link JexlEngine} is shared by all the steps within the JVM, so that the functions registered,
+ *   the introspection of the classes used within the expressions and the scripts compiled are shared as well.
+ *   The number of scripts cached can be configured using the system property {@value #CACHE_SIZE_PROPERTY}.
+ * </p>
  */
 public final class JexlHelper {
+  // System property to configure the number of scripts cached.
+  public static final String CACHE_SIZE_PROPERTY = "wrangler.jexl.cache.size";
 
-  /**
-   * @return configured {@link JexlEngine}
-   */
-  public static JexlEngine getEngine() {
-    return new JexlBuilder()
+  // Default number of scripts cached.
+  private static final int DEFAULT_CACHE_SIZE = 1024;
+
+  private static final JexlEngine ENGINE;
+  private static final Cache<String, JexlScript> SCRIPTS;
+
+  static {
+    int size = Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+    ENGINE = new JexlBuilder()
       .namespaces(getRegisteredFunctions())
       .silent(false)
-      .cache(10)
+      .cache(size)
       .strict(true)
       .create();
+    SCRIPTS = CacheBuilder.newBuilder()
+      .maximumSize(size)
+      .recordStats()
+      .build();
+  }
+
+  private JexlHelper() {
+    // Prevents instantiation of the helper.
+  }
+
+  /**
+   * @return configured {@link JexlEngine}, shared and thread-safe.
+   */
+  public static JexlEngine getEngine() {
+    return ENGINE;
+  }
+
+  /**
+   * Compiles an expression into a script, returning a cached script if the expression
+   * has been compiled before. Scripts are thread-safe and can be shared by steps.
+   *
+   * @param expression to be compiled.
+   * @return compiled {@link JexlScript}.
+   * @throws JexlException if the expression could not be parsed.
+   */
+  public static JexlScript compile(final String expression) {
+    try {
+      return SCRIPTS.get(expression, new Callable<JexlScript>() {
+        @Override
+        public JexlScript call() throws Exception {
+          return ENGINE.createScript(expression);
+        }
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * @return hit, miss and eviction statistics of the script cache.
+   */
+  public static CacheStats getCacheStats() {
+    return SCRIPTS.stats();
   }
 
   /**
@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.steps.transformation;
+
+import co.cask.wrangler.api.Record;
+import co.cask.wrangler.api.TransientStore;
+import org.apache.commons.jexl3.JexlContext;
+import org.apache.commons.jexl3.JexlScript;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A reusable {@link JexlContext} that reads the variables of a script straight from a {@link Record}.
+ *
+ * <p>
+ *   The free variables of the script are resolved once, when the context is created, and for
+ *   every record they are looked up lazily the first time the script refers to them. Variables
+ *   are resolved in the following order : variables assigned by the script, transient store variables,
+ *   columns of the record, the record itself as 'this' and lastly the properties of the pipeline.
+ * </p>
+ *
+ * <p>The context is bound to one record at a time and is not thread-safe.</p>
+ */
+public final class RecordJexlContext implements JexlContext {
+  // Name of the record itself within the script.
+  private static final String THIS = "this";
+
+  // Slot assigned to each of the free variables of the script.
+  private final Map<String, Integer> slots = new HashMap<>();
+
+  // Name, value and binding state of the free variables for current record.
+  private final String[] names;
+  private final Object[] values;
+  private final boolean[] defined;
+  private final long[] generations;
+
+  // Incremented for every record bound, invalidates the values resolved for the previous record.
+  private long generation;
+
+  // Variables assigned by the script that are not free variables.
+  private Map<String, Object> locals;
+
+  // Set by the last lookup, true if the variable was defined.
+  private boolean found;
+
+  private Record record;
+  private TransientStore store;
+  private Map<String, ?> properties;
+
+  public RecordJexlContext(JexlScript script) {
+    for (List<String> variable : script.getVariables()) {
+      // Variables like 'a.b.c' can resolve as 'a' or as the antish variable 'a.b' or 'a.b.c'.
+      StringBuilder name = new StringBuilder();
+      for (String fragment : variable) {
+        if (name.length() > 0) {
+          name.append('.');
+        }
+        name.append(fragment);
+        String key = name.toString();
+        if (!slots.containsKey(key)) {
+          slots.put(key, slots.size());
+        }
+      }
+    }
+    int size = slots.size();
+    names = new String[size];
+    for (Map.Entry<String, Integer> slot : slots.entrySet()) {
+      names[slot.getValue()] = slot.getKey();
+    }
+    values = new Object[size];
+    defined = new boolean[size];
+    generations = new long[size];
+  }
+
+  /**
+   * Binds the context to a record.
+   *
+   * @param record whose columns are exposed as variables.
+   * @param store transient store whose variables are exposed, can be null.
+   * @param properties pipeline properties exposed as variables, can be null.
+   * @return this context.
+   */
+  public RecordJexlContext bind(Record record, TransientStore store, Map<String, ?> properties) {
+    this.record = record;
+    this.store = store;
+    this.properties = properties;
+    this.generation++;
+    if (locals != null) {
+      locals.clear();
+    }
+    return this;
+  }
+
+  @Override
+  public Object get(String name) {
+    Integer slot = slots.get(name);
+    if (slot == null) {
+      if (locals != null && locals.containsKey(name)) {
+        return locals.get(name);
+      }
+      return lookup(name);
+    }
+    resolve(slot);
+    return values[slot];
+  }
+
+  @Override
+  public void set(String name, Object value) {
+    Integer slot = slots.get(name);
+    if (slot == null) {
+      if (locals == null) {
+        locals = new HashMap<>();
+      }
+      locals.put(name, value);
+      return;
+    }
+    values[slot] = value;
+    defined[slot] = true;
+    generations[slot] = generation;
+  }
+
+  @Override
+  public boolean has(String name) {
+    Integer slot = slots.get(name);
+    if (slot == null) {
+      if (locals != null && locals.containsKey(name)) {
+        return true;
+      }
+      lookup(name);
+      return found;
+    }
+    resolve(slot);
+    return defined[slot];
+  }
+
+  /**
+   * Resolves the value of a free variable for the record bound, once per record.
+   */
+  private void resolve(int slot) {
+    if (generations[slot] != generation) {
+      values[slot] = lookup(names[slot]);
+      defined[slot] = found;
+      generations[slot] = generation;
+    }
+  }
+
+  /**
+   * Looks up a variable in the transient store, record and properties.
+   *
+   * @param name of the variable.
+   * @return value of the variable, null if not defined.
+   */
+  private Object lookup(String name) {
+    found = true;
+    if (store != null && store.getVariables().contains(name)) {
+      return store.get(name);
+    }
+    if (record != null) {
+      int idx = find(record, name);
+      if (idx != -1) {
+        return record.getValue(idx);
+      }
+      if (THIS.equals(name)) {
+        return record;
+      }
+    }
+    if (properties != null && properties.containsKey(name)) {
+      return properties.get(name);
+    }
+    found = false;
+    return null;
+  }
+
+  /**
+   * Finds a column by its exact name, as variables are case sensitive.
+   */
+  private static int find(Record record, String name) {
+    int idx = record.find(name);
+    if (idx == -1 || name.equals(record.getColumn(idx))) {
+      return idx;
+    }
+    for (int i = 0; i < record.length(); ++i) {
+      if (name.equals(record.getColumn(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -25,13 +25,27 @@ import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.StepException;
 import co.cask.wrangler.api.Usage;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An AbstractStep that performs a lookup into a Table Dataset and adds the row values into the record.
+ *
+ * <p>
+ *   The distinct keys of the records passed to the step together are looked up at once, and the rows
+ *   looked up are cached decoded, so that keys that repeat across records are read and decoded once. The
+ *   number of rows cached is configured by {@value #CACHE_SIZE_PROPERTY} and the number of seconds they are
+ *   cached for by {@value #CACHE_EXPIRY_PROPERTY}.
+ * </p>
  */
 @Usage(
   directive = "table-lookup",
@@ -39,9 +53,18 @@ import java.util.Map;
   description = "Uses the given column as a key to perform a lookup into the specified table."
 )
 public class TableLookup extends AbstractStep {
+  // System property to configure the number of rows cached by each step, 0 disables the cache.
+  public static final String CACHE_SIZE_PROPERTY = "wrangler.table-lookup.cache.size";
+  // System property to configure the number of seconds rows are cached for.
+  public static final String CACHE_EXPIRY_PROPERTY = "wrangler.table-lookup.cache.expiry";
+
+  private static final int DEFAULT_CACHE_SIZE = 10000;
+  private static final long DEFAULT_CACHE_EXPIRY = 300;
 
   private final String column;
   private final String table;
+  // Rows decoded, keyed by the key they were looked up with, null when rows are not cached.
+  private final Cache<String, DecodedRow> rows;
 
   private boolean initialized;
   private co.cask.cdap.etl.api.lookup.TableLookup tableLookup;
@@ -51,6 +74,12 @@ public class TableLookup extends AbstractStep {
     this.column = column;
     this.table = table;
     this.initialized = false;
+    int size = Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+    this.rows = size > 0 ? CacheBuilder.newBuilder()
+      .maximumSize(size)
+      .expireAfterWrite(Long.getLong(CACHE_EXPIRY_PROPERTY, DEFAULT_CACHE_EXPIRY), TimeUnit.SECONDS)
+      .recordStats()
+      .<String, DecodedRow>build() : null;
   }
 
   private void ensureInitialized(PipelineContext context) throws StepException {
@@ -82,7 +111,9 @@ public class TableLookup extends AbstractStep {
   @Override
   public List<Record> execute(List<Record> records, PipelineContext context) throws StepException {
     ensureInitialized(context);
-    for (Record record : records) {
+    String[] keys = new String[records.size()];
+    for (int i = 0; i < keys.length; ++i) {
+      Record record = records.get(i);
       int idx = record.find(column);
       if (idx == -1) {
         throw new StepException(toString() + " : Column '" + column + "' does not exist in the record.");
@@ -94,11 +125,99 @@ public class TableLookup extends AbstractStep {
                         object != null ? object.getClass().getName() : "null", column)
         );
       }
-      Row lookedUpRow = tableLookup.lookup((String) object);
-      for (Map.Entry<byte[], byte[]> entry : lookedUpRow.getColumns().entrySet()) {
-        record.add(column + "_" + Bytes.toString(entry.getKey()), Bytes.toString(entry.getValue()));
+      keys[i] = (String) object;
+    }
+
+    Map<String, DecodedRow> decoded = lookup(keys, context);
+    for (int i = 0; i < keys.length; ++i) {
+      Record record = records.get(i);
+      DecodedRow row = decoded.get(keys[i]);
+      for (int j = 0; j < row.names.length; ++j) {
+        record.add(row.names[j], row.values[j]);
       }
     }
     return records;
   }
+
+  /**
+   * @return statistics of the rows cached, null if rows are not cached.
+   */
+  CacheStats stats() {
+    return rows == null ? null : rows.stats();
+  }
+
+  /**
+   * Looks up the keys that are not cached in a single read.
+   *
+   * @return the decoded row of each of the keys.
+   */
+  private Map<String, DecodedRow> lookup(String[] keys, PipelineContext context) {
+    Map<String, DecodedRow> decoded = new HashMap<>();
+    Set<String> missing = new LinkedHashSet<>();
+    int hits = 0;
+    for (String key : keys) {
+      if (decoded.containsKey(key) || missing.contains(key)) {
+        continue;
+      }
+      DecodedRow row = rows == null ? null : rows.getIfPresent(key);
+      if (row != null) {
+        decoded.put(key, row);
+        hits++;
+      } else {
+        missing.add(key);
+      }
+    }
+
+    if (!missing.isEmpty()) {
+      Map<String, Row> looked;
+      if (missing.size() == 1) {
+        String key = missing.iterator().next();
+        looked = Collections.singletonMap(key, tableLookup.lookup(key));
+      } else {
+        looked = tableLookup.lookup(missing);
+      }
+      for (String key : missing) {
+        DecodedRow row = decode(looked.get(key));
+        decoded.put(key, row);
+        if (rows != null) {
+          rows.put(key, row);
+        }
+      }
+    }
+
+    if (rows != null && context != null && context.getMetrics() != null) {
+      context.getMetrics().count("table-lookup.cache.hits", hits);
+      context.getMetrics().count("table-lookup.cache.misses", missing.size());
+    }
+    return decoded;
+  }
+
+  private DecodedRow decode(Row row) {
+    if (row == null) {
+      return new DecodedRow(new String[0], new String[0]);
+    }
+    Map<byte[], byte[]> columns = row.getColumns();
+    String[] names = new String[columns.size()];
+    String[] values = new String[columns.size()];
+    int i = 0;
+    for (Map.Entry<byte[], byte[]> entry : columns.entrySet()) {
+      names[i] = column + "_" + Bytes.toString(entry.getKey());
+      values[i] = Bytes.toString(entry.getValue());
+      i++;
+    }
+    return new DecodedRow(names, values);
+  }
+
+  /**
+   * Columns of a row as they are added to the records.
+   */
+  private static final class DecodedRow {
+    private final String[] names;
+    private final String[] values;
+
+    DecodedRow(String[] names, String[] values) {
+      this.names = names;
+      this.values = values;
+    }
+  }
 }
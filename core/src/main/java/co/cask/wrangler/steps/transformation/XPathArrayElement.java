@@ -51,6 +51,7 @@ public class XPathArrayElement extends AbstractStep {
   private final String destination;
   private final String xpath;
   private final String attribute;
+  private final CompiledXPath compiled;
 
   public XPathArrayElement(int lineno, String directive, String column, String destination, String xpath) {
     super(lineno, directive);
@@ -58,6 +59,7 @@ public class XPathArrayElement extends AbstractStep {
     this.destination = destination;
     this.xpath = xpath;
     this.attribute = XPathElement.extractAttributeFromXPath(xpath.trim());
+    this.compiled = new CompiledXPath(xpath);
   }
 
   /**
@@ -69,28 +71,15 @@ public class XPathArrayElement extends AbstractStep {
    */
   @Override
   public List<Record> execute(List<Record> records, PipelineContext context) throws StepException {
-    List<String> values = new ArrayList<>();
     for (Record record : records) {
       int idx = record.find(column);
       if (idx != -1) {
         Object object = record.getValue(idx);
         if (object instanceof VTDNav) {
           VTDNav vn = (VTDNav) record.getValue(idx);
-          AutoPilot ap = new AutoPilot(vn);
           try {
-            int tokenCount = vn.getTokenCount();
-            String token = null;
-            String nsPrefix = null;
-            String nsUrl = null;
-            for ( int i = 0; i < tokenCount; i++ ) {
-              token = vn.toNormalizedString( i );
-              if ( vn.startsWith( i, "xmlns:" ) ) {
-                nsPrefix = token.substring( token.indexOf( ":" ) + 1 );
-                nsUrl = vn.toNormalizedString( i + 1 );
-                ap.declareXPathNameSpace( nsPrefix, nsUrl );
-              }// if
-            }// for
-            ap.selectXPath(xpath);
+            List<String> values = new ArrayList<>();
+            AutoPilot ap = compiled.select(vn);
             if (attribute == null) {
               int i = 0, j = 0;
               while (( i = ap.evalXPath()) != -1) {
@@ -48,6 +48,7 @@ public class XPathElement extends AbstractStep {
   private final String destination;
   private final String xpath;
   private final String attribute;
+  private final CompiledXPath compiled;
 
   public XPathElement(int lineno, String directive, String column, String destination, String xpath) {
     super(lineno, directive);
@@ -55,6 +56,7 @@ public class XPathElement extends AbstractStep {
     this.destination = destination;
     this.xpath = xpath;
     this.attribute = XPathElement.extractAttributeFromXPath(xpath.trim());
+    this.compiled = new CompiledXPath(xpath);
   }
 
   /**
@@ -72,22 +74,9 @@ public class XPathElement extends AbstractStep {
         Object object = record.getValue(idx);
         if (object instanceof VTDNav) {
           VTDNav vNav = (VTDNav) record.getValue(idx);
-          AutoPilot ap = new AutoPilot(vNav);
           try {
-            int tokenCount = vNav.getTokenCount();
-            String token = null;
-            String nsPrefix = null;
-            String nsUrl = null;
-            for ( int i = 0; i < tokenCount; i++ ) {
-              token = vNav.toNormalizedString( i );
-              if ( vNav.startsWith( i, "xmlns:" ) ) {
-                nsPrefix = token.substring( token.indexOf( ":" ) + 1 );
-                nsUrl = vNav.toNormalizedString( i + 1 );
-                ap.declareXPathNameSpace( nsPrefix, nsUrl );
-              }// if
-            }// for
             boolean found = false;
-            ap.selectXPath(xpath);
+            AutoPilot ap = compiled.select(vNav);
             if (attribute == null) {
               if (ap.evalXPath() != -1) {
                 int val = vNav.getText();
@@ -34,13 +34,22 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Converts {@link Record} to {@link StructuredRecord}.
+ *
+ * <p>A conversion plan is built once for every schema records are converted to, hence instances are not
+ * thread-safe.</p>
  */
 public final class RecordConvertor implements Serializable {
+  // Conversion plans of the schemas records are converted to, built once per schema.
+  private transient Map<Schema, Plan> plans;
+
+  // Plan used last, as records are mostly converted to the same schema.
+  private transient Plan last;
 
   /**
    * Converts a list of {@link Record} into populated list of {@link StructuredRecord}
@@ -67,20 +76,136 @@ public final class RecordConvertor implements Serializable {
    */
   public StructuredRecord decodeRecord(Record record, Schema schema) throws RecordConvertorException {
     // TODO: This is a hack to workaround StructuredRecord processing. NEED TO RETHINK.
-    if (record.getFields().size() == 1) {
+    if (record.length() == 1) {
       Object cell = record.getValue(0);
       if (cell instanceof StructuredRecord) {
         return (StructuredRecord) cell;
       }
     }
-    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    List<Schema.Field> fields = schema.getFields();
-    for (Schema.Field field : fields) {
-      String name = field.getName();
-      Object value = record.getValue(name);
-      builder.set(name, decode(name, value, field.getSchema()));
+    return plan(schema).decode(record);
+  }
+
+  /**
+   * Returns the conversion plan of a schema, building it the first time the schema is seen.
+   */
+  private Plan plan(Schema schema) {
+    Plan plan = last;
+    if (plan != null && plan.schema == schema) {
+      return plan;
     }
-    return builder.build();
+    if (plans == null) {
+      plans = new HashMap<>();
+    }
+    plan = plans.get(schema);
+    if (plan == null) {
+      plan = new Plan(schema);
+      plans.put(schema, plan);
+    }
+    last = plan;
+    return plan;
+  }
+
+  /**
+   * Plan to convert records into {@link StructuredRecord} of a schema. The decoder of every field is
+   * resolved once from the schema of the field, and the position of every field within the records
+   * is resolved once for every layout of columns the records come in.
+   */
+  private final class Plan {
+    private final Schema schema;
+    private final String[] names;
+    private final FieldDecoder[] decoders;
+
+    // Position of the fields within records having the columns of the layout, -1 if not present.
+    private final int[] slots;
+
+    // Record holding the columns the slots have been resolved for.
+    private Record layout;
+
+    Plan(Schema schema) {
+      this.schema = schema;
+      List<Schema.Field> fields = schema.getFields();
+      this.names = new String[fields.size()];
+      this.decoders = new FieldDecoder[fields.size()];
+      this.slots = new int[fields.size()];
+      for (int i = 0; i < names.length; ++i) {
+        Schema.Field field = fields.get(i);
+        names[i] = field.getName();
+        decoders[i] = decoder(field.getName(), field.getSchema());
+      }
+    }
+
+    StructuredRecord decode(Record record) throws RecordConvertorException {
+      // Records of the same layout share their column names, so the check is mostly a reference comparison.
+      if (layout == null || !record.shareColumns(layout)) {
+        resolve(record);
+      }
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (int i = 0; i < names.length; ++i) {
+        Object value = slots[i] == -1 ? null : record.getValue(slots[i]);
+        builder.set(names[i], decoders[i].decode(value));
+      }
+      return builder.build();
+    }
+
+    private void resolve(Record record) {
+      List<String> columns = new ArrayList<>(record.length());
+      for (int i = 0; i < record.length(); ++i) {
+        columns.add(record.getColumn(i));
+      }
+      layout = new Record(columns);
+      layout.shareColumns(record);
+      for (int i = 0; i < names.length; ++i) {
+        slots[i] = names[i].isEmpty() ? -1 : record.find(names[i]);
+      }
+    }
+  }
+
+  /**
+   * Decodes the values of a field.
+   */
+  private abstract static class FieldDecoder {
+    abstract Object decode(Object object) throws RecordConvertorException;
+  }
+
+  /**
+   * Creates the decoder of a field, specialized for the schema of the field.
+   *
+   * @param name of the field.
+   * @param schema of the field.
+   * @return decoder of the field.
+   */
+  private FieldDecoder decoder(final String name, final Schema schema) {
+    switch (schema.getType()) {
+      case NULL:
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case BYTES:
+      case STRING:
+        return new FieldDecoder() {
+          @Override
+          Object decode(Object object) throws RecordConvertorException {
+            return decodeSimpleTypes(name, object, schema);
+          }
+        };
+
+      case UNION:
+        // Values are decoded using the first schema of the union.
+        List<Schema> schemas = schema.getUnionSchemas();
+        if (!schemas.isEmpty()) {
+          return decoder(name, schemas.get(0));
+        }
+        break;
+    }
+
+    return new FieldDecoder() {
+      @Override
+      Object decode(Object object) throws RecordConvertorException {
+        return RecordConvertor.this.decode(name, object, schema);
+      }
+    };
   }
 
   private Object decode(String name, Object object, Schema schema) throws RecordConvertorException {
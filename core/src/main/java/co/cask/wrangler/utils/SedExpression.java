@@ -0,0 +1,274 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.utils;
+
+import org.unix4j.Unix4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A sed expression compiled once, to be applied to many values.
+ *
+ * <p>
+ *   Substitutions, <code>s/regex/replacement/flags</code>, are compiled into a {@link Pattern} and a
+ *   replacement template, and applied the same way <code>Unix4j.echo(value).sed(expression)</code> applies
+ *   them : the value is a single line, the regex and replacement follow the {@link Pattern} and
+ *   {@link Matcher#appendReplacement(StringBuffer, String)} syntax, and the flags are 'g' for all the
+ *   occurrences, 'I' to ignore case and a number for the occurrence to be replaced. Other expressions are
+ *   run with Unix4j.
+ * </p>
+ */
+public final class SedExpression {
+  private final String expression;
+
+  // Compiled substitution, pattern is null when the expression is run with Unix4j.
+  private final Pattern pattern;
+  // Replacement as literal strings and group numbers, null when it is left to the matcher.
+  private final Object[] template;
+  private final String replacement;
+  // Occurrence to be replaced, 0 for the first one.
+  private final int occurrence;
+  private final boolean global;
+
+  private SedExpression(String expression, Pattern pattern, String replacement, int occurrence, boolean global) {
+    this.expression = expression;
+    this.pattern = pattern;
+    this.replacement = replacement;
+    this.template = pattern == null ? null : compileTemplate(pattern, replacement);
+    this.occurrence = occurrence;
+    this.global = global;
+  }
+
+  /**
+   * Compiles a sed expression.
+   *
+   * @param expression to be compiled.
+   * @return the compiled expression.
+   * @throws IllegalArgumentException if the expression is not valid.
+   */
+  public static SedExpression compile(String expression) {
+    SedExpression compiled = compileSubstitution(expression);
+    if (compiled == null) {
+      // Fails on invalid expressions now rather than on every value.
+      Unix4j.echo("").sed(expression).toStringResult();
+      compiled = new SedExpression(expression, null, null, 0, false);
+    }
+    return compiled;
+  }
+
+  /**
+   * Applies the expression to a value.
+   *
+   * @param value to which the expression is applied.
+   * @return the value after the expression is applied.
+   */
+  public String apply(String value) {
+    if (pattern == null) {
+      return Unix4j.echo(value).sed(expression).toStringResult();
+    }
+
+    Matcher matcher = pattern.matcher(value);
+    if (!matcher.find()) {
+      return value;
+    }
+    boolean found = true;
+    for (int n = 1; found && n < occurrence; ++n) {
+      found = matcher.find();
+    }
+    if (!found) {
+      return value;
+    }
+
+    if (template == null) {
+      StringBuffer buffer = new StringBuffer(value.length() + 16);
+      do {
+        matcher.appendReplacement(buffer, replacement);
+      } while (global && matcher.find());
+      matcher.appendTail(buffer);
+      return buffer.toString();
+    }
+
+    StringBuilder builder = new StringBuilder(value.length() + 16);
+    int last = 0;
+    do {
+      builder.append(value, last, matcher.start());
+      for (Object part : template) {
+        if (part instanceof String) {
+          builder.append((String) part);
+        } else {
+          String group = matcher.group((Integer) part);
+          if (group != null) {
+            builder.append(group);
+          }
+        }
+      }
+      last = matcher.end();
+    } while (global && matcher.find());
+    builder.append(value, last, value.length());
+    return builder.toString();
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  /**
+   * Compiles a substitution the same way Unix4j parses it.
+   *
+   * @return the substitution, null if the expression is not a substitution with the flags supported.
+   */
+  private static SedExpression compileSubstitution(String expression) {
+    int start = 0;
+    while (start < expression.length() && Character.isWhitespace(expression.charAt(start))) {
+      start++;
+    }
+    if (start + 1 >= expression.length() || expression.charAt(start) != 's') {
+      return null;
+    }
+    char delimiter = expression.charAt(start + 1);
+    if (delimiter == '\\' || Character.isLetterOrDigit(delimiter) || Character.isWhitespace(delimiter)) {
+      return null;
+    }
+    int end = nextDelimiter(expression, start + 1);
+    int last = end < 0 ? -1 : nextDelimiter(expression, end);
+    if (last < 0) {
+      return null;
+    }
+
+    int flagsEnd = last + 1;
+    while (flagsEnd < expression.length() && !Character.isWhitespace(expression.charAt(flagsEnd))) {
+      flagsEnd++;
+    }
+    for (int i = flagsEnd; i < expression.length(); ++i) {
+      if (!Character.isWhitespace(expression.charAt(i))) {
+        return null;
+      }
+    }
+
+    boolean global = false;
+    boolean ignoreCase = false;
+    int i = flagsEnd - 1;
+    for (; i > last; --i) {
+      char flag = expression.charAt(i);
+      if (flag == 'g') {
+        global = true;
+      } else if (flag == 'I') {
+        ignoreCase = true;
+      } else {
+        break;
+      }
+    }
+    int occurrence = 0;
+    if (i > last) {
+      for (int j = last + 1; j <= i; ++j) {
+        if (expression.charAt(j) < '0' || expression.charAt(j) > '9') {
+          return null;
+        }
+      }
+      try {
+        occurrence = Integer.parseInt(expression.substring(last + 1, i + 1));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      if (occurrence <= 0) {
+        return null;
+      }
+    }
+
+    String regex = expression.substring(start + 2, end);
+    Pattern pattern = ignoreCase ? Pattern.compile(regex, Pattern.CASE_INSENSITIVE) : Pattern.compile(regex);
+    return new SedExpression(expression, pattern, expression.substring(end + 1, last), occurrence, global);
+  }
+
+  /**
+   * Finds the next delimiter that is not escaped with a backslash.
+   */
+  private static int nextDelimiter(String expression, int from) {
+    char delimiter = expression.charAt(from);
+    int idx = expression.indexOf(delimiter, from + 1);
+    while (idx >= 0 && isEscaped(expression, idx)) {
+      idx = expression.indexOf(delimiter, idx + 1);
+    }
+    return idx;
+  }
+
+  private static boolean isEscaped(String expression, int idx) {
+    int backslashes = 0;
+    for (int i = idx - 1; i >= 0 && expression.charAt(i) == '\\'; --i) {
+      backslashes++;
+    }
+    return backslashes % 2 == 1;
+  }
+
+  /**
+   * Splits a replacement into literal strings and group numbers, following the rules of
+   * {@link Matcher#appendReplacement(StringBuffer, String)}.
+   *
+   * @return the parts of the replacement, null if it refers to groups by name or is not valid, in which case
+   * it is left to the matcher so that it fails only when there is something to be replaced.
+   */
+  private static Object[] compileTemplate(Pattern pattern, String replacement) {
+    int groups = pattern.matcher("").groupCount();
+    List<Object> parts = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    int i = 0;
+    while (i < replacement.length()) {
+      char c = replacement.charAt(i++);
+      if (c == '\\') {
+        if (i == replacement.length()) {
+          return null;
+        }
+        literal.append(replacement.charAt(i++));
+      } else if (c == '$') {
+        if (i == replacement.length()) {
+          return null;
+        }
+        int group = replacement.charAt(i++) - '0';
+        if (group < 0 || group > 9) {
+          return null;
+        }
+        // Takes as many digits as make a group number within the number of groups.
+        while (i < replacement.length()) {
+          int digit = replacement.charAt(i) - '0';
+          if (digit < 0 || digit > 9 || group * 10 + digit > groups) {
+            break;
+          }
+          group = group * 10 + digit;
+          i++;
+        }
+        if (group > groups) {
+          return null;
+        }
+        if (literal.length() > 0) {
+          parts.add(literal.toString());
+          literal.setLength(0);
+        }
+        parts.add(group);
+      } else {
+        literal.append(c);
+      }
+    }
+    if (literal.length() > 0) {
+      parts.add(literal.toString());
+    }
+    return parts.toArray();
+  }
+}
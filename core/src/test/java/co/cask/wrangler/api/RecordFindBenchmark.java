@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link Record#find(String)} as the number of columns in the record grows,
+ * against a plain linear scan of the column names.
+ *
+ * <p>Run with : <code>java -cp ... co.cask.wrangler.api.RecordFindBenchmark</code></p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordFindBenchmark {
+  @Param({"4", "16", "64", "256", "1024"})
+  private int columns;
+
+  private Record record;
+  private String[] names;
+  private String last;
+
+  @Setup
+  public void setup() {
+    record = new Record();
+    names = new String[columns];
+    for (int i = 0; i < columns; ++i) {
+      names[i] = "body_column_" + i;
+      record.add(names[i], i);
+    }
+    // Looked up in a different case than it was added in.
+    last = names[columns - 1].toUpperCase();
+  }
+
+  @Benchmark
+  public int find() {
+    return record.find(last);
+  }
+
+  @Benchmark
+  public int findMissing() {
+    return record.find("not_a_column");
+  }
+
+  @Benchmark
+  public int linearScan() {
+    for (int i = 0; i < names.length; ++i) {
+      if (last.equalsIgnoreCase(names[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(RecordFindBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Tests {@link RecordSerDe}
+ */
+public class RecordSerDeTest {
+
+  private static List<Record> records() {
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 1000; ++i) {
+      records.add(new Record("body", "line " + i).add("id", i).add("flag", i % 2 == 0));
+    }
+    records.add(new Record("body", null).add("id", 5L).add("flag", "mixed"));
+    records.add(new Record("bytes", new byte[] { 1, 2, 3 }).add("short", (short) 3).add("float", 1.5f)
+                  .add("double", 2.5d).add("decimal", new BigDecimal("1.25")).add("date", new Date(1000)));
+    records.add(new Record("body", "after").add("id", 1001).add("flag", true));
+    records.add(new Record(Arrays.asList("a", "b")).addValue(null).addValue("unicode é中"));
+    return records;
+  }
+
+  private static void assertRecordsEqual(List<Record> expected, List<Record> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int r = 0; r < expected.size(); ++r) {
+      Assert.assertEquals(expected.get(r).length(), actual.get(r).length());
+      for (int i = 0; i < expected.get(r).length(); ++i) {
+        Assert.assertEquals(expected.get(r).getColumn(i), actual.get(r).getColumn(i));
+        Object value = expected.get(r).getValue(i);
+        if (value instanceof byte[]) {
+          Assert.assertArrayEquals((byte[]) value, (byte[]) actual.get(r).getValue(i));
+        } else {
+          Assert.assertEquals(value, actual.get(r).getValue(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    List<Record> records = records();
+    for (boolean compress : new boolean[] { true, false }) {
+      RecordSerDe serDe = new RecordSerDe(compress);
+      assertRecordsEqual(records, serDe.toObject(serDe.toByteArray(records)));
+    }
+    RecordSerDe serDe = new RecordSerDe();
+    Assert.assertTrue(serDe.toObject(serDe.toByteArray(new ArrayList<Record>())).isEmpty());
+  }
+
+  @Test
+  public void testRecordsOfLayoutShareColumns() throws Exception {
+    RecordSerDe serDe = new RecordSerDe();
+    List<Record> records = serDe.toObject(serDe.toByteArray(records()));
+    Assert.assertTrue(records.get(1).shareColumns(records.get(0)));
+
+    // Columns are copied on write.
+    records.get(1).add("extra", 1);
+    Assert.assertEquals(3, records.get(0).length());
+    Assert.assertEquals(4, records.get(1).length());
+  }
+
+  @Test
+  public void testReadsJavaSerializedRecords() throws Exception {
+    List<Record> records = records();
+    byte[] bytes = new ObjectSerDe<List<Record>>().toByteArray(records);
+    Assert.assertTrue(RecordSerDe.isJavaSerialized(bytes));
+    assertRecordsEqual(records, new RecordSerDe().toObject(bytes));
+
+    byte[] compact = new RecordSerDe().toByteArray(records);
+    Assert.assertFalse(RecordSerDe.isJavaSerialized(compact));
+    Assert.assertTrue(compact.length < bytes.length);
+  }
+}
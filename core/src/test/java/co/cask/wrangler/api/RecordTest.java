@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link Record}
+ */
+public class RecordTest {
+
+  private static Record wide(int columns) {
+    Record record = new Record();
+    for (int i = 0; i < columns; ++i) {
+      record.add("col_" + i, i);
+    }
+    return record;
+  }
+
+  @Test
+  public void testFindOnWideRecord() throws Exception {
+    Record record = wide(32);
+    Assert.assertEquals(5, record.find("COL_5"));
+    Assert.assertEquals(-1, record.find("col_32"));
+
+    record.add("col_32", 32);
+    Assert.assertEquals(32, record.find("Col_32"));
+
+    record.remove(0);
+    Assert.assertEquals(-1, record.find("col_0"));
+    Assert.assertEquals(31, record.find("col_32"));
+
+    record.setColumn(0, "first");
+    Assert.assertEquals(0, record.find("FIRST"));
+    Assert.assertEquals(-1, record.find("col_1"));
+
+    // First occurrence of a repeated column is found.
+    record.add("first", "again");
+    Assert.assertEquals(0, record.find("first"));
+
+    record.clearColumns();
+    Assert.assertEquals(-1, record.find("first"));
+  }
+
+  @Test
+  public void testCopiesShareColumnsUntilModified() throws Exception {
+    Record record = wide(16);
+    Record copy = new Record(record);
+    Record other = new Record(record);
+
+    copy.add("extra", "x");
+    copy.setColumn(0, "renamed");
+    Assert.assertEquals(17, copy.length());
+    Assert.assertEquals(16, record.length());
+    Assert.assertEquals(16, other.length());
+    Assert.assertEquals("col_0", record.getColumn(0));
+    Assert.assertEquals("col_0", other.getColumn(0));
+    Assert.assertEquals(0, copy.find("renamed"));
+    Assert.assertEquals(-1, record.find("renamed"));
+
+    record.remove(1);
+    Assert.assertEquals(15, record.length());
+    Assert.assertEquals("col_1", other.getColumn(1));
+    Assert.assertEquals(15, other.find("col_15"));
+    Assert.assertEquals(14, record.find("col_15"));
+  }
+
+  @Test
+  public void testShareColumns() throws Exception {
+    Record a = wide(4);
+    Record b = wide(4);
+    Record c = wide(5);
+    Assert.assertTrue(b.shareColumns(a));
+    Assert.assertFalse(c.shareColumns(a));
+    Assert.assertEquals(a, b);
+
+    b.addOrSet("col_9", 9);
+    Assert.assertEquals(4, a.length());
+    Assert.assertEquals(5, b.length());
+  }
+
+  @Test
+  public void testSerializationOfSharedColumns() throws Exception {
+    List<Record> records = new ArrayList<>();
+    Record record = wide(12);
+    records.add(record);
+    records.add(new Record(record));
+    records.add(new Record(record));
+
+    ObjectSerDe<List<Record>> serDe = new ObjectSerDe<>();
+    List<Record> newRecords = serDe.toObject(serDe.toByteArray(records));
+    Assert.assertEquals(records, newRecords);
+
+    newRecords.get(1).add("extra", 1);
+    Assert.assertEquals(12, newRecords.get(0).length());
+    Assert.assertEquals(13, newRecords.get(1).length());
+    Assert.assertEquals(11, newRecords.get(2).find("col_11"));
+  }
+}
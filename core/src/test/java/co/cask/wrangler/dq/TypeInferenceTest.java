@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.dq;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Tests {@link TypeInference} and {@link RegexShape}
+ */
+public class TypeInferenceTest {
+  private static final Pattern INTEGER = Pattern.compile("^(\\+|-)?\\d+$");
+
+  private static final String[] SAMPLES = new String[] {
+    "", " ", "0", "12", "-12", "+12", "+", "-", "1.", ".1", "1.5", "-1.5", "1,5", "1,234", "1,234.56",
+    "1.234,56", "1 234", "1 234", "1e5", "1.0E+4", "1.0e-04", "1.0 e4", "3.4d", "123L", " 3.4", "3.4 ",
+    "1..2", "1.2.3", "12a", "١٢٣", "true", "FALSE", "12\n", "01/26/1956", "1956-01-26", "26.01.56",
+    "2017-02-04 10:20:30", "2017-02-04T10:20:30.123", "Jan 26, 1956", "10:20", "10:20:30", "10:20 AM",
+    "26-Jan-1956", "1956年1月26日", "12/12/12\n", "Root", "http://mars.io"
+  };
+
+  private static List<String> values() {
+    List<String> values = new ArrayList<>();
+    for (String sample : SAMPLES) {
+      values.add(sample);
+    }
+    // Random values over the characters numbers, dates and times are made of.
+    String alphabet = "0123456789012345678901234567890123456789+-., :/TAPMJanDec 年月日e";
+    Random random = new Random(0);
+    for (int i = 0; i < 20000; ++i) {
+      StringBuilder value = new StringBuilder();
+      int length = random.nextInt(24);
+      for (int j = 0; j < length; ++j) {
+        value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      values.add(value.toString());
+    }
+    return values;
+  }
+
+  @Test
+  public void testNumbers() throws Exception {
+    Pattern doubles = Pattern.compile("^[-+]?([0-9]+([,\\.][0-9]+)?|([0-9]{1,3}(((,[0-9]{3})*(\\.[0-9]+)?|"
+                                        + "((\\.[0-9]{3})*|([ \u00A0\u2007\u202F][0-9]{3})*)(,[0-9]+)?))))"
+                                        + "([ ]?[eE][-+]?[0-9]+)?$");
+    for (String value : values()) {
+      boolean empty = value.trim().isEmpty();
+      Assert.assertEquals(value, empty, TypeInference.isEmpty(value));
+      Assert.assertEquals(value, !empty && INTEGER.matcher(value).matches(), TypeInference.isInteger(value));
+      Assert.assertEquals(value, !empty && doubles.matcher(value).matches(), TypeInference.isDouble(value));
+    }
+    Assert.assertTrue(TypeInference.isEmpty(null));
+    Assert.assertFalse(TypeInference.isInteger(null));
+    Assert.assertFalse(TypeInference.isDouble(null));
+  }
+
+  @Test
+  public void testShapesAcceptMatchedValues() throws Exception {
+    List<String> regexes = new ArrayList<>();
+    for (String file : new String[] {"DateRegexesGrouped.txt", "TimeRegexes.txt"}) {
+      try (InputStream stream = getClass().getClassLoader().getResourceAsStream(file)) {
+        for (String line : IOUtils.readLines(stream, "UTF-8")) {
+          if (!line.trim().isEmpty() && !line.startsWith("--")) {
+            regexes.add(line.split("\t")[1]);
+          }
+        }
+      }
+    }
+
+    List<String> values = values();
+    int matched = 0;
+    for (String regex : regexes) {
+      Pattern pattern = Pattern.compile(regex);
+      RegexShape shape = RegexShape.of(regex);
+      for (String value : values) {
+        if (!value.endsWith("\n") && pattern.matcher(value).find()) {
+          matched++;
+          Assert.assertTrue(regex + " : " + value, shape.accepts(value));
+        }
+      }
+    }
+    Assert.assertTrue(matched > 0);
+
+    RegexShape shape = RegexShape.of("^(0?[1-9]|1[0-2])\\/(0?[1-9]|[1-2][0-9]|3[0-1])\\/[0-9]{2}$");
+    Assert.assertTrue(shape.accepts("1/26/56"));
+    Assert.assertFalse(shape.accepts("1-26-56"));
+    Assert.assertFalse(shape.accepts("01/26/1956"));
+    Assert.assertTrue(RegexShape.of("^(?i)jan$").accepts("anything goes"));
+  }
+
+  private static List<Pattern> patterns(String file) throws Exception {
+    List<Pattern> patterns = new ArrayList<>();
+    try (InputStream stream = TypeInferenceTest.class.getClassLoader().getResourceAsStream(file)) {
+      for (String line : IOUtils.readLines(stream, "UTF-8")) {
+        if (!line.trim().isEmpty() && !line.startsWith("--")) {
+          patterns.add(Pattern.compile(line.split("\t")[1]));
+        }
+      }
+    }
+    return patterns;
+  }
+
+  private static boolean matches(List<Pattern> patterns, String value) {
+    int digits = 0;
+    for (int i = 0; i < value.length(); ++i) {
+      if (value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+        digits++;
+      }
+    }
+    if (digits < 3) {
+      return false;
+    }
+    for (Pattern pattern : patterns) {
+      if (pattern.matcher(value).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void testDatesIndependentOfOrder() throws Exception {
+    // A value with ':' first, then a value of the same length with other separators only.
+    DateTimePattern.isDate("01 Jan 2017 10:30");
+    Assert.assertTrue(DateTimePattern.isDate("13 September 2017"));
+
+    List<Pattern> dates = patterns("DateRegexesGrouped.txt");
+    List<Pattern> times = patterns("TimeRegexes.txt");
+    List<String> values = values();
+    for (int pass = 0; pass < 2; ++pass) {
+      for (String value : values) {
+        int length = value.length();
+        Assert.assertEquals(value, length >= 6 && length <= 64 && matches(dates, value), DateTimePattern.isDate(value));
+        Assert.assertEquals(value, length >= 4 && length <= 24 && matches(times, value), DateTimePattern.isTime(value));
+      }
+      Collections.reverse(values);
+    }
+  }
+
+  @Test
+  public void testDataTypes() throws Exception {
+    Assert.assertEquals(DataType.EMPTY, TypeInference.getDataType(" "));
+    Assert.assertEquals(DataType.BOOLEAN, TypeInference.getDataType("True"));
+    Assert.assertEquals(DataType.INTEGER, TypeInference.getDataType("-12"));
+    Assert.assertEquals(DataType.DOUBLE, TypeInference.getDataType("1,234.56"));
+    Assert.assertEquals(DataType.DATE, TypeInference.getDataType("01/26/1956"));
+    Assert.assertEquals(DataType.DATE, TypeInference.getDataType("2017-02-04 10:20:30"));
+    Assert.assertEquals(DataType.TIME, TypeInference.getDataType("10:20:30"));
+    Assert.assertEquals(DataType.STRING, TypeInference.getDataType("Root"));
+    Assert.assertEquals(DataType.STRING, TypeInference.getDataType("01-26/1956"));
+    Assert.assertTrue(DateTimePattern.isDate("12/12/12\n"));
+    Assert.assertTrue(DateTimePattern.datePatternReplace("1956-01-26").contains("yyyy-MM-dd"));
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.executor;
+
+import co.cask.wrangler.api.StaticCatalog;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests {@link ICDCatalog}
+ */
+public class ICDCatalogTest {
+
+  @Test
+  public void testLookupSameAsMap() throws Exception {
+    Map<String, String> expected = new HashMap<>();
+    try (BufferedReader reader = new BufferedReader(
+      new InputStreamReader(getClass().getClassLoader().getResourceAsStream("icd-9_cm_codes.txt")))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        expected.put(line.substring(0, 7).trim(), line.substring(8).trim());
+      }
+    }
+
+    ICDCatalog catalog = new ICDCatalog("icd-9");
+    Assert.assertTrue(catalog.configure());
+    for (Map.Entry<String, String> entry : expected.entrySet()) {
+      StaticCatalog.Entry found = catalog.lookup(entry.getKey());
+      Assert.assertNotNull(entry.getKey(), found);
+      Assert.assertEquals(entry.getValue(), found.getDescription());
+    }
+    Assert.assertNull(catalog.lookup("001"));
+    Assert.assertNull(catalog.lookup("00100"));
+    Assert.assertNull(catalog.lookup(""));
+    Assert.assertNull(catalog.lookup("ZZZZ"));
+    Assert.assertNull(catalog.lookup(null));
+
+    // Another instance of the catalog shares the codes loaded.
+    String code = expected.keySet().iterator().next();
+    Assert.assertEquals(expected.get(code), new ICDCatalog("icd-9").lookup(code).getDescription());
+  }
+
+  @Test
+  public void testMissingCatalog() throws Exception {
+    Assert.assertFalse(new ICDCatalog("icd-0").configure());
+  }
+}
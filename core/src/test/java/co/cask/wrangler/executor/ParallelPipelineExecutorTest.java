@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.executor;
+
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.wrangler.api.ErrorRecord;
+import co.cask.wrangler.api.PipelineContext;
+import co.cask.wrangler.api.Record;
+import co.cask.wrangler.api.TransientStore;
+import co.cask.wrangler.parser.TextDirectives;
+import co.cask.wrangler.steps.DefaultTransientStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests {@link ParallelPipelineExecutor}.
+ */
+public class ParallelPipelineExecutorTest {
+
+  private static final String[] DIRECTIVES = new String[] {
+    "parse-as-csv body ,",
+    "drop body",
+    "set columns id,name,group",
+    "hash name SHA-256 true",
+    "send-to-error group == 3",
+    "filter-row-if-true group == 5"
+  };
+
+  private static List<Record> records(int count) {
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      records.add(new Record("body", String.format("%d,name-%d,%d", i, i % 17, i % 7)));
+    }
+    return records;
+  }
+
+  @Test
+  public void testSameResultsAsSequentialExecution() throws Exception {
+    PipelineExecutor sequential = new PipelineExecutor();
+    sequential.configure(new TextDirectives(DIRECTIVES), null);
+    List<Record> expected = sequential.execute(records(5000));
+    List<ErrorRecord> expectedErrors = sequential.errors();
+
+    ParallelPipelineExecutor parallel = new ParallelPipelineExecutor(8, 16);
+    try {
+      parallel.configure(new TextDirectives(DIRECTIVES), null);
+      for (int run = 0; run < 3; ++run) {
+        List<Record> results = parallel.execute(records(5000));
+        List<ErrorRecord> errors = parallel.errors();
+
+        Assert.assertEquals(expected.size(), results.size());
+        for (int i = 0; i < expected.size(); ++i) {
+          Assert.assertEquals(expected.get(i).getValue("id"), results.get(i).getValue("id"));
+          Assert.assertEquals(expected.get(i).getValue("name"), results.get(i).getValue("name"));
+        }
+        Assert.assertEquals(expectedErrors.size(), errors.size());
+        for (int i = 0; i < expectedErrors.size(); ++i) {
+          Assert.assertEquals(expectedErrors.get(i).getRecord().getValue("id"),
+                              errors.get(i).getRecord().getValue("id"));
+        }
+      }
+    } finally {
+      parallel.close();
+    }
+  }
+
+  @Test
+  public void testTransientVariablesAcrossChunks() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-csv body ,",
+      "drop body",
+      "set columns id,name,group",
+      "set-variable current id",
+      "increment-variable seen 1 true",
+      "set-column copy current",
+      "set-column count seen"
+    };
+
+    TransientStore store = new DefaultTransientStore();
+    ParallelPipelineExecutor parallel = new ParallelPipelineExecutor(8, 16);
+    try {
+      parallel.configure(new TextDirectives(directives), context(store));
+      for (int run = 0; run < 3; ++run) {
+        List<Record> results = parallel.execute(records(5000));
+        Assert.assertEquals(5000, results.size());
+        for (Record record : results) {
+          // Every record reads back the variable it set, not one set by a record processed by another worker.
+          Assert.assertEquals(record.getValue("id"), record.getValue("copy"));
+          long count = (Long) record.getValue("count");
+          Assert.assertTrue(count >= 1 && count <= 5000 * (run + 1));
+        }
+      }
+      // Workers have their own stores.
+      Assert.assertTrue(store.getVariables().isEmpty());
+    } finally {
+      parallel.close();
+    }
+  }
+
+  private static PipelineContext context(final TransientStore store) {
+    return new PipelineContext() {
+      @Override
+      public Environment getEnvironment() {
+        return Environment.TRANSFORM;
+      }
+
+      @Override
+      public StageMetrics getMetrics() {
+        return null;
+      }
+
+      @Override
+      public String getContextName() {
+        return "test";
+      }
+
+      @Override
+      public Map<String, String> getProperties() {
+        return new HashMap<>();
+      }
+
+      @Override
+      public URL getService(String applicationId, String serviceId) {
+        return null;
+      }
+
+      @Override
+      public TransientStore getTransientStore() {
+        return store;
+      }
+
+      @Override
+      public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
+        return null;
+      }
+    };
+  }
+
+  @Test
+  public void testEmptyInput() throws Exception {
+    ParallelPipelineExecutor parallel = new ParallelPipelineExecutor();
+    try {
+      parallel.configure(new TextDirectives(DIRECTIVES), null);
+      Assert.assertTrue(parallel.execute(new ArrayList<Record>()).isEmpty());
+      Assert.assertTrue(parallel.errors().isEmpty());
+    } finally {
+      parallel.close();
+    }
+  }
+}
@@ -18,15 +18,27 @@ package co.cask.wrangler.executor;
 
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.wrangler.api.Directives;
+import co.cask.wrangler.api.ErrorRecord;
 import co.cask.wrangler.api.Pipeline;
+import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
+import co.cask.wrangler.api.TransientStore;
 import co.cask.wrangler.parser.TextDirectives;
+import co.cask.wrangler.steps.DefaultTransientStore;
 import org.apache.hadoop.util.StringUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Tests {@link PipelineExecutor}.
@@ -103,4 +115,203 @@ public class PipelineExecutorTest {
     Assert.assertEquals(1481666448L, record.get("timestamp"));
     Assert.assertEquals(186.66f, record.get("weight"));
   }
+
+  @Test
+  public void testBatchedExecution() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body , true",
+      "drop body",
+      "send-to-error C == 1",
+    };
+
+    List<Record> records = new ArrayList<>();
+    records.add(new Record("body", "A,B,C,D"));
+    for (int i = 0; i < 10; ++i) {
+      records.add(new Record("body", String.format("X%d,Y,%d,%d.0", i, i % 4, i)));
+    }
+
+    PipelineExecutor executor = new PipelineExecutor(4);
+    executor.configure(new TextDirectives(commands), null);
+    List<Record> results = executor.execute(records);
+    List<ErrorRecord> errors = executor.errors();
+
+    Assert.assertEquals(7, results.size());
+    Assert.assertEquals(3, errors.size());
+    Assert.assertEquals("X0", results.get(0).getValue("A"));
+    Assert.assertEquals("X8", results.get(6).getValue("A"));
+    Assert.assertEquals("X1", errors.get(0).getRecord().getValue("A"));
+    Assert.assertEquals("X5", errors.get(1).getRecord().getValue("A"));
+    Assert.assertEquals("X9", errors.get(2).getRecord().getValue("A"));
+  }
+
+  @Test
+  public void testBatchedExecutionRunsStepsOnce() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body , true",
+      "drop body",
+      "increment-variable parsed 1 true",
+      "send-to-error C == '1'",
+      "increment-variable kept 1 true"
+    };
+
+    List<Record> records = new ArrayList<>();
+    records.add(new Record("body", "A,B,C,D"));
+    for (int i = 0; i < 10; ++i) {
+      records.add(new Record("body", String.format("X%d,Y,%d,%d.0", i, i % 4, i)));
+    }
+    // Data row that is the same as the header line.
+    records.add(new Record("body", "A,B,C,D"));
+
+    final TransientStore store = new DefaultTransientStore();
+    PipelineExecutor executor = new PipelineExecutor(4);
+    executor.configure(new TextDirectives(commands), context(store));
+    List<Record> results = executor.execute(records);
+
+    Assert.assertEquals(8, results.size());
+    Assert.assertEquals(3, executor.errors().size());
+    Assert.assertEquals("A", results.get(7).getValue("A"));
+    Assert.assertEquals(Long.valueOf(11), store.<Long>get("parsed"));
+    Assert.assertEquals(Long.valueOf(8), store.<Long>get("kept"));
+  }
+
+  @Test
+  public void testBatchedExecutionWithVariables() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body , false",
+      "drop body",
+      "set columns id,name",
+      "set-variable current id",
+      "set-column copy current"
+    };
+
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 10; ++i) {
+      records.add(new Record("body", String.format("%d,N%d", i, i)));
+    }
+
+    PipelineExecutor executor = new PipelineExecutor(4);
+    executor.configure(new TextDirectives(commands), context(new DefaultTransientStore()));
+    List<Record> results = executor.execute(records);
+
+    Assert.assertEquals(10, results.size());
+    for (Record record : results) {
+      Assert.assertEquals(record.getValue("id"), record.getValue("copy"));
+    }
+  }
+
+  private static PipelineContext context(final TransientStore store) {
+    return new PipelineContext() {
+      @Override
+      public Environment getEnvironment() {
+        return Environment.TRANSFORM;
+      }
+
+      @Override
+      public StageMetrics getMetrics() {
+        return null;
+      }
+
+      @Override
+      public String getContextName() {
+        return "test";
+      }
+
+      @Override
+      public Map<String, String> getProperties() {
+        return new HashMap<>();
+      }
+
+      @Override
+      public URL getService(String applicationId, String serviceId) {
+        return null;
+      }
+
+      @Override
+      public TransientStore getTransientStore() {
+        return store;
+      }
+
+      @Override
+      public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
+        return null;
+      }
+    };
+  }
+
+  @Test
+  public void testStreamingExecution() throws Exception {
+    String[] commands = new String[] {
+      "split-to-rows body ;",
+      "parse-as-csv body ,",
+      "drop body",
+      "send-to-error body_3 == 'error'",
+    };
+
+    // Every input record is split into a 1000 rows, which are consumed as they are produced.
+    final int[] read = new int[1];
+    Iterator<Record> input = new Iterator<Record>() {
+      @Override
+      public boolean hasNext() {
+        return true;
+      }
+
+      @Override
+      public Record next() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+          body.append(read[0]).append(',').append(i).append(',').append(i % 10 == 9 ? "error" : "ok").append(';');
+        }
+        read[0]++;
+        return new Record("body", body.toString());
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+    PipelineExecutor executor = new PipelineExecutor();
+    executor.configure(new TextDirectives(commands), null);
+    Iterator<Record> results = executor.execute(input);
+
+    for (int i = 0; i < 1800; ++i) {
+      Record record = results.next();
+      Assert.assertEquals(String.valueOf(i / 900), record.getValue("body_1"));
+      Assert.assertEquals("ok", record.getValue("body_3"));
+    }
+    Assert.assertEquals(2, read[0]);
+    Assert.assertEquals(199, executor.errors().size());
+  }
+
+  @Test
+  public void testStreamingMatchesListExecution() throws Exception {
+    String[] commands = new String[] {
+      "send-to-error b == 'error'",
+      "flatten a",
+      "filter-row-if-true a == 2"
+    };
+
+    List<Record> records = new ArrayList<>();
+    List<Record> copies = new ArrayList<>();
+    for (int i = 0; i < 20; ++i) {
+      records.add(new Record("a", Arrays.asList(1, 2, 3, i)).add("b", i % 5 == 0 ? "error" : "keep"));
+      copies.add(new Record(records.get(i)));
+    }
+
+    PipelineExecutor executor = new PipelineExecutor();
+    executor.configure(new TextDirectives(commands), null);
+    List<Record> expected = executor.execute(records);
+    int errors = executor.errors().size();
+    Assert.assertEquals(47, expected.size());
+    Assert.assertEquals(4, errors);
+
+    List<Record> results = new ArrayList<>();
+    Iterator<Record> it = executor.execute(copies.iterator());
+    while (it.hasNext()) {
+      results.add(it.next());
+    }
+    Assert.assertEquals(expected, results);
+    Assert.assertEquals(errors, executor.errors().size());
+  }
 }
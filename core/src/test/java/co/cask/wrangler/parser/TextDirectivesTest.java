@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.parser;
+
+import co.cask.wrangler.api.DirectiveConfig;
+import co.cask.wrangler.api.DirectiveParseException;
+import co.cask.wrangler.api.Directives;
+import co.cask.wrangler.api.Step;
+import co.cask.wrangler.steps.transformation.Lower;
+import co.cask.wrangler.steps.transformation.Upper;
+import com.google.common.cache.CacheStats;
+import com.google.gson.Gson;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Tests {@link TextDirectives}
+ */
+public class TextDirectivesTest {
+
+  private static final String[] RECIPE = new String[] {
+    "// cached recipe",
+    "parse-as-csv body ,",
+    "",
+    "drop body",
+    "rename body_1 first",
+    "filter-row-if-true first == 'skip'"
+  };
+
+  @Test
+  public void testRecipeIsParsedIntoFreshSteps() throws Exception {
+    CacheStats before = TextDirectives.getCacheStats();
+    List<Step> steps = new TextDirectives(RECIPE).getSteps();
+    List<Step> again = new TextDirectives(RECIPE.clone()).getSteps();
+    CacheStats stats = TextDirectives.getCacheStats().minus(before);
+    Assert.assertEquals(1, stats.hitCount());
+    Assert.assertEquals(1, stats.missCount());
+
+    Assert.assertEquals(4, steps.size());
+    Assert.assertEquals(steps.size(), again.size());
+    for (int i = 0; i < steps.size(); ++i) {
+      Assert.assertNotSame(steps.get(i), again.get(i));
+      Assert.assertEquals(String.format("[Step %d] - <%s>", i + 1, RECIPE[i == 0 ? 1 : i + 2]),
+                          again.get(i).toString());
+    }
+  }
+
+  @Test(expected = DirectiveParseException.class)
+  public void testContextIsAppliedToCachedRecipe() throws Exception {
+    String[] recipe = new String[] {
+      "drop body"
+    };
+    new TextDirectives(recipe).getSteps();
+
+    DirectiveConfig config = new Gson().fromJson("{ \"exclusions\" : [ \"drop\" ] }", DirectiveConfig.class);
+    Directives directives = new TextDirectives(recipe);
+    directives.initialize(new ConfigDirectiveContext(config));
+    directives.getSteps();
+  }
+
+  @Test
+  public void testCachedRecipeFollowsAliases() throws Exception {
+    String[] recipe = new String[] {
+      "uppercase body"
+    };
+    List<Step> steps = new TextDirectives(recipe).getSteps();
+    Assert.assertTrue(steps.get(0) instanceof Upper);
+
+    DirectiveConfig config = new Gson().fromJson("{ \"aliases\" : { \"uppercase\" : \"lowercase\" } }",
+                                                 DirectiveConfig.class);
+    Directives directives = new TextDirectives(recipe);
+    directives.initialize(new ConfigDirectiveContext(config));
+    Assert.assertTrue(directives.getSteps().get(0) instanceof Lower);
+    Assert.assertTrue(new TextDirectives(recipe).getSteps().get(0) instanceof Upper);
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.statistics;
+
+import co.cask.cdap.api.dataset.lib.KeyValue;
+import co.cask.wrangler.api.Pipeline;
+import co.cask.wrangler.api.Record;
+import co.cask.wrangler.executor.PipelineExecutor;
+import co.cask.wrangler.parser.TextDirectives;
+import com.google.common.hash.Hashing;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests {@link ProfilingStatistics}
+ */
+public class ProfilingStatisticsTest {
+
+  private static List<Record> records(int count) throws Exception {
+    String[] directives = new String[] {
+      "parse-as-csv body ,",
+      "drop body"
+    };
+
+    String[] lines = new String[] {
+      "1234.45,650-897-3839,111-11-1111,32826,02/29/2000,\"$1234.56\",http://www.yahoo.com",
+      "45.56,670-897-3839,111-12-1111,32826,02/01/2011,\"$56,789\",http://mars.io",
+      "45.56,670-897-3839,222,32826,9/14/2016,\"\",http://mars.io"
+    };
+
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < count; ++i) {
+      records.add(new Record("body", lines[i % lines.length]));
+    }
+
+    Pipeline pipeline = new PipelineExecutor();
+    pipeline.configure(new TextDirectives(directives), null);
+    return pipeline.execute(records);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void assertSameMeasures(Record expected, Record actual) {
+    Assert.assertEquals(expected.length(), actual.length());
+    for (int i = 0; i < expected.length(); ++i) {
+      Assert.assertEquals(expected.getColumn(i), actual.getColumn(i));
+      List<KeyValue<String, Double>> expectedValues = (List<KeyValue<String, Double>>) expected.getValue(i);
+      List<KeyValue<String, Double>> actualValues = (List<KeyValue<String, Double>>) actual.getValue(i);
+      Assert.assertEquals(expectedValues.size(), actualValues.size());
+      for (int j = 0; j < expectedValues.size(); ++j) {
+        Assert.assertEquals(expectedValues.get(j).getKey(), actualValues.get(j).getKey());
+        Assert.assertEquals(expectedValues.get(j).getValue(), actualValues.get(j).getValue(), 0.000001);
+      }
+    }
+  }
+
+  @Test
+  public void testSameStatisticsAsBasic() throws Exception {
+    List<Record> records = records(3000);
+
+    Record expected = new BasicStatistics().aggregate(records);
+    Record actual;
+    try (ProfilingStatistics profiler = new ProfilingStatistics(4, 100)) {
+      actual = profiler.aggregate(records);
+    }
+
+    Assert.assertEquals(expected.getValue("total"), actual.getValue("total"));
+    assertSameMeasures((Record) expected.getValue("stats"), (Record) actual.getValue("stats"));
+    assertSameMeasures((Record) expected.getValue("types"), (Record) actual.getValue("types"));
+  }
+
+  @Test
+  public void testProfiles() throws Exception {
+    List<Record> records = records(3000);
+
+    Map<String, ColumnProfile> profiles;
+    try (ProfilingStatistics profiler = new ProfilingStatistics(4, 100)) {
+      profiles = profiler.profile(records);
+    }
+
+    ColumnProfile first = profiles.get("body_1");
+    Assert.assertEquals(3000, first.getCount());
+    Assert.assertEquals(0, first.getNulls());
+    Assert.assertEquals(3000, first.getNumerics());
+    Assert.assertEquals(2, first.getCardinality());
+    Assert.assertEquals(45.56, first.getMin(), 0.0);
+    Assert.assertEquals(1234.45, first.getMax(), 0.0);
+    Assert.assertEquals(45.56, first.getQuantile(0.5), 0.0);
+    List<Map.Entry<String, Long>> top = first.getTop(1);
+    Assert.assertEquals("45.56", top.get(0).getKey());
+    Assert.assertEquals(2000L, (long) top.get(0).getValue());
+
+    ColumnProfile zip = profiles.get("body_4");
+    Assert.assertEquals(3000, zip.getCount());
+    Assert.assertEquals(1, zip.getCardinality());
+    Assert.assertEquals(32826, zip.getQuantile(0.9), 0.0);
+
+    ColumnProfile currency = profiles.get("body_6");
+    Assert.assertEquals(1000, currency.getEmpties());
+
+    ColumnProfile url = profiles.get("body_7");
+    Assert.assertEquals(0, url.getNumerics());
+    Assert.assertTrue(Double.isNaN(url.getMin()));
+    Assert.assertEquals(2, url.getCardinality());
+  }
+
+  @Test
+  public void testNonFiniteNumbers() throws Exception {
+    ColumnProfile profile = new ColumnProfile(0);
+    profile.add("1e999", Collections.<String>emptySet());
+    profile.add("-1e999", Collections.<String>emptySet());
+    profile.add(Double.NaN, Collections.<String>emptySet());
+    Assert.assertEquals(0, profile.getNumerics());
+    Assert.assertTrue(Double.isNaN(profile.getMin()));
+
+    profile.add("12.5", Collections.<String>emptySet());
+    profile.add(Double.POSITIVE_INFINITY, Collections.<String>emptySet());
+    Assert.assertEquals(1, profile.getNumerics());
+    Assert.assertEquals(12.5, profile.getMin(), 0.0);
+    Assert.assertEquals(12.5, profile.getMax(), 0.0);
+    Assert.assertEquals(12.5, profile.getQuantile(0.5), 0.0);
+  }
+
+  @Test
+  public void testSketches() throws Exception {
+    HyperLogLog distinct = new HyperLogLog();
+    HyperLogLog other = new HyperLogLog();
+    QuantileSketch quantiles = new QuantileSketch(1024, 0);
+    QuantileSketch otherQuantiles = new QuantileSketch(1024, 1);
+    FrequentItems frequent = new FrequentItems(8);
+    FrequentItems otherFrequent = new FrequentItems(8);
+    for (int i = 0; i < 100000; ++i) {
+      long hash = Hashing.murmur3_128().hashInt(i).asLong();
+      (i % 2 == 0 ? distinct : other).add(hash);
+      (i % 2 == 0 ? quantiles : otherQuantiles).add(i);
+      String value = i % 3 == 0 ? "frequent" : Integer.toString(i);
+      (i < 50000 ? frequent : otherFrequent).add(value);
+    }
+    distinct.merge(other);
+    quantiles.merge(otherQuantiles);
+    frequent.merge(otherFrequent);
+
+    Assert.assertEquals(100000, distinct.cardinality(), 100000 * 0.05);
+    Assert.assertEquals(100000, quantiles.getCount());
+    Assert.assertEquals(50000, quantiles.quantile(0.5), 100000 * 0.05);
+    Assert.assertEquals(90000, quantiles.quantile(0.9), 100000 * 0.05);
+    Assert.assertEquals("frequent", frequent.top(1).get(0).getKey());
+    Assert.assertTrue(frequent.top(1).get(0).getValue() >= 33334 - 100000 / 9);
+  }
+}
@@ -16,10 +16,14 @@
 
 package co.cask.wrangler.steps;
 
+import co.cask.wrangler.api.Pipeline;
 import co.cask.wrangler.api.Record;
+import co.cask.wrangler.executor.PipelineExecutor;
+import co.cask.wrangler.parser.TextDirectives;
 import co.cask.wrangler.steps.parser.XmlToJson;
 import co.cask.wrangler.steps.transformation.XPathElement;
 import org.junit.Assert;
+import com.google.gson.JsonArray;
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -258,6 +262,58 @@ public class XMLTest {
     Assert.assertEquals("QWZ5671", records.get(0).getValue(1));
   }
 
+  @Test
+  public void testXPathOnNamespacedDocuments() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-xml body",
+      "xpath body id /h:doc/h:id/@root",
+      "xpath body name /h:doc/h:name",
+      "xpath-array body items /h:doc/s:items/s:item"
+    };
+
+    List<Record> records = Arrays.asList(
+      new Record("body", "<h:doc xmlns:h=\"urn:hl7\" xmlns:s=\"urn:s\"><h:id root=\"1\"/><h:name>Root</h:name>" +
+        "<s:items><s:item>a</s:item><s:item>b</s:item></s:items></h:doc>"),
+      new Record("body", "<h:doc xmlns:h=\"urn:v2\" xmlns:s=\"urn:s\"><h:id root=\"2\"/><h:name>Joltie</h:name>" +
+        "<s:items><s:item>c</s:item></s:items></h:doc>"),
+      new Record("body", "<h:doc xmlns:h=\"urn:other\"><h:id root=\"3\"/><h:name>Sai</h:name></h:doc>")
+    );
+
+    records = PipelineTest.execute(directives, records);
+
+    Assert.assertEquals(3, records.size());
+    Assert.assertEquals("1", records.get(0).getValue("id"));
+    Assert.assertEquals("Root", records.get(0).getValue("name"));
+    Assert.assertEquals(2, ((JsonArray) records.get(0).getValue("items")).size());
+    // Prefixes are resolved against the namespaces declared in each document.
+    Assert.assertEquals("2", records.get(1).getValue("id"));
+    Assert.assertEquals(1, ((JsonArray) records.get(1).getValue("items")).size());
+    Assert.assertEquals("3", records.get(2).getValue("id"));
+    Assert.assertEquals("Sai", records.get(2).getValue("name"));
+  }
+
+  @Test
+  public void testMalformedXMLIsSentToError() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-xml body",
+      "xpath body item /catalog/product/catalog_item/item_number"
+    };
+
+    List<Record> records = Arrays.asList(
+      new Record("body", testXmlComplex),
+      new Record("body", "<catalog><product>"),
+      new Record("body", testXmlComplex)
+    );
+
+    Pipeline pipeline = new PipelineExecutor();
+    pipeline.configure(new TextDirectives(directives), null);
+    records = pipeline.execute(records);
+
+    Assert.assertEquals(2, records.size());
+    Assert.assertEquals("QWZ5671", records.get(1).getValue("item"));
+    Assert.assertEquals(1, pipeline.errors().size());
+  }
+
   @Test
   public void testXPathElement() throws Exception {
     String[] input = new String[] {
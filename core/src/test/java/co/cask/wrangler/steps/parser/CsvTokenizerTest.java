@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.steps.parser;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests {@link CsvTokenizer}
+ */
+public class CsvTokenizerTest {
+
+  private static List<List<String>> expected(String value, CSVFormat format) {
+    List<List<String>> records = new ArrayList<>();
+    try {
+      for (CSVRecord record : CSVParser.parse(value, format).getRecords()) {
+        List<String> fields = new ArrayList<>();
+        for (String field : record) {
+          fields.add(field);
+        }
+        records.add(fields);
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    return records;
+  }
+
+  private static List<List<String>> actual(CsvTokenizer tokenizer, String value) {
+    List<List<String>> records = new ArrayList<>();
+    tokenizer.reset(value);
+    try {
+      List<String> fields;
+      while ((fields = tokenizer.next()) != null) {
+        records.add(new ArrayList<>(fields));
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    return records;
+  }
+
+  @Test
+  public void testSameRecordsAsCommonsCsv() throws Exception {
+    CSVFormat[] formats = new CSVFormat[] {
+      CSVFormat.DEFAULT,
+      CSVFormat.DEFAULT.withDelimiter(';'),
+      CSVFormat.DEFAULT.withDelimiter('\t').withIgnoreSurroundingSpaces(true),
+      CSVFormat.DEFAULT.withIgnoreEmptyLines(false),
+      CSVFormat.DEFAULT.withIgnoreSurroundingSpaces(true).withIgnoreEmptyLines(false),
+      CSVFormat.DEFAULT.withQuote(null)
+    };
+
+    List<String> values = new ArrayList<>();
+    values.add("a,b,c");
+    values.add("a,b,");
+    values.add(",");
+    values.add(" a , \"b\" ,c ");
+    values.add("\"a,b\",\"c\"\"d\",\"\"");
+    values.add("\"multi\nline\",x\r\ny,z\n\nlast\n");
+    values.add("\"unterminated,a");
+    values.add("\"a\"b,c");
+    values.add("1;2;3\t4");
+
+    String alphabet = "ab ,;\t\"\n\r";
+    Random random = new Random(0);
+    for (int i = 0; i < 20000; ++i) {
+      StringBuilder value = new StringBuilder();
+      int length = random.nextInt(16);
+      for (int j = 0; j < length; ++j) {
+        value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      values.add(value.toString());
+    }
+
+    for (CSVFormat format : formats) {
+      CsvTokenizer tokenizer = new CsvTokenizer(format);
+      for (String value : values) {
+        Assert.assertEquals(format + " : " + value, expected(value, format), actual(tokenizer, value));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedFormat() throws Exception {
+    new CsvTokenizer(CSVFormat.DEFAULT.withEscape('\\'));
+  }
+}
@@ -18,6 +18,7 @@ package co.cask.wrangler.steps.parser;
 
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.steps.PipelineTest;
+import com.google.gson.JsonParser;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -156,4 +157,33 @@ public class JsParserTest {
     records = PipelineTest.execute(directives, records);
     Assert.assertTrue(records.size() == 5);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testStreamingSameAsTree() throws Exception {
+    String[] documents = new String[] {
+      "{\"a\":1,\"b\":{\"c\":2.5,\"d\":{\"e\":\"x\"}},\"f\":[1,{\"g\":2}],\"h\":null,\"i\":true}",
+      "{\"a\":{\"x\":1},\"b\":{\"y\":2},\"c\":{\"z\":{\"w\":3}}}",
+      "{\"body_a\":1,\"a\":{\"b\":1},\"a\":{\"c\":2},\"d\":123456789012345678901234567890}",
+      "{\"a\":{\"b\":1,\"b\":2}}",
+      "  {\"nested\":{\"deep\":{\"deeper\":{\"deepest\":-1e3}}}}  ",
+      "{}"
+    };
+
+    for (int depth : new int[] {0, 1, 2, 3, Integer.MAX_VALUE}) {
+      for (String document : documents) {
+        Record expected = new Record("id", 1);
+        expected.add("body_a", "before");
+        JsParser.flattenJson(new JsonParser().parse(document).getAsJsonObject(), "body", 1, depth, expected);
+
+        Record record = new Record("id", 1);
+        record.add("body", document);
+        record.add("body_a", "before");
+        JsParser parser = new JsParser(1, "parse-as-json body " + depth, "body", depth);
+        List<Record> records = parser.execute(Arrays.asList(record), null);
+
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals(document + " : " + depth, expected, records.get(0));
+      }
+    }
+  }
+}
@@ -21,9 +21,13 @@ import co.cask.wrangler.api.Record;
 import co.cask.wrangler.executor.PipelineExecutor;
 import co.cask.wrangler.parser.TextDirectives;
 import org.apache.commons.io.IOUtils;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -69,5 +73,40 @@ public class ParseExcelTest {
       executor.execute(records);
     }
   }
-}
 
+  @Test
+  public void testSheetByNameWithTypedCells() throws Exception {
+    XSSFWorkbook book = new XSSFWorkbook();
+    book.createSheet("First").createRow(0).createCell(0).setCellValue("first");
+    Sheet sheet = book.createSheet("Data");
+    Row row = sheet.createRow(0);
+    row.createCell(0).setCellValue("name");
+    row.createCell(2).setCellValue(3.5);
+    row.createCell(3).setCellValue(true);
+    row.createCell(4).setCellFormula("C1*2");
+    row.createCell(5);
+    row.createCell(27).setCellValue(" a & <b> ");
+    sheet.createRow(3);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    book.write(output);
+
+    List<Record> records = new ArrayList<>();
+    records.add(new Record("body", output.toByteArray()));
+
+    PipelineExecutor executor = new PipelineExecutor();
+    executor.configure(new TextDirectives(new String[] { "parse-as-excel body data" }), null);
+    List<Record> results = executor.execute(records);
+
+    Assert.assertEquals(2, results.size());
+    Record first = results.get(0);
+    Assert.assertEquals(6, first.length());
+    Assert.assertEquals(0, first.getValue("fwd"));
+    Assert.assertEquals(2, first.getValue("bkd"));
+    Assert.assertEquals("name", first.getValue("A"));
+    Assert.assertEquals(3.5, first.getValue("C"));
+    Assert.assertEquals(true, first.getValue("D"));
+    Assert.assertEquals(" a & <b> ", first.getValue("AB"));
+    Assert.assertEquals(2, results.get(1).length());
+    Assert.assertEquals(1, results.get(1).getValue("fwd"));
+  }
+}
@@ -22,12 +22,17 @@ import co.cask.http.HttpHandler;
 import co.cask.http.HttpResponder;
 import co.cask.http.NettyHttpService;
 import co.cask.wrangler.api.Directives;
+import co.cask.wrangler.api.ErrorRecordException;
 import co.cask.wrangler.api.Pipeline;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.executor.PipelineExecutor;
 import co.cask.wrangler.parser.TextDirectives;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
@@ -43,6 +48,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 
@@ -66,6 +72,9 @@ public class InvokeHttpTest {
   }
 
   public static class ServiceHandler implements HttpHandler {
+    // Number of requests received by the batch endpoint.
+    private static final AtomicInteger BATCH_REQUESTS = new AtomicInteger();
+
     @Override
     public void init(HandlerContext handlerContext) {
       // no-op
@@ -88,6 +97,48 @@ public class InvokeHttpTest {
       responder.sendJson(HttpResponseStatus.OK, response);
     }
 
+    @POST
+    @Path("flaky")
+    public void flaky(HttpRequest request, HttpResponder responder) {
+      Map<String, Object> object = postRequest(request);
+      if ("fail".equals(object.get("a"))) {
+        responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR, "failed");
+        return;
+      }
+      Map<String, Object> response = new HashMap<>();
+      response.put("c", object.get("a") + "!");
+      responder.sendJson(HttpResponseStatus.OK, response);
+    }
+
+    @POST
+    @Path("batch")
+    public void batch(HttpRequest request, HttpResponder responder) {
+      BATCH_REQUESTS.incrementAndGet();
+      JsonElement element = new JsonParser().parse(Bytes.toString(request.getContent().toByteBuffer()));
+      if (element.isJsonObject()) {
+        responder.sendJson(HttpResponseStatus.OK, reverse(element.getAsJsonObject()));
+        return;
+      }
+      JsonArray response = new JsonArray();
+      for (JsonElement object : element.getAsJsonArray()) {
+        if (object.getAsJsonObject().get("a").getAsString().equals("fail")) {
+          responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR, "failed");
+          return;
+        }
+        response.add(reverse(object.getAsJsonObject()));
+      }
+      responder.sendJson(HttpResponseStatus.OK, response);
+    }
+
+    private JsonObject reverse(JsonObject object) {
+      if (object.get("a").getAsString().equals("fail")) {
+        throw new IllegalArgumentException("failed");
+      }
+      JsonObject response = new JsonObject();
+      response.addProperty("c", new StringBuilder(object.get("a").getAsString()).reverse().toString());
+      return response;
+    }
+
     private Map<String, Object> postRequest(HttpRequest request) throws JsonParseException {
       ByteBuffer content = request.getContent().toByteBuffer();
       if (content != null && content.hasRemaining()) {
@@ -167,6 +218,99 @@ public class InvokeHttpTest {
     Assert.assertTrue(pipeline.errors().size() == 2);
   }
 
+  @Test
+  public void testConcurrentRequestsWithErrors() throws Exception {
+    String[] directives = new String[] {
+      "invoke-http " + (baseURL + "/flaky ") + "a"
+    };
+
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 50; ++i) {
+      records.add(new Record("a", i % 7 == 3 ? "fail" : "v" + i));
+    }
+
+    Pipeline pipeline = new PipelineExecutor(16);
+    pipeline.configure(new TextDirectives(directives), null);
+    List<Record> results = pipeline.execute(records);
+
+    Assert.assertEquals(43, results.size());
+    Assert.assertEquals(7, pipeline.errors().size());
+    int j = 0;
+    for (int i = 0; i < 50; ++i) {
+      if (i % 7 != 3) {
+        Assert.assertEquals("v" + i + "!", results.get(j++).getValue("c"));
+      }
+    }
+  }
+
+  @Test
+  public void testBatchedExecutionSendsRecordsTogether() throws Exception {
+    String[] directives = new String[] {
+      "invoke-http " + (baseURL + "/batch ") + "a"
+    };
+
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 16; ++i) {
+      records.add(new Record("a", i == 11 ? "fail" : "v" + i));
+    }
+
+    System.setProperty(InvokeHttp.BATCH_SIZE_PROPERTY, "8");
+    try {
+      int requests = ServiceHandler.BATCH_REQUESTS.get();
+      PipelineExecutor pipeline = new PipelineExecutor(16);
+      pipeline.configure(new TextDirectives(directives), null);
+      List<Record> results = pipeline.execute(records);
+
+      Assert.assertEquals(15, results.size());
+      Assert.assertEquals("0v", results.get(0).getValue("c"));
+      Assert.assertEquals("51v", results.get(14).getValue("c"));
+      Assert.assertEquals(1, pipeline.errors().size());
+      Assert.assertEquals("fail", pipeline.errors().get(0).getRecord().getValue("a"));
+      // A request for each half of the micro-batch, the records of the half that failed being requested again
+      // one at a time.
+      Assert.assertEquals(10, ServiceHandler.BATCH_REQUESTS.get() - requests);
+    } finally {
+      System.clearProperty(InvokeHttp.BATCH_SIZE_PROPERTY);
+    }
+  }
+
+  @Test
+  public void testBatchedAndCachedRequests() throws Exception {
+    InvokeHttp step = new InvokeHttp(0, "", baseURL + "/batch", Arrays.asList("a"), null, 3);
+    List<Record> records = new ArrayList<>();
+    for (String value : new String[] {"ab", "cd", "ab", "ef", "gh", "ij", "cd"}) {
+      records.add(new Record("a", value));
+    }
+
+    ServiceHandler.BATCH_REQUESTS.set(0);
+    records = step.execute(records, null);
+    // Five distinct values, sent in two batches.
+    Assert.assertEquals(2, ServiceHandler.BATCH_REQUESTS.get());
+    Assert.assertEquals("ba", records.get(0).getValue("c"));
+    Assert.assertEquals("dc", records.get(6).getValue("c"));
+    Assert.assertEquals("ji", records.get(5).getValue("c"));
+
+    // Responses are served from the cache, which is shared with the steps created for the same directive.
+    step.execute(Arrays.asList(new Record("a", "ef"), new Record("a", "ij")), null);
+    Assert.assertEquals(2, ServiceHandler.BATCH_REQUESTS.get());
+    InvokeHttp other = new InvokeHttp(0, "", baseURL + "/batch", Arrays.asList("a"), null, 3);
+    Assert.assertEquals("hg", other.execute(Arrays.asList(new Record("a", "gh")), null).get(0).getValue("c"));
+    Assert.assertEquals(2, ServiceHandler.BATCH_REQUESTS.get());
+
+    // A failed batch is requested again one record at a time.
+    ServiceHandler.BATCH_REQUESTS.set(0);
+    try {
+      step.execute(Arrays.asList(new Record("a", "kl"), new Record("a", "fail"), new Record("a", "mn")), null);
+      Assert.fail();
+    } catch (ErrorRecordException e) {
+      Assert.assertEquals(4, ServiceHandler.BATCH_REQUESTS.get());
+    }
+    List<Record> cached = step.execute(Arrays.asList(new Record("a", "kl"), new Record("a", "mn")), null);
+    Assert.assertEquals("lk", cached.get(0).getValue("c"));
+    Assert.assertEquals("nm", cached.get(1).getValue("c"));
+    Assert.assertEquals(4, ServiceHandler.BATCH_REQUESTS.get());
+  }
+
   @After
   public void stopService() throws Exception {
     httpService.stopAsync().awaitTerminated(10L, TimeUnit.SECONDS);
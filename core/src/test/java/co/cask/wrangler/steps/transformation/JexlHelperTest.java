@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.steps.transformation;
+
+import com.google.common.cache.CacheStats;
+import org.apache.commons.jexl3.JexlException;
+import org.apache.commons.jexl3.JexlScript;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link JexlHelper}
+ */
+public class JexlHelperTest {
+
+  @Test
+  public void testSharedEngineAndScripts() throws Exception {
+    Assert.assertSame(JexlHelper.getEngine(), JexlHelper.getEngine());
+
+    CacheStats before = JexlHelper.getCacheStats();
+    JexlScript script = JexlHelper.compile("a + b > 10 && math:abs(c) < 2");
+    Assert.assertSame(script, JexlHelper.compile("a + b > 10 && math:abs(c) < 2"));
+    CacheStats stats = JexlHelper.getCacheStats().minus(before);
+    Assert.assertEquals(1, stats.hitCount());
+    Assert.assertEquals(1, stats.missCount());
+  }
+
+  @Test(expected = JexlException.class)
+  public void testParseError() throws Exception {
+    JexlHelper.compile("a + * b");
+  }
+}
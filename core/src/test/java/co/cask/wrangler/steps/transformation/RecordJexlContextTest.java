@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.steps.transformation;
+
+import co.cask.wrangler.api.Record;
+import co.cask.wrangler.api.TransientStore;
+import co.cask.wrangler.steps.DefaultTransientStore;
+import org.apache.commons.jexl3.JexlException;
+import org.apache.commons.jexl3.JexlScript;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests {@link RecordJexlContext}
+ */
+public class RecordJexlContextTest {
+
+  @Test
+  public void testResolution() throws Exception {
+    JexlScript script = JexlHelper.getEngine().createScript("a + b + c + this.length()");
+    RecordJexlContext ctx = new RecordJexlContext(script);
+
+    TransientStore store = new DefaultTransientStore();
+    store.set("c", 100);
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("b", 10);
+    properties.put("c", 1000);
+
+    Assert.assertEquals(113, script.execute(ctx.bind(new Record("a", 1).add("x", 0), store, properties)));
+    // Columns take precedence over properties, transient variables over columns.
+    Assert.assertEquals(106, script.execute(ctx.bind(new Record("a", 2).add("b", 1).add("c", 1), store, properties)));
+  }
+
+  @Test
+  public void testColumnsAreCaseSensitive() throws Exception {
+    JexlScript script = JexlHelper.getEngine().createScript("A + a");
+    RecordJexlContext ctx = new RecordJexlContext(script);
+    Assert.assertEquals(3, script.execute(ctx.bind(new Record("a", 1).add("A", 2), null, null)));
+  }
+
+  @Test(expected = JexlException.class)
+  public void testUndefinedVariable() throws Exception {
+    JexlScript script = JexlHelper.getEngine().createScript("a + b");
+    RecordJexlContext ctx = new RecordJexlContext(script);
+    Assert.assertEquals(3, script.execute(ctx.bind(new Record("a", 1).add("b", 2), null, null)));
+    script.execute(ctx.bind(new Record("a", 1), null, null));
+  }
+
+  @Test
+  public void testLocalVariables() throws Exception {
+    JexlScript script = JexlHelper.getEngine().createScript("x = a * 2; x + 1");
+    RecordJexlContext ctx = new RecordJexlContext(script);
+    Assert.assertEquals(5, script.execute(ctx.bind(new Record("a", 2), null, null)));
+    Assert.assertEquals(7, script.execute(ctx.bind(new Record("a", 3), null, null)));
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.steps.transformation;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.table.Result;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.wrangler.api.PipelineContext;
+import co.cask.wrangler.api.Record;
+import co.cask.wrangler.api.StepException;
+import co.cask.wrangler.api.TransientStore;
+import com.google.common.cache.CacheStats;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Tests {@link TableLookup}
+ */
+public class TableLookupTest {
+
+  /**
+   * Lookup on an in-memory table, counting the reads.
+   */
+  private static final class MemoryTableLookup extends co.cask.cdap.etl.api.lookup.TableLookup {
+    private final Map<String, Map<String, String>> table = new HashMap<>();
+    private final List<Set<String>> reads = new ArrayList<>();
+
+    MemoryTableLookup() {
+      super(null);
+    }
+
+    void put(String key, String column, String value) {
+      if (!table.containsKey(key)) {
+        table.put(key, new HashMap<String, String>());
+      }
+      table.get(key).put(column, value);
+    }
+
+    @Override
+    public Row lookup(String key) {
+      reads.add(Collections.singleton(key));
+      return row(key);
+    }
+
+    @Override
+    public Map<String, Row> lookup(Set<String> keys) {
+      reads.add(keys);
+      Map<String, Row> rows = new HashMap<>();
+      for (String key : keys) {
+        rows.put(key, row(key));
+      }
+      return rows;
+    }
+
+    private Row row(String key) {
+      Map<byte[], byte[]> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      if (table.containsKey(key)) {
+        for (Map.Entry<String, String> entry : table.get(key).entrySet()) {
+          columns.put(Bytes.toBytes(entry.getKey()), Bytes.toBytes(entry.getValue()));
+        }
+      }
+      return new Result(Bytes.toBytes(key), columns);
+    }
+  }
+
+  private static PipelineContext context(final Lookup<?> lookup) {
+    return new PipelineContext() {
+      @Override
+      public Environment getEnvironment() {
+        return Environment.TRANSFORM;
+      }
+
+      @Override
+      public StageMetrics getMetrics() {
+        return null;
+      }
+
+      @Override
+      public String getContextName() {
+        return "test";
+      }
+
+      @Override
+      public Map<String, String> getProperties() {
+        return new HashMap<>();
+      }
+
+      @Override
+      public URL getService(String applicationId, String serviceId) {
+        return null;
+      }
+
+      @Override
+      public TransientStore getTransientStore() {
+        return null;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
+        return (Lookup<T>) lookup;
+      }
+    };
+  }
+
+  @Test
+  public void testDistinctKeysAreReadOnce() throws Exception {
+    MemoryTableLookup table = new MemoryTableLookup();
+    table.put("bob", "age", "21");
+    table.put("bob", "city", "Los Angeles, CA");
+    table.put("joe", "age", "34");
+    PipelineContext context = context(table);
+
+    TableLookup step = new TableLookup(0, "table-lookup fname lookupTable", "fname", "lookupTable");
+    List<Record> records = step.execute(Arrays.asList(
+      new Record("fname", "bob"), new Record("fname", "joe"), new Record("fname", "bob"), new Record("fname", "ann")
+    ), context);
+
+    Assert.assertEquals(1, table.reads.size());
+    Assert.assertEquals(3, table.reads.get(0).size());
+    Assert.assertEquals("21", records.get(0).getValue("fname_age"));
+    Assert.assertEquals("Los Angeles, CA", records.get(0).getValue("fname_city"));
+    Assert.assertEquals("34", records.get(1).getValue("fname_age"));
+    Assert.assertEquals(1, records.get(1).length() - 1);
+    Assert.assertEquals("Los Angeles, CA", records.get(2).getValue("fname_city"));
+    Assert.assertEquals(1, records.get(3).length());
+
+    // Keys looked up before are served from the cache.
+    records = step.execute(Arrays.asList(new Record("fname", "joe"), new Record("fname", "sam")), context);
+    Assert.assertEquals(2, table.reads.size());
+    Assert.assertEquals(1, table.reads.get(1).size());
+    Assert.assertEquals("34", records.get(0).getValue("fname_age"));
+    CacheStats stats = step.stats();
+    Assert.assertEquals(1, stats.hitCount());
+    Assert.assertEquals(4, stats.missCount());
+  }
+
+  @Test(expected = StepException.class)
+  public void testInvalidType() throws Exception {
+    TableLookup step = new TableLookup(0, "table-lookup fname lookupTable", "fname", "lookupTable");
+    step.execute(Arrays.asList(new Record("fname", 1)), context(new MemoryTableLookup()));
+  }
+}
@@ -159,4 +159,36 @@ public class RecordConvertorTest {
     Assert.assertEquals(2.0, results.get(0).get("l2d"));
     Assert.assertEquals(2.3, (Double)results.get(0).get("f2d"), 0.01);
   }
+
+  @Test
+  public void testRecordsOfDifferentLayouts() throws Exception {
+    Schema schema = Schema.recordOf(
+      "output",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE)))
+    );
+
+    Record first = new Record("id", "1").add("name", "a").add("score", 1.5);
+    Record second = new Record(first).setValue(0, 2).setValue(1, "b");
+    Record reordered = new Record("score", "3.5").add("ID", 3);
+    Record widened = new Record("x", 0).add("id", 4).add("name", "d").add("score", 4);
+
+    RecordConvertor convertor = new RecordConvertor();
+    List<StructuredRecord> results =
+      convertor.toStructureRecord(Arrays.asList(first, second, reordered, widened, first), schema);
+
+    Assert.assertEquals(1, results.get(0).get("id"));
+    Assert.assertEquals("a", results.get(0).get("name"));
+    Assert.assertEquals(1.5, results.get(0).get("score"));
+    Assert.assertEquals(2, results.get(1).get("id"));
+    Assert.assertEquals("b", results.get(1).get("name"));
+    Assert.assertEquals(3, results.get(2).get("id"));
+    Assert.assertNull(results.get(2).get("name"));
+    Assert.assertEquals(3.5, results.get(2).get("score"));
+    Assert.assertEquals(4, results.get(3).get("id"));
+    Assert.assertEquals("d", results.get(3).get("name"));
+    Assert.assertEquals(4.0, results.get(3).get("score"));
+    Assert.assertEquals(results.get(0), results.get(4));
+  }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.unix4j.Unix4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of applying a sed expression to a value with {@link SedExpression}, against
+ * running it with Unix4j for every value.
+ *
+ * <p>Run with : <code>java -cp ... co.cask.wrangler.utils.SedExpressionBenchmark</code></p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SedExpressionBenchmark {
+  @Param({"s/a/X/", "s/a/X/g", "s/(\\w+) (\\w+)/$2 $1/I", "s/o/0/2g"})
+  private String expression;
+
+  private final String value = "The quick brown fox jumps over a lazy dog, again and again";
+  private SedExpression sed;
+
+  @Setup
+  public void setup() {
+    sed = SedExpression.compile(expression);
+  }
+
+  @Benchmark
+  public String sedExpression() {
+    return sed.apply(value);
+  }
+
+  @Benchmark
+  public String unix4j() {
+    return Unix4j.echo(value).sed(expression).toStringResult();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(SedExpressionBenchmark.class.getSimpleName()).build()).run();
+  }
+}
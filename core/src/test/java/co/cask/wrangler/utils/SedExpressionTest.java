@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.unix4j.Unix4j;
+
+import java.util.Random;
+
+/**
+ * Tests {@link SedExpression}
+ */
+public class SedExpressionTest {
+
+  private static String expected(String expression, String value) {
+    try {
+      return Unix4j.echo(value).sed(expression).toStringResult();
+    } catch (Exception e) {
+      return e.getClass().getName();
+    }
+  }
+
+  private static String actual(String expression, String value) {
+    try {
+      return SedExpression.compile(expression).apply(value);
+    } catch (Exception e) {
+      return e.getClass().getName();
+    }
+  }
+
+  private static void assertSame(String expression, String value) {
+    Assert.assertEquals(expression + " on '" + value + "'", expected(expression, value), actual(expression, value));
+  }
+
+  @Test
+  public void testSubstitutions() throws Exception {
+    String[] values = new String[] {
+      "", "a", "abc", "aAbBaA", "Hello World", "a.b.c", "2017-05-01", "a\nb", "a\n", "  spaced  ", "x$1\\y&"
+    };
+    String[] expressions = new String[] {
+      "s/a/X/", "s/a/X/g", "s/a/X/I", "s/a/X/gI", "s/a/X/2", "s/a/X/2g", "s/a/X/3I", "s/a/X/0", "s/a/X/i",
+      "s/a/X/p", "s/b*/-/g", "s/$/</g", "s/^/>/", "s/(\\w)(\\w)/$2$1/g", "s/(a)/[$1$10]/g", "s/(a)/$2/",
+      "s/a/\\$1\\\\/", "s/a/&\\1/", "s/(?<x>b)/${x}${x}/g", "s/a/X/ extra", "  s/a/X/g  ", "s|a|/|g",
+      "s#\\##-#g", "s/\\//:/g", "s/[/X/", "s/a/X", "s\\a\\X\\", "y/ab/ba/", "s/a/$/", "s/\\./,/g",
+      "s/-0?(\\d)/ $1/g", "s/ +/ /g", "s/^\\s+|\\s+$//g", "s/o/0/2g"
+    };
+    for (String expression : expressions) {
+      for (String value : values) {
+        assertSame(expression, value);
+      }
+    }
+  }
+
+  @Test
+  public void testRandomSubstitutions() throws Exception {
+    Random random = new Random(42);
+    String[] regexes = new String[] { "a", "a+", "[ab]", "(a)(b)?", "^a", "b$", "x*", ".", "(a|b)c", "\\s" };
+    String[] replacements = new String[] { "", "X", "$1", "<$0>", "\\$", "$1$2", "ab" };
+    String[] flags = new String[] { "", "g", "I", "gI", "2", "3g", "1I" };
+    String alphabet = "abcABx \n";
+    for (int i = 0; i < 5000; ++i) {
+      StringBuilder value = new StringBuilder();
+      int length = random.nextInt(12);
+      for (int j = 0; j < length; ++j) {
+        value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      String expression = "s/" + regexes[random.nextInt(regexes.length)] + "/"
+        + replacements[random.nextInt(replacements.length)] + "/" + flags[random.nextInt(flags.length)];
+      assertSame(expression, value.toString());
+    }
+  }
+}
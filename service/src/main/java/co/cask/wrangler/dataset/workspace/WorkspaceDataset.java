@@ -31,8 +31,8 @@ import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.internal.io.SchemaTypeAdapter;
 import co.cask.wrangler.api.DirectiveConfig;
-import co.cask.wrangler.api.ObjectSerDe;
 import co.cask.wrangler.api.Record;
+import co.cask.wrangler.api.RecordSerDe;
 import com.google.common.base.Charsets;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -44,6 +44,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  *
@@ -61,6 +62,17 @@ public class WorkspaceDataset extends AbstractDataset {
   public static final byte[] UPDATED_COL    = Bytes.toBytes("updated");
   public static final byte[] PROPERTIES_COL = Bytes.toBytes("properties");
   public static final byte[] REQUEST_COL    = Bytes.toBytes("request");
+  public static final byte[] INDEX_COL      = Bytes.toBytes("index");
+  // Version of the data of the workspace, replaced with a random value by every write of the data.
+  public static final byte[] VERSION_COL    = Bytes.toBytes("version");
+
+  // Number of records stored within a single chunk.
+  public static final int RECORDS_PER_CHUNK = 1000;
+
+  // Chunks are stored under keys starting with this byte, which never appears within UTF-8 encoded
+  // workspace ids, so that all the chunks sort after the workspaces and are skipped when listing them.
+  // Every write of the records stores its chunks under a new generation, which the index points to.
+  private static final byte[] CHUNK_PREFIX = new byte[] { (byte) 0xFF };
 
   public WorkspaceDataset(DatasetSpecification specification,
                           @EmbeddedDataset("workspace") Table table){
@@ -111,14 +123,15 @@ public class WorkspaceDataset extends AbstractDataset {
     }
 
     byte[][] columns = new byte[][] {
-     CREATED_COL, TYPE_COL, NAME_COL, PROPERTIES_COL
+     CREATED_COL, TYPE_COL, NAME_COL, PROPERTIES_COL, VERSION_COL
     };
 
     byte[][] data = new byte[][] {
       Bytes.toBytes(System.currentTimeMillis() / 1000),
       Bytes.toBytes(type.getType()),
       Bytes.toBytes(name),
-      toJsonBytes(properties)
+      toJsonBytes(properties),
+      newVersion()
     };
 
     try {
@@ -163,7 +176,7 @@ public class WorkspaceDataset extends AbstractDataset {
   public List<KeyValue<String, String>> getWorkspaces() throws WorkspaceException {
     List<KeyValue<String, String>> values = new ArrayList<>();
     Row row;
-    try (Scanner scanner = table.scan(null, null)) {
+    try (Scanner scanner = table.scan(null, CHUNK_PREFIX)) {
       while((row = scanner.next()) != null) {
         byte[] key = row.getRow();
         String id = Bytes.toString(key);
@@ -194,9 +207,10 @@ public class WorkspaceDataset extends AbstractDataset {
    * @param id to be deleted.
    * @throws WorkspaceException thrown if there is issue deleting workspace.
    */
-  @WriteOnly
+  @ReadWrite
   public void deleteWorkspace(String id) throws WorkspaceException {
     try {
+      deleteChunks(id);
       table.delete(toKey(id));
     } catch (DataSetException e){
       throw new WorkspaceException(
@@ -209,12 +223,13 @@ public class WorkspaceDataset extends AbstractDataset {
   public void writeToWorkspace(String id, byte[] key, DataType type, byte[] data)
     throws WorkspaceException {
     byte[][] columns = new byte[][] {
-      UPDATED_COL, TYPE_COL, key
+      UPDATED_COL, TYPE_COL, VERSION_COL, key
     };
 
     byte[][] bytes = new byte[][] {
       Bytes.toBytes(System.currentTimeMillis() / 1000),
       Bytes.toBytes(type.getType()),
+      newVersion(),
       data
     };
 
@@ -228,6 +243,207 @@ public class WorkspaceDataset extends AbstractDataset {
     }
   }
 
+  /**
+   * Writes records to the workspace.
+   *
+   * <p>
+   *   Records are split into chunks of {@link #RECORDS_PER_CHUNK} records, each chunk is serialized
+   *   and stored under it's own key. An index with the number of records is stored with the workspace,
+   *   so that a range of records can be read without reading the chunks that are outside of the range.
+   * </p>
+   *
+   * <p>
+   *   The chunks of every write are stored under a new generation, the index is switched to it once all
+   *   the chunks are written and the chunks of the previous generation are deleted. Records being
+   *   replaced are hence readable until the index is switched, and are never mixed with new records.
+   * </p>
+   *
+   * @param id of the workspace the records are written to.
+   * @param records to be written.
+   * @throws WorkspaceException thrown when there is issue writing the records.
+   */
+  @ReadWrite
+  public void writeRecords(String id, List<Record> records) throws WorkspaceException {
+    long generation = newGeneration();
+    int chunks = 0;
+    for (int start = 0; start < records.size(); start += RECORDS_PER_CHUNK) {
+      int end = Math.min(records.size(), start + RECORDS_PER_CHUNK);
+      writeChunk(id, generation, chunks++, records.subList(start, end));
+    }
+    writeIndex(id, generation, records.size());
+  }
+
+  /**
+   * @return a new generation for the chunks of a write of records, see {@link #writeChunk(String, long, int, List)}.
+   */
+  public static long newGeneration() {
+    return UUID.randomUUID().getMostSignificantBits();
+  }
+
+  /**
+   * Writes a chunk of records to the workspace under a generation, the records written are visible
+   * only once the index is switched to the generation with {@link #writeIndex(String, long, int)}.
+   *
+   * @param id of the workspace the records are written to.
+   * @param generation of the chunks being written, from {@link #newGeneration()}.
+   * @param chunk index of the chunk, starting from zero.
+   * @param records of the chunk, all the chunks but the last must have {@link #RECORDS_PER_CHUNK} records.
+   * @throws WorkspaceException thrown when there is issue writing the records.
+   */
+  @WriteOnly
+  public void writeChunk(String id, long generation, int chunk, List<Record> records) throws WorkspaceException {
+    RecordSerDe serDe = new RecordSerDe();
+    try {
+      table.put(toChunkKey(id, generation, chunk), DATA_COL, serDe.toByteArray(records));
+    } catch (IOException | DataSetException e) {
+      throw new WorkspaceException(
+        String.format("Unable to write records to workspace '%s'. %s", id, e.getMessage())
+      );
+    }
+  }
+
+  /**
+   * Switches the index of the workspace to the records written in chunks of a generation with
+   * {@link #writeChunk(String, long, int, List)}, and deletes the chunks of the records replaced.
+   *
+   * @param id of the workspace the records are written to.
+   * @param generation of the chunks written.
+   * @param count total number of records written.
+   * @throws WorkspaceException thrown when there is issue writing the index.
+   */
+  @ReadWrite
+  public void writeIndex(String id, long generation, int count) throws WorkspaceException {
+    try {
+      deleteChunks(id);
+
+      byte[][] columns = new byte[][] {
+        UPDATED_COL, TYPE_COL, VERSION_COL, INDEX_COL
+      };
+
+      byte[][] bytes = new byte[][] {
+        Bytes.toBytes(System.currentTimeMillis() / 1000),
+        Bytes.toBytes(DataType.RECORDS.getType()),
+        newVersion(),
+        Bytes.add(Bytes.toBytes(RECORDS_PER_CHUNK), Bytes.toBytes(count), Bytes.toBytes(generation))
+      };
+      table.put(toKey(id), columns, bytes);
+      // Records written before chunking was introduced are stored within the workspace row.
+      table.delete(toKey(id), DATA_COL);
+    } catch (DataSetException e) {
+      throw new WorkspaceException(
+        String.format("Unable to write records to workspace '%s'. %s", id, e.getMessage())
+      );
+    }
+  }
+
+  /**
+   * Reads all the records stored in the workspace.
+   *
+   * @param id of the workspace.
+   * @return records stored in the workspace, empty if there are none.
+   * @throws WorkspaceException thrown when there is issue reading the records.
+   */
+  @ReadOnly
+  public List<Record> getRecords(String id) throws WorkspaceException {
+    return getRecords(id, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Reads a range of records stored in the workspace, only the chunks holding the range are read.
+   *
+   * @param id of the workspace.
+   * @param offset of the first record to be read.
+   * @param limit maximum number of records to be read.
+   * @return records within the range, empty if there are none.
+   * @throws WorkspaceException thrown when there is issue reading the records.
+   */
+  @ReadOnly
+  public List<Record> getRecords(String id, int offset, int limit) throws WorkspaceException {
+    if (offset < 0 || limit < 0) {
+      throw new WorkspaceException(
+        String.format("Invalid range of records, offset %d and limit %d", offset, limit)
+      );
+    }
+
+    List<Record> records = new ArrayList<>();
+    byte[] index = table.get(toKey(id), INDEX_COL);
+    if (index == null) {
+      // Records written before chunking was introduced.
+      List<Record> all = getData(id, DATA_COL, DataType.RECORDS);
+      if (all != null && offset < all.size()) {
+        records.addAll(all.subList(offset, (int) Math.min(all.size(), (long) offset + limit)));
+      }
+      return records;
+    }
+
+    int chunkSize = Bytes.toInt(index, 0);
+    int count = Bytes.toInt(index, Bytes.SIZEOF_INT);
+    long generation = Bytes.toLong(index, 2 * Bytes.SIZEOF_INT);
+    int end = (int) Math.min(count, (long) offset + limit);
+    if (offset >= end) {
+      return records;
+    }
+
+    RecordSerDe serDe = new RecordSerDe();
+    int first = offset / chunkSize;
+    int last = (end - 1) / chunkSize;
+    Row row;
+    try (Scanner scanner = table.scan(toChunkKey(id, generation, first),
+                                         toChunkKey(id, generation, last + 1))) {
+      int chunk = first;
+      while ((row = scanner.next()) != null) {
+        List<Record> values = serDe.toObject(row.get(DATA_COL));
+        int from = Math.max(0, offset - chunk * chunkSize);
+        int to = Math.min(values.size(), end - chunk * chunkSize);
+        records.addAll(values.subList(from, to));
+        chunk++;
+      }
+    } catch (IOException | DataSetException e) {
+      throw new WorkspaceException(
+        String.format("Unable to read records from workspace '%s'. %s", id, e.getMessage())
+      );
+    }
+    return records;
+  }
+
+  /**
+   * Deletes the chunks of a generation that was not switched to, as when a write of the records fails.
+   *
+   * @param id of the workspace the records were written to.
+   * @param generation of the chunks written.
+   * @param chunks number of chunks written.
+   * @throws WorkspaceException thrown when there is issue deleting the chunks.
+   */
+  @WriteOnly
+  public void deleteChunks(String id, long generation, int chunks) throws WorkspaceException {
+    try {
+      for (int chunk = 0; chunk < chunks; ++chunk) {
+        table.delete(toChunkKey(id, generation, chunk));
+      }
+    } catch (DataSetException e) {
+      throw new WorkspaceException(
+        String.format("Unable to delete records of workspace '%s'. %s", id, e.getMessage())
+      );
+    }
+  }
+
+  /**
+   * Deletes the chunks of the generation the index of the workspace points to.
+   */
+  private void deleteChunks(String id) {
+    byte[] index = table.get(toKey(id), INDEX_COL);
+    if (index == null) {
+      return;
+    }
+    int chunkSize = Bytes.toInt(index, 0);
+    int count = Bytes.toInt(index, Bytes.SIZEOF_INT);
+    long generation = Bytes.toLong(index, 2 * Bytes.SIZEOF_INT);
+    int chunks = (count + chunkSize - 1) / chunkSize;
+    for (int chunk = 0; chunk < chunks; ++chunk) {
+      table.delete(toChunkKey(id, generation, chunk));
+    }
+  }
+
   @WriteOnly
   public void updateWorkspace(String id, byte[] key, byte[] data)
     throws WorkspaceException {
@@ -240,6 +456,12 @@ public class WorkspaceDataset extends AbstractDataset {
       data
     };
 
+    // Data replaced through an update gets a new version, as with any other write of the data.
+    if (Bytes.equals(key, DATA_COL)) {
+      columns = new byte[][] { UPDATED_COL, VERSION_COL, key };
+      bytes = new byte[][] { bytes[0], newVersion(), data };
+    }
+
     try {
       table.put(toKey(id), columns, bytes);
     } catch (DataSetException e) {
@@ -327,11 +549,11 @@ public class WorkspaceDataset extends AbstractDataset {
       String value = Bytes.toString(bytes);
       return (T) value;
     } else if (type == DataType.RECORDS){
-      ObjectSerDe<List<Record>> serDe = new ObjectSerDe<>();
+      RecordSerDe serDe = new RecordSerDe();
       try {
         List<Record> records = serDe.toObject(bytes);
         return (T) records;
-      } catch (IOException | ClassNotFoundException e) {
+      } catch (IOException e) {
         throw new WorkspaceException(e.getMessage());
       }
     } else {
@@ -339,6 +561,18 @@ public class WorkspaceDataset extends AbstractDataset {
     }
   }
 
+  /**
+   * Returns the version of the data stored within the workspace, which changes with every write of
+   * the data, whichever instance of the service it is written by.
+   *
+   * @param id of the workspace.
+   * @return version of the data, null if the data was written before versions were recorded.
+   */
+  @ReadOnly
+  public byte[] getVersion(String id) {
+    return table.get(toKey(id), VERSION_COL);
+  }
+
   /**
    * Returns the type of content stored within the workspace.
    *
@@ -355,11 +589,24 @@ public class WorkspaceDataset extends AbstractDataset {
     return type;
   }
 
+  /**
+   * @return a new version for the data of a workspace.
+   */
+  private static byte[] newVersion() {
+    UUID uuid = UUID.randomUUID();
+    return Bytes.add(Bytes.toBytes(uuid.getMostSignificantBits()), Bytes.toBytes(uuid.getLeastSignificantBits()));
+  }
+
   private byte[] toKey(String value) {
     value = String.format("%s", value);
     return Bytes.toBytes(value);
   }
 
+  private byte[] toChunkKey(String id, long generation, int chunk) {
+    return Bytes.add(CHUNK_PREFIX, toKey(id),
+                     Bytes.add(new byte[] { 0 }, Bytes.toBytes(generation), Bytes.toBytes(chunk)));
+  }
+
   private byte[] toJsonBytes(Map<String, String> properties) {
     String value = gson.toJson(properties);
     return Bytes.toBytes(value);
@@ -32,7 +32,6 @@ import co.cask.wrangler.PropertyIds;
 import co.cask.wrangler.RequestExtractor;
 import co.cask.wrangler.SamplingMethod;
 import co.cask.wrangler.ServiceUtils;
-import co.cask.wrangler.api.ObjectSerDe;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.dataset.connections.Connection;
 import co.cask.wrangler.dataset.connections.ConnectionStore;
@@ -544,9 +543,7 @@ public class DatabaseService extends AbstractHttpServiceHandler {
 
             String identifier = ServiceUtils.generateMD5(table);
             ws.createWorkspaceMeta(identifier, table);
-            ObjectSerDe<List<Record>> serDe = new ObjectSerDe<>();
-            byte[] data = serDe.toByteArray(records);
-            ws.writeToWorkspace(identifier, WorkspaceDataset.DATA_COL, DataType.RECORDS, data);
+            ws.writeRecords(identifier, records);
 
             Map<String, String> properties = new HashMap<>();
             properties.put(PropertyIds.ID, identifier);
@@ -16,12 +16,16 @@
 
 package co.cask.wrangler.service.directive;
 
+import co.cask.cdap.api.Transactional;
+import co.cask.cdap.api.TxRunnable;
 import co.cask.cdap.api.annotation.UseDataSet;
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.DatasetContext;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.lib.KeyValue;
 import co.cask.cdap.api.service.http.AbstractHttpServiceHandler;
+import co.cask.cdap.api.service.http.HttpContentConsumer;
 import co.cask.cdap.api.service.http.HttpServiceRequest;
 import co.cask.cdap.api.service.http.HttpServiceResponder;
 import co.cask.cdap.internal.io.SchemaTypeAdapter;
@@ -32,11 +36,9 @@ import co.cask.wrangler.ServiceUtils;
 import co.cask.wrangler.api.DirectiveConfig;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.Directives;
-import co.cask.wrangler.api.ObjectSerDe;
 import co.cask.wrangler.api.PipelineContext;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.api.TransientStore;
-import co.cask.wrangler.api.statistics.Statistics;
 import co.cask.wrangler.api.validator.Validator;
 import co.cask.wrangler.api.validator.ValidatorException;
 import co.cask.wrangler.dataset.workspace.DataType;
@@ -49,18 +51,19 @@ import co.cask.wrangler.parser.UsageRegistry;
 import co.cask.wrangler.proto.Request;
 import co.cask.wrangler.sampling.Reservoir;
 import co.cask.wrangler.service.connections.ConnectionType;
-import co.cask.wrangler.statistics.BasicStatistics;
+import co.cask.wrangler.statistics.ColumnProfile;
+import co.cask.wrangler.statistics.ProfilingStatistics;
 import co.cask.wrangler.steps.DefaultTransientStore;
 import co.cask.wrangler.utils.Json2Schema;
 import co.cask.wrangler.utils.RecordConvertorException;
 import co.cask.wrangler.utils.XPathUtil;
 import co.cask.wrangler.validator.ColumnNameValidator;
 import com.google.common.base.Function;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
-import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
@@ -72,6 +75,7 @@ import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
@@ -111,9 +115,26 @@ public class DirectivesService extends AbstractHttpServiceHandler {
   private static final String RECORD_DELIMITER_HEADER = "recorddelimiter";
   private static final String DELIMITER_HEADER = "delimiter";
 
+  // Records decoded from the workspaces, shared by all the instances of the handler.
+  private static final WorkspaceRecordCache RECORDS = new WorkspaceRecordCache();
+
+  // Checkpoints of the records produced by the recipes, shared by all the instances of the handler.
+  private static final RecipeCheckpoints CHECKPOINTS = new RecipeCheckpoints();
+
   @UseDataSet(WORKSPACE_DATASET)
   private WorkspaceDataset table;
 
+  // Profiles the records summarized, shared by all the instances of the handler. Created on the first summary,
+  // its worker threads are daemons that exit when they are idle.
+  private static ProfilingStatistics profiler;
+
+  private static synchronized ProfilingStatistics profiler() throws Exception {
+    if (profiler == null) {
+      profiler = new ProfilingStatistics();
+    }
+    return profiler;
+  }
+
   /**
    * Creates a workspace.
    *
@@ -211,6 +232,8 @@ public class DirectivesService extends AbstractHttpServiceHandler {
                      @PathParam("id") String id) {
     try {
       table.deleteWorkspace(id);
+      RECORDS.invalidate(id);
+      CHECKPOINTS.invalidate(id);
       success(responder, String.format("Successfully deleted workspace '%s'", id));
     } catch (WorkspaceException e) {
       error(responder, e.getMessage());
@@ -284,14 +307,15 @@ public class DirectivesService extends AbstractHttpServiceHandler {
    *
    * @param request Handler for incoming request.
    * @param responder Responder for data going out.
+   * @return consumer of the data uploaded.
    */
   @POST
   @Path("workspaces")
-  public void upload(HttpServiceRequest request, HttpServiceResponder responder) {
+  public HttpContentConsumer upload(HttpServiceRequest request, HttpServiceResponder responder) {
 
     try {
-      String name = request.getHeader(PropertyIds.FILE_NAME);
-      String id = ServiceUtils.generateMD5(name);
+      final String name = request.getHeader(PropertyIds.FILE_NAME);
+      final String id = ServiceUtils.generateMD5(name);
 
       // if workspace doesn't exist, then we create the workspace before
       // adding data to the workspace.
@@ -299,84 +323,35 @@ public class DirectivesService extends AbstractHttpServiceHandler {
         table.createWorkspaceMeta(id, name);
       }
 
-      RequestExtractor handler = new RequestExtractor(request);
-
-      // For back-ward compatibility, we check if there is delimiter specified
-      // using 'recorddelimiter' or 'delimiter'
-      String delimiter = handler.getHeader(RECORD_DELIMITER_HEADER, "\\u001A");
-      delimiter = handler.getHeader(DELIMITER_HEADER, delimiter);
-
-      // Extract charset, if not specified, default it to UTF-8.
-      String charset = handler.getHeader(RequestExtractor.CHARSET_HEADER, "UTF-8");
-
-      // Get content type - application/data-prep, application/octet-stream or text/plain.
-      String contentType = handler.getHeader(RequestExtractor.CONTENT_TYPE_HEADER, "application/data-prep");
-
-      // Extract content.
-      byte[] content = handler.getContent();
-      if (content == null) {
-        error(responder, "Body not present, please post the file containing the records to be wrangled.");
-        return;
-      }
-
-      // Depending on content type, load data.
-      DataType type = DataType.fromString(contentType);
-      switch(type) {
-        case TEXT: {
-          // Convert the type into unicode.
-          String body = Charset.forName(charset).decode(ByteBuffer.wrap(content)).toString();
-          table.writeToWorkspace(id, WorkspaceDataset.DATA_COL, DataType.TEXT, Bytes.toBytes(body));
-          break;
-        }
-
-        case RECORDS: {
-          delimiter = StringEscapeUtils.unescapeJava(delimiter);
-          String body = Charset.forName(charset).decode(ByteBuffer.wrap(content)).toString();
-          List<Record> records = new ArrayList<>();
-          for (String line : body.split(delimiter)) {
-            records.add(new Record(COLUMN_NAME, line));
-          }
-          ObjectSerDe<List<Record>> serDe = new ObjectSerDe<>();
-          byte[] bytes = serDe.toByteArray(records);
-          table.writeToWorkspace(id, WorkspaceDataset.DATA_COL, DataType.RECORDS, bytes);
-          break;
-        }
-
-        case BINARY: {
-          table.writeToWorkspace(id, WorkspaceDataset.DATA_COL, DataType.BINARY, content);
-          break;
-        }
-
-        default: {
-          error(responder, "Invalid content type. Supports text/plain, application/octet-stream " +
-            "and application/data-prep");
-          break;
+      return new UploadConsumer(request, responder, id, COLUMN_NAME) {
+        @Override
+        protected void onUploaded(HttpServiceResponder responder) throws WorkspaceException {
+          // Write properties for workspace.
+          Map<String, String> properties = new HashMap<>();
+          properties.put(PropertyIds.ID, id);
+          properties.put(PropertyIds.NAME, name);
+          properties.put(PropertyIds.DELIMITER, delimiter);
+          properties.put(PropertyIds.CHARSET, charset.name());
+          properties.put(PropertyIds.CONTENT_TYPE, contentType);
+          properties.put(PropertyIds.CONNECTION_TYPE, ConnectionType.UPLOAD.getType());
+          table.writeProperties(id, properties);
+
+          JsonArray array = new JsonArray();
+          JsonObject object = (JsonObject) GSON.toJsonTree(properties);
+          object.addProperty(PropertyIds.SAMPLER_TYPE, SamplingMethod.NONE.getMethod());
+          array.add(object);
+
+          JsonObject response = new JsonObject();
+          response.addProperty("status", HttpURLConnection.HTTP_OK);
+          response.addProperty("message", "Success");
+          response.addProperty("count", array.size());
+          response.add("values", array);
+          sendJson(responder, HttpURLConnection.HTTP_OK, response.toString());
         }
-      }
-
-      // Write properties for workspace.
-      Map<String, String> properties = new HashMap<>();
-      properties.put(PropertyIds.ID, id);
-      properties.put(PropertyIds.NAME, name);
-      properties.put(PropertyIds.DELIMITER, delimiter);
-      properties.put(PropertyIds.CHARSET, charset);
-      properties.put(PropertyIds.CONTENT_TYPE, contentType);
-      properties.put(PropertyIds.CONNECTION_TYPE, ConnectionType.UPLOAD.getType());
-      table.writeProperties(id, properties);
-
-      JsonArray array = new JsonArray();
-      JsonObject object = (JsonObject) GSON.toJsonTree(properties);
-      object.addProperty(PropertyIds.SAMPLER_TYPE, SamplingMethod.NONE.getMethod());
-      array.add(object);
-
-      JsonObject response = new JsonObject();
-      response.addProperty("status", HttpURLConnection.HTTP_OK);
-      response.addProperty("message", "Success");
-      response.addProperty("count", array.size());
-      response.add("values", array);
-      sendJson(responder, HttpURLConnection.HTTP_OK, response.toString());
-    } catch (WorkspaceException | IOException e) {
+      }.validate();
+    } catch (WorkspaceException e) {
       error(responder, e.getMessage());
+      return null;
     }
   }
 
@@ -386,12 +361,64 @@ public class DirectivesService extends AbstractHttpServiceHandler {
    * @param request Handler for incoming request.
    * @param responder Responder for data going out.
    * @param id Upload data to the workspace.
+   * @return consumer of the data uploaded.
    */
   @POST
   @Path("workspaces/{id}/upload")
-  public void upload(HttpServiceRequest request, HttpServiceResponder responder,
-                     @PathParam("id") String id) {
-    try {
+  public HttpContentConsumer upload(HttpServiceRequest request, HttpServiceResponder responder,
+                                    @PathParam("id") final String id) {
+    return new UploadConsumer(request, responder, id, id) {
+      @Override
+      protected void onUploaded(HttpServiceResponder responder) throws WorkspaceException {
+        // Write properties for workspace.
+        Map<String, String> properties = new HashMap<>();
+        properties.put(PropertyIds.DELIMITER, delimiter);
+        properties.put(PropertyIds.CHARSET, charset.name());
+        properties.put(PropertyIds.CONTENT_TYPE, contentType);
+        properties.put(PropertyIds.CONNECTION_TYPE, ConnectionType.UPLOAD.getType());
+        table.writeProperties(id, properties);
+
+        success(responder, String.format("Successfully uploaded data to workspace '%s'", id));
+      }
+    }.validate();
+  }
+
+  /**
+   * Consumes the data uploaded to a workspace as it's received.
+   *
+   * <p>
+   *   Data of type {@link DataType#RECORDS} is decoded and split into records on the fly, the records
+   *   being written to the workspace a chunk at a time, so that only a chunk of records is held in memory
+   *   irrespective of the size of the data uploaded. The chunks are written under a new generation, that
+   *   the workspace is switched to once the upload is complete, so the records of the workspace are
+   *   replaced all at once and are left untouched when the upload fails.
+   * </p>
+   */
+  private abstract class UploadConsumer extends HttpContentConsumer {
+    private final HttpServiceResponder responder;
+    private final String id;
+    private final String column;
+    protected final String contentType;
+    protected final Charset charset;
+    protected final String delimiter;
+    private final DataType type;
+
+    // Splits the records, when the data is uploaded as records.
+    private final RecordSplitter splitter;
+    private final List<Record> records = new ArrayList<>();
+    private final long generation = WorkspaceDataset.newGeneration();
+    private int chunks;
+    private int count;
+
+    // Data received, when the data is not uploaded as records.
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private long received;
+
+    UploadConsumer(HttpServiceRequest request, HttpServiceResponder responder, String id, String column) {
+      this.responder = responder;
+      this.id = id;
+      this.column = column;
+
       RequestExtractor handler = new RequestExtractor(request);
 
       // For back-ward compatibility, we check if there is delimiter specified
@@ -400,80 +427,142 @@ public class DirectivesService extends AbstractHttpServiceHandler {
       delimiter = handler.getHeader(DELIMITER_HEADER, delimiter);
 
       // Extract charset, if not specified, default it to UTF-8.
-      String charset = handler.getHeader(RequestExtractor.CHARSET_HEADER, "UTF-8");
+      this.charset = Charset.forName(handler.<String>getHeader(RequestExtractor.CHARSET_HEADER, "UTF-8"));
 
       // Get content type - application/data-prep, application/octet-stream or text/plain.
-      String contentType = handler.getHeader(RequestExtractor.CONTENT_TYPE_HEADER, "application/data-prep");
+      this.contentType = handler.getHeader(RequestExtractor.CONTENT_TYPE_HEADER, "application/data-prep");
+      this.type = DataType.fromString(contentType);
+
+      if (type == DataType.RECORDS) {
+        delimiter = StringEscapeUtils.unescapeJava(delimiter);
+        this.splitter = new RecordSplitter(charset, delimiter);
+      } else {
+        this.splitter = null;
+      }
+      this.delimiter = delimiter;
+    }
+
+    /**
+     * Checks if the type of data uploaded is supported.
+     *
+     * @return this consumer if the type of data is supported, null otherwise.
+     */
+    @Nullable
+    UploadConsumer validate() {
+      if (type != DataType.TEXT && type != DataType.RECORDS && type != DataType.BINARY) {
+        error(responder, "Invalid content type. Supports text/plain, application/octet-stream " +
+          "and application/data-prep");
+        return null;
+      }
+      return this;
+    }
+
+    /**
+     * Invoked once the data is written to the workspace, to write the properties and respond.
+     */
+    protected abstract void onUploaded(HttpServiceResponder responder) throws WorkspaceException;
+
+    @Override
+    public void onReceived(ByteBuffer chunk, Transactional transactional) throws Exception {
+      received += chunk.remaining();
+      if (type != DataType.RECORDS) {
+        byte[] bytes = new byte[chunk.remaining()];
+        chunk.get(bytes);
+        content.write(bytes);
+        return;
+      }
+
+      for (String line : splitter.split(chunk)) {
+        records.add(new Record(column, line));
+      }
+      if (records.size() >= WorkspaceDataset.RECORDS_PER_CHUNK) {
+        transactional.execute(new TxRunnable() {
+          @Override
+          public void run(DatasetContext context) throws Exception {
+            WorkspaceDataset ws = context.getDataset(WORKSPACE_DATASET);
+            writeChunks(ws, false);
+          }
+        });
+      }
+    }
 
-      // Extract content.
-      byte[] content = handler.getContent();
-      if (content == null) {
-        error(responder, "Body not present, please post the file containing the records to be wrangle.");
+    @Override
+    public void onFinish(HttpServiceResponder responder) throws Exception {
+      if (received == 0) {
+        error(responder, "Body not present, please post the file containing the records to be wrangled.");
         return;
       }
 
-      // Depending on content type, load data.
-      DataType type = DataType.fromString(contentType);
-      switch(type) {
+      switch (type) {
         case TEXT: {
           // Convert the type into unicode.
-          String body = Charset.forName(charset).decode(ByteBuffer.wrap(content)).toString();
+          String body = charset.decode(ByteBuffer.wrap(content.toByteArray())).toString();
           table.writeToWorkspace(id, WorkspaceDataset.DATA_COL, DataType.TEXT, Bytes.toBytes(body));
           break;
         }
 
         case RECORDS: {
-          delimiter = StringEscapeUtils.unescapeJava(delimiter);
-          String body = Charset.forName(charset).decode(ByteBuffer.wrap(content)).toString();
-          List<Record> records = new ArrayList<>();
-          for (String line : body.split(delimiter)) {
-            records.add(new Record(id, line));
+          for (String line : splitter.finish()) {
+            records.add(new Record(column, line));
           }
-          ObjectSerDe<List<Record>> serDe = new ObjectSerDe<>();
-          byte[] bytes = serDe.toByteArray(records);
-          table.writeToWorkspace(id, WorkspaceDataset.DATA_COL, DataType.RECORDS, bytes);
+          writeChunks(table, true);
+          table.writeIndex(id, generation, count);
           break;
         }
 
         case BINARY: {
-          table.writeToWorkspace(id, WorkspaceDataset.DATA_COL, DataType.BINARY, content);
-          break;
-        }
-
-        default: {
-          error(responder, "Invalid content type. Supports text/plain, application/octet-stream " +
-            "and application/data-prep");
+          table.writeToWorkspace(id, WorkspaceDataset.DATA_COL, DataType.BINARY, content.toByteArray());
           break;
         }
       }
+      RECORDS.invalidate(id);
+      CHECKPOINTS.invalidate(id);
+      onUploaded(responder);
+    }
 
-      // Write properties for workspace.
-      Map<String, String> properties = new HashMap<>();
-      properties.put(PropertyIds.DELIMITER, delimiter);
-      properties.put(PropertyIds.CHARSET, charset);
-      properties.put(PropertyIds.CONTENT_TYPE, contentType);
-      properties.put(PropertyIds.CONNECTION_TYPE, ConnectionType.UPLOAD.getType());
-      table.writeProperties(id, properties);
+    @Override
+    public void onError(HttpServiceResponder responder, Throwable failureReason) {
+      LOG.warn("Failed to upload data to workspace '{}'", id, failureReason);
+      // Removes the chunks written so far, the workspace still points to the records it had before.
+      try {
+        table.deleteChunks(id, generation, chunks);
+      } catch (WorkspaceException e) {
+        LOG.warn("Failed to remove records partially uploaded to workspace '{}'", id, e);
+      }
+      error(responder, failureReason.getMessage());
+    }
 
-      success(responder, String.format("Successfully uploaded data to workspace '%s'", id));
-    } catch (WorkspaceException | IOException e) {
-      error(responder, e.getMessage());
+    /**
+     * Writes the records split so far as chunks, leaving out the records of an incomplete chunk unless
+     * it's the last chunk.
+     */
+    private void writeChunks(WorkspaceDataset ws, boolean last) throws WorkspaceException {
+      int start = 0;
+      while (records.size() - start >= WorkspaceDataset.RECORDS_PER_CHUNK
+        || (last && start < records.size())) {
+        int end = Math.min(records.size(), start + WorkspaceDataset.RECORDS_PER_CHUNK);
+        ws.writeChunk(id, generation, chunks++, records.subList(start, end));
+        start = end;
+      }
+      count += start;
+      records.subList(0, start).clear();
     }
   }
 
   /**
    * Executes the directives on the record stored in the workspace.
    *
-   * Following is the response from this request
+   * Following is the response from this request, it's streamed as the records are written.
    * {
    *   "status" : 200,
    *   "message" : "Success",
-   *   "count" : 2,
-   *   "header" : [ "a", "b", "c", "d" ],
-   *   "value" : [
+   *   "values" : [
    *     { record 1},
    *     { record 2}
-   *   ]
+   *   ],
+   *   "count" : 2,
+   *   "header" : [ "a", "b", "c", "d" ],
+   *   "types" : { "a" : "string", "b" : "integer", ... }
    * }
    *
    * @param request to gather information of the request.
@@ -488,63 +577,13 @@ public class DirectivesService extends AbstractHttpServiceHandler {
       RequestExtractor handler = new RequestExtractor(request);
       Request user = handler.getContent("UTF-8", Request.class);
       final int limit = user.getSampling().getLimit();
-      List<Record> records = executeDirectives(id, user, new Function<List<Record>, List<Record>>() {
-        @Nullable
-        @Override
-        public List<Record> apply(@Nullable List<Record> records) {
-          int min = Math.min(records.size(), limit);
-          return records.subList(0, min);
-        }
-      });
-
-      JsonArray values = new JsonArray();
-      JsonArray headers = new JsonArray();
-      JsonObject types = new JsonObject();
-      Set<String> header = new HashSet<>();
-
-      // Iterate through all the new records.
-      for (Record record : records) {
-        JsonObject value = new JsonObject();
-        // If output array has more than return result values, we terminate.
-        if (values.size() >= user.getWorkspace().getResults()) {
-          break;
-        }
-
-        // Iterate through all the fields of the record.
-        List<KeyValue<String, Object>> fields = record.getFields();
-        for (KeyValue<String, Object> field : fields) {
-          // If not present in header, add it to header.
-          if (!header.contains(field.getKey())) {
-            headers.add(new JsonPrimitive(field.getKey()));
-            header.add(field.getKey());
-          }
-          Object object = field.getValue();
-
-          if (object != null) {
-            types.addProperty(field.getKey(), object.getClass().getSimpleName().toLowerCase());
-            if ((object.getClass().getMethod("toString").getDeclaringClass() != Object.class)) {
-              value.addProperty(field.getKey(), object.toString());
-            } else {
-              value.addProperty(field.getKey(), "Non-displayable object");
-            }
-          } else {
-            value.add(field.getKey(), JsonNull.INSTANCE);
-          }
-        }
-        values.add(value);
-      }
+      List<Record> records = executeDirectives(id, user, limit);
 
       // Save the recipes being executed.
       table.updateWorkspace(id, WorkspaceDataset.REQUEST_COL, GSON.toJson(user));
 
-      JsonObject response = new JsonObject();
-      response.addProperty("status", HttpURLConnection.HTTP_OK);
-      response.addProperty("message", "Success");
-      response.addProperty("count", values.size());
-      response.add("header", headers); // TODO: Remove this later. 
-      response.add("types", types);
-      response.add("values", values);
-      sendJson(responder, HttpURLConnection.HTTP_OK, response.toString());
+      responder.send(HttpURLConnection.HTTP_OK, new RecordsJsonProducer(records, user.getWorkspace().getResults()),
+                     "application/json");
     } catch (JsonParseException e) {
       LOG.warn(e.getMessage(), e);
       error(responder, "Issue parsing request. " + e.getMessage());
@@ -572,14 +611,7 @@ public class DirectivesService extends AbstractHttpServiceHandler {
       RequestExtractor handler = new RequestExtractor(request);
       Request user = handler.getContent("UTF-8", Request.class);
       final int limit = user.getSampling().getLimit();
-      List<Record> records = executeDirectives(id, user, new Function<List<Record>, List<Record>>() {
-        @Nullable
-        @Override
-        public List<Record> apply(@Nullable List<Record> records) {
-          int min = Math.min(records.size(), limit);
-          return records.subList(0, min);
-        }
-      });
+      List<Record> records = executeDirectives(id, user, limit);
 
       // Final response object.
       JsonObject response = new JsonObject();
@@ -612,9 +644,10 @@ public class DirectivesService extends AbstractHttpServiceHandler {
 
       result.add("validation", columnValidationResult);
 
-      // Generate General and Type related Statistics for each column.
-      Statistics statsGenerator = new BasicStatistics();
-      Record summary = statsGenerator.aggregate(records);
+      // Generate General and Type related Statistics for each column, profiling the records in parallel.
+      ProfilingStatistics profiler = profiler();
+      Map<String, ColumnProfile> profiles = profiler.profile(records);
+      Record summary = profiler.aggregate(profiles, records.size());
 
       Record stats = (Record) summary.getValue("stats");
       Record types = (Record) summary.getValue("types");
@@ -650,6 +683,15 @@ public class DirectivesService extends AbstractHttpServiceHandler {
         }
       }
 
+      for (Map.Entry<String, ColumnProfile> entry : profiles.entrySet()) {
+        JsonObject object = (JsonObject) statistics.get(entry.getKey());
+        if (object == null) {
+          object = new JsonObject();
+          statistics.add(entry.getKey(), object);
+        }
+        object.add("profile", toJson(entry.getValue()));
+      }
+
       // Put the statistics along with validation rules.
       result.add("statistics", statistics);
       response.addProperty("status", HttpURLConnection.HTTP_OK);
@@ -672,14 +714,7 @@ public class DirectivesService extends AbstractHttpServiceHandler {
       RequestExtractor handler = new RequestExtractor(request);
       Request user = handler.getContent("UTF-8", Request.class);
       final int limit = user.getSampling().getLimit();
-      List<Record> records = executeDirectives(id, user, new Function<List<Record>, List<Record>>() {
-        @Nullable
-        @Override
-        public List<Record> apply(@Nullable List<Record> records) {
-          int min = Math.min(records.size(), limit);
-          return records.subList(0, min);
-        }
-      });
+      List<Record> records = executeDirectives(id, user, limit);
 
       // generate a schema based upon the first record
       Json2Schema json2Schema = new Json2Schema();
@@ -743,6 +778,51 @@ public class DirectivesService extends AbstractHttpServiceHandler {
     sendJson(responder, HttpURLConnection.HTTP_OK, response.toString());
   }
 
+  /**
+   * Returns the statistics of the cache of records decoded from the workspaces.
+   *
+   * Following is the response
+   *
+   * {
+   *   "status" : 200,
+   *   "message" : "Success",
+   *   "count" : 1,
+   *   "values" : [
+   *     {
+   *       "size" : 2,
+   *       "hits" : 10,
+   *       "misses" : 2,
+   *       "hitrate" : 0.83,
+   *       "evictions" : 0
+   *     }
+   *   ]
+   * }
+   *
+   * @param request Handler for incoming request.
+   * @param responder Responder for data going out.
+   */
+  @GET
+  @Path("cache")
+  public void cache(HttpServiceRequest request, HttpServiceResponder responder) {
+    CacheStats stats = RECORDS.stats();
+    JsonObject object = new JsonObject();
+    object.addProperty("size", RECORDS.size());
+    object.addProperty("hits", stats.hitCount());
+    object.addProperty("misses", stats.missCount());
+    object.addProperty("hitrate", stats.hitRate());
+    object.addProperty("evictions", stats.evictionCount());
+
+    JsonArray values = new JsonArray();
+    values.add(object);
+
+    JsonObject response = new JsonObject();
+    response.addProperty("status", HttpURLConnection.HTTP_OK);
+    response.addProperty("message", "Success");
+    response.addProperty("count", values.size());
+    response.add("values", values);
+    sendJson(responder, HttpURLConnection.HTTP_OK, response.toString());
+  }
+
   /**
    * Executes the directives on the record stored in the workspace and returns the possible xpaths for a
    * particular column.
@@ -778,7 +858,8 @@ public class DirectivesService extends AbstractHttpServiceHandler {
       }
 
       final int limit = reqBody.getSampling().getLimit();
-      List<Record> newRecords = executeDirectives(ws, reqBody, new Function<List<Record>, List<Record>>() {
+      List<Record> newRecords = executeDirectives(ws, reqBody, Integer.MAX_VALUE,
+                                                 new Function<List<Record>, List<Record>>() {
         @Nullable
         @Override
         public List<Record> apply(@Nullable List<Record> records) {
@@ -969,14 +1050,46 @@ public class DirectivesService extends AbstractHttpServiceHandler {
     return uber;
   }
 
+  /**
+   * Serializes the profile of a column, numeric statistics are included only if the column has numeric values.
+   *
+   * @param profile of the column.
+   * @return JSON object of the profile.
+   */
+  private static JsonObject toJson(ColumnProfile profile) {
+    JsonObject object = new JsonObject();
+    object.addProperty("count", profile.getCount());
+    object.addProperty("cardinality", profile.getCardinality());
+    if (profile.getNumerics() > 0) {
+      object.addProperty("numeric", profile.getNumerics());
+      object.addProperty("min", profile.getMin());
+      object.addProperty("max", profile.getMax());
+      JsonObject quantiles = new JsonObject();
+      for (double quantile : new double[] {0.25, 0.5, 0.75, 0.9, 0.99}) {
+        quantiles.addProperty(String.valueOf(quantile), profile.getQuantile(quantile));
+      }
+      object.add("quantiles", quantiles);
+    }
+    JsonArray top = new JsonArray();
+    for (Map.Entry<String, Long> entry : profile.getTop(10)) {
+      JsonObject value = new JsonObject();
+      value.addProperty("value", entry.getKey());
+      value.addProperty("count", entry.getValue());
+      top.add(value);
+    }
+    object.add("top", top);
+    return object;
+  }
+
   /**
    * Converts the data in workspace into records.
    *
    * @param id name of the workspace from which the records are generated.
+   * @param limit maximum number of records to be read from the workspace.
    * @return list of records.
    * @throws WorkspaceException thrown when there is issue retrieving data.
    */
-  private List<Record> fromWorkspace(String id) throws WorkspaceException {
+  private List<Record> fromWorkspace(final String id, int limit) throws WorkspaceException {
     DataType type = table.getType(id);
     List<Record> records = new ArrayList<>();
 
@@ -998,22 +1111,68 @@ public class DirectivesService extends AbstractHttpServiceHandler {
       }
 
       case RECORDS: {
-        records = table.getData(id, WorkspaceDataset.DATA_COL, DataType.RECORDS);
+        records = RECORDS.get(id, table.getVersion(id), limit,
+                              new WorkspaceRecordCache.Loader() {
+          @Override
+          public List<Record> load(int limit) throws WorkspaceException {
+            return table.getRecords(id, 0, limit);
+          }
+        });
         break;
       }
     }
     return records;
   }
 
+  /**
+   * Executes directives by extracting them from request on the first records of the workspace.
+   *
+   * <p>
+   *   Execution resumes from the checkpoint of the longest prefix of the recipe that was executed before
+   *   on the same records, so that only the directives added or changed since are executed.
+   * </p>
+   *
+   * @param id data to be used for executing directives.
+   * @param user request passed on http.
+   * @param limit maximum number of records to be read from the workspace.
+   * @return records generated from the directives.
+   */
+  private List<Record> executeDirectives(final String id, @Nullable Request user, final int limit)
+    throws Exception {
+    if (user == null) {
+      throw new Exception("Request is empty. Please check if the request is sent as HTTP POST body.");
+    }
+
+    TransientStore store = new DefaultTransientStore();
+    PipelineContext context = new ServicePipelineContext(PipelineContext.Environment.SERVICE,
+                                                         getContext(),
+                                                         store);
+    String config = table.getConfigString();
+    Directives directives = new TextDirectives(user.getRecipe().getDirectives());
+    directives.initialize(new ConfigDirectiveContext(config));
+
+    // Checkpoints are valid as long as the data of the workspace and the configuration are unchanged,
+    // the version of the data changes with every write, whichever instance of the service makes it.
+    byte[] data = table.getVersion(id);
+    String version = String.format("%s:%d:%s", data == null ? "" : Bytes.toHexString(data), limit, config);
+    return CHECKPOINTS.execute(id, version, directives.getSteps(), context, new RecipeCheckpoints.Input() {
+      @Override
+      public List<Record> get() throws Exception {
+        return fromWorkspace(id, limit);
+      }
+    });
+  }
+
   /**
    * Executes directives by extracting them from request.
    *
    * @param id data to be used for executing directives.
    * @param user request passed on http.
+   * @param limit maximum number of records to be read from the workspace.
    * @param sample sampling function.
    * @return records generated from the directives.
    */
-  private List<Record> executeDirectives(String id, @Nullable Request user,
+  private List<Record> executeDirectives(String id, @Nullable Request user, int limit,
                                          Function<List<Record>, List<Record>> sample)
     throws Exception {
     if (user == null) {
@@ -1022,14 +1181,16 @@ public class DirectivesService extends AbstractHttpServiceHandler {
 
     TransientStore store = new DefaultTransientStore();
     // Extract records from the workspace.
-    List<Record> records = fromWorkspace(id);
+    List<Record> records = fromWorkspace(id, limit);
     // Execute the pipeline.
     PipelineContext context = new ServicePipelineContext(PipelineContext.Environment.SERVICE,
                                                          getContext(),
                                                          store);
-    PipelineExecutor executor = new PipelineExecutor();
     Directives directives = new TextDirectives(user.getRecipe().getDirectives());
     directives.initialize(new ConfigDirectiveContext(table.getConfigString()));
+    // Records are executed in micro-batches, so that slow steps process many records at once.
+    int batchSize = Integer.getInteger(PipelineExecutor.BATCH_SIZE_PROPERTY, PipelineExecutor.DEFAULT_BATCH_SIZE);
+    PipelineExecutor executor = new PipelineExecutor(batchSize);
     executor.configure(directives, context);
     return executor.execute(sample.apply(records));
   }
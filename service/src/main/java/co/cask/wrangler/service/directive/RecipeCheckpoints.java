@@ -0,0 +1,375 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.service.directive;
+
+import co.cask.wrangler.api.BatchStep;
+import co.cask.wrangler.api.ErrorRecord;
+import co.cask.wrangler.api.ErrorRecordCollector;
+import co.cask.wrangler.api.ErrorRecordException;
+import co.cask.wrangler.api.PipelineContext;
+import co.cask.wrangler.api.PipelineException;
+import co.cask.wrangler.api.Record;
+import co.cask.wrangler.api.Step;
+import co.cask.wrangler.api.StepException;
+import co.cask.wrangler.steps.IncrementTransientVariable;
+import co.cask.wrangler.steps.SetTransientVariable;
+import co.cask.wrangler.steps.transformation.InvokeHttp;
+import co.cask.wrangler.steps.transformation.TableLookup;
+import com.google.common.base.Charsets;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Executes recipes keeping checkpoints of the records produced by every step of the recipe.
+ *
+ * <p>
+ *   A checkpoint is keyed by the hash of the recipe up to and including the step, chained from the
+ *   hash of the input it was executed on. When a recipe is executed again with a directive appended or
+ *   changed, execution resumes from the checkpoint of the longest prefix of the recipe that is unchanged.
+ *   Records are copied for every checkpoint, hence checkpoints are only kept after every few steps and
+ *   after the last step, which is where a recipe that is being built is resumed from. Checkpoints are
+ *   weighed by the number of cells they hold and the least recently used ones are evicted first.
+ * </p>
+ *
+ * <p>
+ *   Steps are executed on the records produced from every input record together, the same way
+ *   {@link co.cask.wrangler.executor.PipelineExecutor} does when executing one record at a time, except
+ *   for a {@link BatchStep} which is handed the records produced from all the input records at once.
+ *   Recipes that set transient variables depend on the records being executed through all the steps one
+ *   at a time, and are executed without checkpoints.
+ * </p>
+ *
+ * <p>
+ *   Steps that read external state, like looking up tables or calling out to services, may produce
+ *   different records every time they are executed while the directive stays the same. Hence there are no
+ *   checkpoints from the first of them onward, the steps from it to the end of the recipe being executed
+ *   every time on the checkpoint of the steps before it.
+ * </p>
+ */
+final class RecipeCheckpoints {
+  // System property to configure maximum number of cells held by the checkpoints.
+  static final String SIZE_PROPERTY = "wrangler.checkpoints.cells";
+  private static final long DEFAULT_SIZE = 16 * 1024 * 1024;
+
+  // System property to configure the number of steps between checkpoints.
+  static final String INTERVAL_PROPERTY = "wrangler.checkpoints.interval";
+  private static final int DEFAULT_INTERVAL = 4;
+
+  private static final HashFunction HASH = Hashing.sha256();
+
+  /**
+   * Provides the input the recipe is executed on.
+   */
+  interface Input {
+    /**
+     * @return records to be executed.
+     */
+    List<Record> get() throws Exception;
+  }
+
+  private final Cache<Key, List<List<Record>>> checkpoints;
+  private final int interval;
+
+  RecipeCheckpoints() {
+    this(Long.getLong(SIZE_PROPERTY, DEFAULT_SIZE), Integer.getInteger(INTERVAL_PROPERTY, DEFAULT_INTERVAL));
+  }
+
+  /**
+   * @param maxCells maximum number of cells held by the checkpoints.
+   * @param interval number of steps between checkpoints.
+   */
+  RecipeCheckpoints(long maxCells, int interval) {
+    this.interval = Math.max(1, interval);
+    this.checkpoints = CacheBuilder.newBuilder()
+      .maximumWeight(maxCells)
+      .weigher(new Weigher<Key, List<List<Record>>>() {
+        @Override
+        public int weigh(Key key, List<List<Record>> groups) {
+          long cells = 1;
+          for (List<Record> group : groups) {
+            for (Record record : group) {
+              cells += record.length();
+            }
+          }
+          return (int) Math.min(cells, Integer.MAX_VALUE);
+        }
+      })
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Executes the steps of a recipe, resuming from the checkpoint of the longest unchanged prefix of the recipe.
+   *
+   * @param workspace the input is read from.
+   * @param version identifies the input, inputs with same workspace and version must have same records.
+   * @param steps of the recipe to be executed.
+   * @param context of the pipeline.
+   * @param input to be executed if there are no checkpoints.
+   * @return records produced by the recipe.
+   */
+  List<Record> execute(String workspace, String version, List<Step> steps, PipelineContext context,
+                       Input input) throws Exception {
+    if (setsVariables(steps)) {
+      List<Record> records = new ArrayList<>();
+      for (List<Record> group : group(input.get())) {
+        records.addAll(flatten(execute(steps, 0, steps.size(), Collections.singletonList(group), context)));
+      }
+      return records;
+    }
+
+    // Only the steps before the first one reading external state are checkpointed.
+    int checkpointed = checkpointedSteps(steps);
+
+    // Key of the checkpoint after each of the steps, the first one being the key of the input.
+    List<Key> keys = new ArrayList<>(checkpointed + 1);
+    HashCode hash = HASH.hashString(version, Charsets.UTF_8);
+    keys.add(new Key(workspace, hash));
+    for (Step step : steps.subList(0, checkpointed)) {
+      hash = HASH.newHasher()
+        .putBytes(hash.asBytes())
+        .putString(step.toString(), Charsets.UTF_8)
+        .hash();
+      keys.add(new Key(workspace, hash));
+    }
+
+    int from = checkpointed;
+    List<List<Record>> groups = null;
+    while (from > 0 && groups == null) {
+      // Every step is looked up, as the last step of a recipe that was extended since has a checkpoint too.
+      groups = checkpoints.getIfPresent(keys.get(from));
+      if (groups == null) {
+        from--;
+      }
+    }
+    groups = groups == null ? group(input.get()) : copy(groups);
+
+    while (from < checkpointed) {
+      int to = Math.min(checkpointed, (from / interval + 1) * interval);
+      groups = execute(steps, from, to, groups, context);
+      checkpoints.put(keys.get(to), copy(groups));
+      from = to;
+    }
+    if (from < steps.size()) {
+      groups = execute(steps, from, steps.size(), groups, context);
+    }
+    return flatten(groups);
+  }
+
+  /**
+   * Counts the steps of a recipe that are checkpointed, which are the ones before the first step that
+   * reads external state.
+   *
+   * @param steps of the recipe.
+   * @return number of steps at the start of the recipe that don't read external state.
+   */
+  static int checkpointedSteps(List<Step> steps) {
+    for (int i = 0; i < steps.size(); ++i) {
+      Step step = steps.get(i);
+      if (step instanceof TableLookup || step instanceof InvokeHttp) {
+        return i;
+      }
+    }
+    return steps.size();
+  }
+
+  /**
+   * Checks whether the steps of a recipe set transient variables, in which case the records have to be
+   * executed through all the steps one at a time.
+   *
+   * @param steps of the recipe.
+   * @return true if any of the steps sets a transient variable, false otherwise.
+   */
+  static boolean setsVariables(List<Step> steps) {
+    for (Step step : steps) {
+      if (step instanceof SetTransientVariable || step instanceof IncrementTransientVariable) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Invalidates all the checkpoints of a workspace.
+   *
+   * @param workspace whose checkpoints are invalidated.
+   */
+  void invalidate(String workspace) {
+    Iterator<Key> it = checkpoints.asMap().keySet().iterator();
+    while (it.hasNext()) {
+      if (it.next().workspace.equals(workspace)) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * @return statistics of the checkpoints.
+   */
+  CacheStats stats() {
+    return checkpoints.stats();
+  }
+
+  /**
+   * Executes a range of steps on every group of records, dropping the groups that error out.
+   *
+   * @param steps of the recipe.
+   * @param from index of the first step to be executed.
+   * @param to index of the step after the last step to be executed.
+   * @param groups of records produced from the same input record.
+   * @param context of the pipeline.
+   * @return groups of records produced.
+   */
+  private static List<List<Record>> execute(List<Step> steps, int from, int to, List<List<Record>> groups,
+                                            PipelineContext context) throws PipelineException {
+    try {
+      for (int i = from; i < to && groups.size() > 0; ++i) {
+        Step step = steps.get(i);
+        if (step instanceof BatchStep) {
+          groups = execute((BatchStep) step, groups, context);
+        } else {
+          groups = execute(step, groups, context);
+        }
+      }
+    } catch (StepException e) {
+      throw new PipelineException(e);
+    }
+    return groups;
+  }
+
+  /**
+   * Executes a step on every group of records, dropping the groups that error out.
+   */
+  private static List<List<Record>> execute(Step step, List<List<Record>> groups, PipelineContext context)
+    throws StepException {
+    List<List<Record>> results = new ArrayList<>(groups.size());
+    for (List<Record> group : groups) {
+      try {
+        List<Record> records = step.execute(group, context);
+        if (records.size() > 0) {
+          results.add(records);
+        }
+      } catch (ErrorRecordException e) {
+        // The group is dropped, as all the records produced from an input record are when one errors out.
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Executes a step on the records of all the groups at once, dropping the groups with a record that
+   * errors out.
+   */
+  private static List<List<Record>> execute(BatchStep step, List<List<Record>> groups, PipelineContext context)
+    throws StepException {
+    ErrorRecordCollector errors = new ErrorRecordCollector();
+    Iterator<Record> records = step.execute(flatten(groups), context, errors).iterator();
+    Set<Record> failed = Sets.newIdentityHashSet();
+    for (ErrorRecord error : errors.get()) {
+      failed.add(error.getRecord());
+    }
+
+    // The step produces a record for every record that didn't error out, in order.
+    List<List<Record>> results = new ArrayList<>(groups.size());
+    for (List<Record> group : groups) {
+      List<Record> result = new ArrayList<>(group.size());
+      for (Record record : group) {
+        if (!failed.contains(record)) {
+          result.add(records.next());
+        }
+      }
+      if (result.size() == group.size()) {
+        results.add(result);
+      }
+    }
+    return results;
+  }
+
+  private static List<List<Record>> group(List<Record> records) {
+    List<List<Record>> groups = new ArrayList<>(records.size());
+    for (Record record : records) {
+      groups.add(Collections.singletonList(record));
+    }
+    return groups;
+  }
+
+  private static List<Record> flatten(List<List<Record>> groups) {
+    List<Record> records = new ArrayList<>();
+    for (List<Record> group : groups) {
+      records.addAll(group);
+    }
+    return records;
+  }
+
+  /**
+   * Copies the records, as steps modify them in place.
+   */
+  private static List<List<Record>> copy(List<List<Record>> groups) {
+    List<List<Record>> copy = new ArrayList<>(groups.size());
+    for (List<Record> group : groups) {
+      List<Record> records = new ArrayList<>(group.size());
+      for (Record record : group) {
+        records.add(new Record(record));
+      }
+      copy.add(records);
+    }
+    return copy;
+  }
+
+  /**
+   * Key of a checkpoint.
+   */
+  private static final class Key {
+    private final String workspace;
+    private final HashCode hash;
+
+    Key(String workspace, HashCode hash) {
+      this.workspace = workspace;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return workspace.equals(that.workspace) && hash.equals(that.hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(workspace, hash);
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.service.directive;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decodes content received in chunks and splits it into records on the fly.
+ *
+ * <p>
+ *   The records produced are the same as decoding the whole of the content and splitting it with
+ *   {@link String#split(String)} : the delimiter is a regular expression and trailing empty records
+ *   are dropped. Only the part of the content that is not yet split into records is held in memory.
+ * </p>
+ */
+final class RecordSplitter {
+  // Characters that make the delimiter a regular expression rather than a literal.
+  private static final String REGEX_CHARACTERS = "\\[](){}.*+?^$|";
+
+  private final CharsetDecoder decoder;
+  // Literal delimiter, null when the delimiter is a regular expression.
+  private final String literal;
+  private final Pattern pattern;
+
+  // Content decoded and not yet split into records.
+  private final StringBuilder pending = new StringBuilder();
+  // Position in pending up to which the literal delimiter was searched for.
+  private int searched;
+  // Bytes of a character that is split across chunks.
+  private ByteBuffer remaining = ByteBuffer.allocate(0);
+  private final CharBuffer chars = CharBuffer.allocate(8192);
+
+  // Number of empty records that are held back, as they are dropped if nothing follows them.
+  private int empties;
+
+  RecordSplitter(Charset charset, String delimiter) {
+    this.decoder = charset.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    if (isLiteral(delimiter)) {
+      this.literal = delimiter;
+      this.pattern = null;
+    } else {
+      this.literal = null;
+      this.pattern = Pattern.compile(delimiter);
+    }
+  }
+
+  /**
+   * Decodes a chunk of content.
+   *
+   * @param content chunk of content received.
+   * @return records completed by the chunk.
+   */
+  List<String> split(ByteBuffer content) {
+    decode(content, false);
+    return split(false);
+  }
+
+  /**
+   * Completes the content.
+   *
+   * @return the records left.
+   */
+  List<String> finish() {
+    decode(ByteBuffer.allocate(0), true);
+    return split(true);
+  }
+
+  private void decode(ByteBuffer content, boolean last) {
+    ByteBuffer in = content;
+    if (remaining.hasRemaining()) {
+      in = ByteBuffer.allocate(remaining.remaining() + content.remaining());
+      in.put(remaining).put(content);
+      in.flip();
+    }
+
+    CoderResult result;
+    do {
+      result = decoder.decode(in, chars, last);
+      drain();
+    } while (result.isOverflow());
+    if (last) {
+      do {
+        result = decoder.flush(chars);
+        drain();
+      } while (result.isOverflow());
+    }
+
+    remaining = ByteBuffer.allocate(in.remaining());
+    remaining.put(in);
+    remaining.flip();
+  }
+
+  private void drain() {
+    chars.flip();
+    pending.append(chars);
+    chars.clear();
+  }
+
+  private List<String> split(boolean last) {
+    List<String> records = new ArrayList<>();
+    int start = 0;
+    if (literal != null) {
+      int idx = pending.indexOf(literal, Math.max(0, searched - literal.length() + 1));
+      while (idx != -1) {
+        add(records, pending.substring(start, idx));
+        start = idx + literal.length();
+        idx = pending.indexOf(literal, start);
+      }
+      searched = pending.length() - start;
+    } else {
+      Matcher matcher = pattern.matcher(pending);
+      while (matcher.find()) {
+        if (!last && matcher.hitEnd()) {
+          // More content could change the match.
+          break;
+        }
+        if (matcher.end() == 0) {
+          // Zero-width match at the beginning does not produce an empty record.
+          continue;
+        }
+        add(records, pending.substring(start, matcher.start()));
+        start = matcher.end();
+      }
+    }
+
+    if (last) {
+      if (start < pending.length()) {
+        add(records, pending.substring(start));
+      }
+      pending.setLength(0);
+    } else {
+      pending.delete(0, start);
+    }
+    return records;
+  }
+
+  private void add(List<String> records, String record) {
+    if (record.isEmpty()) {
+      empties++;
+      return;
+    }
+    for (; empties > 0; --empties) {
+      records.add("");
+    }
+    records.add(record);
+  }
+
+  private static boolean isLiteral(String delimiter) {
+    if (delimiter.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < delimiter.length(); ++i) {
+      if (REGEX_CHARACTERS.indexOf(delimiter.charAt(i)) != -1) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.service.directive;
+
+import co.cask.cdap.api.Transactional;
+import co.cask.cdap.api.service.http.HttpContentProducer;
+import co.cask.wrangler.api.Record;
+import com.google.common.base.Charsets;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.gson.stream.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the records produced by executing the directives as the JSON response of the execute request.
+ *
+ * <p>
+ *   Records are written straight to the response a chunk at a time. The header and types of the columns
+ *   are known only once all the records are written, hence they follow the values in the response.
+ * </p>
+ *
+ * <pre>
+ * {
+ *   "status" : 200,
+ *   "message" : "Success",
+ *   "values" : [
+ *     { record 1},
+ *     { record 2}
+ *   ],
+ *   "count" : 2,
+ *   "header" : [ "a", "b", "c", "d" ],
+ *   "types" : { "a" : "string", ... }
+ * }
+ * </pre>
+ */
+final class RecordsJsonProducer extends HttpContentProducer {
+  private static final Logger LOG = LoggerFactory.getLogger(RecordsJsonProducer.class);
+
+  // Size of the chunks the response is sent in.
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  // Whether the values of a class can be displayed, that is if the class overrides Object#toString().
+  private static final LoadingCache<Class<?>, Boolean> DISPLAYABLE = CacheBuilder.newBuilder()
+    .weakKeys()
+    .build(new CacheLoader<Class<?>, Boolean>() {
+      @Override
+      public Boolean load(Class<?> cls) throws Exception {
+        return cls.getMethod("toString").getDeclaringClass() != Object.class;
+      }
+    });
+
+  // Type of the values of a class, as shown in the response.
+  private static final LoadingCache<Class<?>, String> TYPES = CacheBuilder.newBuilder()
+    .weakKeys()
+    .build(new CacheLoader<Class<?>, String>() {
+      @Override
+      public String load(Class<?> cls) throws Exception {
+        return cls.getSimpleName().toLowerCase();
+      }
+    });
+
+  private final List<Record> records;
+  private final int count;
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(CHUNK_SIZE);
+  private final JsonWriter writer = new JsonWriter(new OutputStreamWriter(buffer, Charsets.UTF_8));
+
+  // Type of each column, in the order the columns are first seen.
+  private final Map<String, String> types = new LinkedHashMap<>();
+  private int index = -1;
+
+  /**
+   * @param records to be sent.
+   * @param results maximum number of records to be sent.
+   */
+  RecordsJsonProducer(List<Record> records, int results) {
+    this.records = records;
+    this.count = Math.min(records.size(), results);
+  }
+
+  @Override
+  public ByteBuffer nextChunk(Transactional transactional) throws Exception {
+    if (index > count) {
+      return ByteBuffer.allocate(0);
+    }
+
+    if (index < 0) {
+      writer.beginObject();
+      writer.name("status").value(HttpURLConnection.HTTP_OK);
+      writer.name("message").value("Success");
+      writer.name("values").beginArray();
+      index = 0;
+    }
+
+    while (index < count && buffer.size() < CHUNK_SIZE) {
+      write(records.get(index++));
+      writer.flush();
+    }
+
+    if (index == count) {
+      writer.endArray();
+      writer.name("count").value(count);
+      writer.name("header").beginArray();
+      for (String column : types.keySet()) {
+        writer.value(column);
+      }
+      writer.endArray();
+      writer.name("types").beginObject();
+      for (Map.Entry<String, String> type : types.entrySet()) {
+        if (type.getValue() != null) {
+          writer.name(type.getKey()).value(type.getValue());
+        }
+      }
+      writer.endObject();
+      writer.endObject();
+      writer.close();
+      index++;
+    }
+
+    ByteBuffer chunk = ByteBuffer.wrap(buffer.toByteArray());
+    buffer.reset();
+    return chunk;
+  }
+
+  private void write(Record record) throws IOException {
+    writer.beginObject();
+    for (int i = 0; i < record.length(); ++i) {
+      String column = record.getColumn(i);
+      Object object = record.getValue(i);
+      writer.name(column);
+      if (object != null) {
+        Class<?> cls = object.getClass();
+        types.put(column, TYPES.getUnchecked(cls));
+        if (DISPLAYABLE.getUnchecked(cls)) {
+          writer.value(object.toString());
+        } else {
+          writer.value("Non-displayable object");
+        }
+      } else {
+        writer.nullValue();
+        if (!types.containsKey(column)) {
+          types.put(column, null);
+        }
+      }
+    }
+    writer.endObject();
+  }
+
+  @Override
+  public void onFinish() throws Exception {
+    // Nothing to be released.
+  }
+
+  @Override
+  public void onError(Throwable failureReason) {
+    LOG.warn("Failed to send the records", failureReason);
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.service.directive;
+
+import co.cask.wrangler.api.Record;
+import co.cask.wrangler.dataset.workspace.WorkspaceException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+
+/**
+ * Bounded cache of the records decoded from workspaces, keyed by the workspace id.
+ *
+ * <p>
+ *   Every entry is tagged with the version of the workspace it was read from, an entry whose version
+ *   does not match the version of the workspace is reloaded, so writes made by other handlers or other
+ *   instances of the service are picked up. Entries are weighed by the number of cells in the records.
+ * </p>
+ *
+ * <p>
+ *   Steps modify the records in place, hence the records cached are never handed out, every read
+ *   returns copies of them.
+ * </p>
+ */
+final class WorkspaceRecordCache {
+  // System property to configure maximum number of cells held by the cache.
+  static final String SIZE_PROPERTY = "wrangler.workspace.cache.cells";
+  private static final long DEFAULT_SIZE = 4 * 1024 * 1024;
+
+  /**
+   * Loads the records of a workspace.
+   */
+  interface Loader {
+    /**
+     * @param limit maximum number of records to be loaded.
+     * @return records loaded.
+     */
+    List<Record> load(int limit) throws WorkspaceException;
+  }
+
+  private final Cache<String, Entry> cache;
+
+  WorkspaceRecordCache() {
+    this(Long.getLong(SIZE_PROPERTY, DEFAULT_SIZE));
+  }
+
+  WorkspaceRecordCache(long maxCells) {
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(maxCells)
+      .weigher(new Weigher<String, Entry>() {
+        @Override
+        public int weigh(String id, Entry entry) {
+          return entry.cells;
+        }
+      })
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Returns copy of the first records of a workspace, loading them if they are not cached.
+   *
+   * @param id of the workspace.
+   * @param version of the workspace as currently stored, null if not known.
+   * @param limit maximum number of records returned.
+   * @param loader to load the records if they are not cached.
+   * @return copy of the records.
+   * @throws WorkspaceException thrown when there is issue loading the records.
+   */
+  List<Record> get(String id, @Nullable final byte[] version, final int limit,
+                   final Loader loader) throws WorkspaceException {
+    Entry entry = cache.asMap().get(id);
+    if (entry != null && !entry.covers(version, limit)) {
+      cache.invalidate(id);
+    }
+
+    try {
+      entry = cache.get(id, new Callable<Entry>() {
+        @Override
+        public Entry call() throws Exception {
+          return new Entry(version, loader.load(limit), limit);
+        }
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof WorkspaceException) {
+        throw (WorkspaceException) e.getCause();
+      }
+      throw new WorkspaceException(e.getCause().getMessage());
+    }
+
+    // Loaded concurrently by another request for a different version or fewer records.
+    if (!entry.covers(version, limit)) {
+      entry = new Entry(version, loader.load(limit), limit);
+      cache.put(id, entry);
+    }
+    return entry.copy(limit);
+  }
+
+  /**
+   * Invalidates the records cached for a workspace.
+   *
+   * @param id of the workspace.
+   */
+  void invalidate(String id) {
+    cache.invalidate(id);
+  }
+
+  /**
+   * @return statistics of the cache.
+   */
+  CacheStats stats() {
+    return cache.stats();
+  }
+
+  /**
+   * @return number of workspaces cached.
+   */
+  long size() {
+    return cache.size();
+  }
+
+  /**
+   * Records read from a version of a workspace.
+   */
+  private static final class Entry {
+    private final byte[] version;
+    private final List<Record> records;
+    // True if the records are all the records within the workspace.
+    private final boolean complete;
+    private final int cells;
+
+    Entry(@Nullable byte[] version, List<Record> records, int limit) {
+      this.version = version;
+      this.records = records;
+      this.complete = records.size() < limit;
+      long cells = 1;
+      for (Record record : records) {
+        cells += record.length();
+      }
+      this.cells = (int) Math.min(cells, Integer.MAX_VALUE);
+    }
+
+    boolean covers(@Nullable byte[] version, int limit) {
+      return Arrays.equals(this.version, version) && (complete || records.size() >= limit);
+    }
+
+    List<Record> copy(int limit) {
+      int size = Math.min(records.size(), limit);
+      List<Record> copy = new ArrayList<>(size);
+      for (int i = 0; i < size; ++i) {
+        copy.add(new Record(records.get(i)));
+      }
+      return copy;
+    }
+  }
+}
@@ -26,7 +26,6 @@ import co.cask.cdap.api.service.http.HttpServiceContext;
 import co.cask.cdap.api.service.http.HttpServiceRequest;
 import co.cask.cdap.api.service.http.HttpServiceResponder;
 import co.cask.cdap.internal.io.SchemaTypeAdapter;
-import co.cask.wrangler.api.ObjectSerDe;
 import co.cask.wrangler.service.connections.ConnectionType;
 import co.cask.wrangler.PropertyIds;
 import co.cask.wrangler.RequestExtractor;
@@ -207,9 +206,7 @@ public class FilesystemExplorer extends AbstractHttpServiceHandler {
       if(type == DataType.RECORDS) {
         List<Record> records = new ArrayList<>();
         records.add(new Record(COLUMN_NAME, new String(bytes, Charsets.UTF_8)));
-        ObjectSerDe<List<Record>> serDe = new ObjectSerDe<>();
-        byte[] data = serDe.toByteArray(records);
-        table.writeToWorkspace(id, WorkspaceDataset.DATA_COL, DataType.RECORDS, data);
+        table.writeRecords(id, records);
       } else if (type == DataType.BINARY || type == DataType.TEXT) {
         table.writeToWorkspace(id, WorkspaceDataset.DATA_COL, type, bytes);
       }
@@ -288,9 +285,7 @@ public class FilesystemExplorer extends AbstractHttpServiceHandler {
       table.writeProperties(id, properties);
 
       // Write records to workspace.
-      ObjectSerDe<List<Record>> serDe = new ObjectSerDe<>();
-      byte[] data = serDe.toByteArray(records);
-      table.writeToWorkspace(id, WorkspaceDataset.DATA_COL, DataType.RECORDS, data);
+      table.writeRecords(id, records);
 
       // Preparing return response to include mandatory fields : id and name.
       JsonArray values = new JsonArray();
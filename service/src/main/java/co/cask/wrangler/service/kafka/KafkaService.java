@@ -29,7 +29,6 @@ import co.cask.wrangler.PropertyIds;
 import co.cask.wrangler.RequestExtractor;
 import co.cask.wrangler.SamplingMethod;
 import co.cask.wrangler.ServiceUtils;
-import co.cask.wrangler.api.ObjectSerDe;
 import co.cask.wrangler.api.Record;
 import co.cask.wrangler.dataset.connections.Connection;
 import co.cask.wrangler.dataset.connections.ConnectionStore;
@@ -228,9 +227,7 @@ public final class KafkaService extends AbstractHttpServiceHandler {
           running = false;
         }
 
-        ObjectSerDe<List<Record>> serDe = new ObjectSerDe<>();
-        byte[] data = serDe.toByteArray(recs);
-        ws.writeToWorkspace(uuid, WorkspaceDataset.DATA_COL, DataType.RECORDS, data);
+        ws.writeRecords(uuid, recs);
 
         // Set all properties and write to workspace.
         Map<String, String> properties = new HashMap<>();
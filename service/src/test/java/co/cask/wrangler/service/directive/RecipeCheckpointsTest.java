@@ -0,0 +1,293 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.service.directive;
+
+import co.cask.wrangler.api.AbstractStep;
+import co.cask.wrangler.api.BatchStep;
+import co.cask.wrangler.api.ErrorRecord;
+import co.cask.wrangler.api.ErrorRecordCollector;
+import co.cask.wrangler.api.ErrorRecordException;
+import co.cask.wrangler.api.Pipeline;
+import co.cask.wrangler.api.PipelineContext;
+import co.cask.wrangler.api.Record;
+import co.cask.wrangler.api.Step;
+import co.cask.wrangler.api.StepException;
+import co.cask.wrangler.executor.PipelineExecutor;
+import co.cask.wrangler.parser.TextDirectives;
+import co.cask.wrangler.steps.transformation.TableLookup;
+import com.google.common.cache.CacheStats;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link RecipeCheckpoints}
+ */
+public class RecipeCheckpointsTest {
+
+  /**
+   * Provides copies of the input records, counting the number of reads.
+   */
+  private static final class CountingInput implements RecipeCheckpoints.Input {
+    private int reads;
+
+    @Override
+    public List<Record> get() throws Exception {
+      reads++;
+      return input();
+    }
+  }
+
+  private static List<Record> input() {
+    List<Record> records = new ArrayList<>();
+    records.add(new Record("body", "1,Root,Joltie,01/26/1956,32"));
+    records.add(new Record("body", "2,Sai,Joltie,02/26/1956,cat"));
+    records.add(new Record("body", "3,Jack,Joltie,03/26/1956,1.2"));
+    records.add(new Record("body", "A,Sam,Joltie,04/26/1956,13,extra"));
+    return records;
+  }
+
+  private static List<Record> execute(String[] directives) throws Exception {
+    Pipeline pipeline = new PipelineExecutor();
+    pipeline.configure(new TextDirectives(directives), null);
+    return pipeline.execute(input());
+  }
+
+  private static List<Step> steps(String[] directives) throws Exception {
+    return new TextDirectives(directives).getSteps();
+  }
+
+  @Test
+  public void testResumesFromLongestPrefix() throws Exception {
+    String[] first = new String[] {
+      "parse-as-csv body , false",
+      "drop body",
+      "rename body_2 first",
+    };
+
+    String[] second = new String[] {
+      "parse-as-csv body , false",
+      "drop body",
+      "rename body_2 first",
+      "send-to-error !(body_1 =~ \"[0-9]+\")",
+      "uppercase first"
+    };
+
+    String[] third = new String[] {
+      "parse-as-csv body , false",
+      "drop body",
+      "rename body_3 last",
+      "uppercase last"
+    };
+
+    RecipeCheckpoints checkpoints = new RecipeCheckpoints(1000, 1);
+    CountingInput input = new CountingInput();
+
+    Assert.assertEquals(execute(first), checkpoints.execute("ws", "1", steps(first), null, input));
+    Assert.assertEquals(1, input.reads);
+
+    // Resumes from the checkpoint of the whole of first recipe.
+    CacheStats before = checkpoints.stats();
+    List<Record> records = checkpoints.execute("ws", "1", steps(second), null, input);
+    Assert.assertEquals(execute(second), records);
+    Assert.assertEquals(3, records.size());
+    Assert.assertEquals("ROOT", records.get(0).getValue("first"));
+    Assert.assertEquals(1, input.reads);
+    CacheStats stats = checkpoints.stats().minus(before);
+    Assert.assertEquals(1, stats.hitCount());
+    Assert.assertEquals(2, stats.missCount());
+
+    // Resumes after the second directive.
+    Assert.assertEquals(execute(third), checkpoints.execute("ws", "1", steps(third), null, input));
+    Assert.assertEquals(1, input.reads);
+
+    // Checkpoints are not modified by the steps executed after them.
+    Assert.assertEquals(execute(second), checkpoints.execute("ws", "1", steps(second), null, input));
+    Assert.assertEquals(1, input.reads);
+
+    // Different version of the input.
+    Assert.assertEquals(execute(first), checkpoints.execute("ws", "2", steps(first), null, input));
+    Assert.assertEquals(2, input.reads);
+
+    checkpoints.invalidate("ws");
+    Assert.assertEquals(execute(first), checkpoints.execute("ws", "2", steps(first), null, input));
+    Assert.assertEquals(3, input.reads);
+  }
+
+  @Test
+  public void testRecordsFromSameInputAreSentToErrorTogether() throws Exception {
+    String[] directives = new String[] {
+      "split-to-rows body ,",
+      "send-to-error body == \"cat\""
+    };
+
+    RecipeCheckpoints checkpoints = new RecipeCheckpoints(1000, 1);
+    List<Record> records = checkpoints.execute("ws", "1", steps(directives), null, new CountingInput());
+    Assert.assertEquals(execute(directives), records);
+    Assert.assertEquals(16, records.size());
+  }
+
+  /**
+   * Sends the records whose body is "cat" to error, counting the number of invocations.
+   */
+  private static final class CatFilter extends AbstractStep implements BatchStep {
+    private int invocations;
+
+    CatFilter() {
+      super(2, "cat-filter");
+    }
+
+    @Override
+    public List<Record> execute(List<Record> records, PipelineContext context)
+      throws StepException, ErrorRecordException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Record> execute(List<Record> records, PipelineContext context, ErrorRecordCollector errors) {
+      invocations++;
+      List<Record> results = new ArrayList<>();
+      for (Record record : records) {
+        if ("cat".equals(record.getValue("body"))) {
+          errors.add(new ErrorRecord(record, "cat", 1));
+        } else {
+          results.add(record);
+        }
+      }
+      return results;
+    }
+  }
+
+  @Test
+  public void testBatchStepExecutedOnAllTheRecords() throws Exception {
+    String[] directives = new String[] {
+      "split-to-rows body ,",
+      "send-to-error body == \"cat\""
+    };
+
+    CatFilter filter = new CatFilter();
+    List<Step> steps = steps(new String[] { directives[0] });
+    steps.add(filter);
+
+    RecipeCheckpoints checkpoints = new RecipeCheckpoints(1000, 1);
+    List<Record> records = checkpoints.execute("ws", "1", steps, null, new CountingInput());
+    Assert.assertEquals(execute(directives), records);
+    Assert.assertEquals(1, filter.invocations);
+  }
+
+  @Test
+  public void testCheckpointsEveryFewSteps() throws Exception {
+    String[] first = new String[] {
+      "parse-as-csv body , false",
+      "drop body",
+      "rename body_2 first",
+      "rename body_3 last",
+      "uppercase first"
+    };
+
+    String[] second = new String[] {
+      "parse-as-csv body , false",
+      "drop body",
+      "rename body_2 first",
+      "rename body_3 last",
+      "uppercase first",
+      "lowercase last"
+    };
+
+    String[] third = new String[] {
+      "parse-as-csv body , false",
+      "drop body",
+      "rename body_2 first",
+      "rename body_3 last",
+      "uppercase last"
+    };
+
+    String[] fourth = new String[] {
+      "parse-as-csv body , false",
+      "rename body_2 name",
+      "uppercase name"
+    };
+
+    RecipeCheckpoints checkpoints = new RecipeCheckpoints(1000, 2);
+    CountingInput input = new CountingInput();
+    Assert.assertEquals(execute(first), checkpoints.execute("ws", "1", steps(first), null, input));
+    Assert.assertEquals(1, input.reads);
+
+    // Resumes from the checkpoint after the last step of the first recipe.
+    Assert.assertEquals(execute(second), checkpoints.execute("ws", "1", steps(second), null, input));
+    Assert.assertEquals(1, input.reads);
+
+    // Resumes from the checkpoint after the fourth step.
+    Assert.assertEquals(execute(third), checkpoints.execute("ws", "1", steps(third), null, input));
+    Assert.assertEquals(1, input.reads);
+
+    // There are no checkpoints after the first step, hence the input is read again.
+    Assert.assertEquals(execute(fourth), checkpoints.execute("ws", "1", steps(fourth), null, input));
+    Assert.assertEquals(2, input.reads);
+  }
+
+  /**
+   * Adds the number of times it was invoked to the records, like a lookup into a table that is updated.
+   */
+  private static final class CountingLookup extends TableLookup {
+    private int invocations;
+
+    CountingLookup() {
+      super(3, "table-lookup body_1 customers", "body_1", "customers");
+    }
+
+    @Override
+    public List<Record> execute(List<Record> records, PipelineContext context) {
+      invocations++;
+      for (Record record : records) {
+        record.add("invocations", invocations);
+      }
+      return records;
+    }
+  }
+
+  @Test
+  public void testStepsReadingExternalStateAreNotCheckpointed() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-csv body , false",
+      "drop body",
+    };
+
+    CountingLookup lookup = new CountingLookup();
+    List<Step> steps = steps(directives);
+    steps.add(lookup);
+    steps.addAll(steps(new String[] { "uppercase body_2" }));
+    Assert.assertEquals(2, RecipeCheckpoints.checkpointedSteps(steps));
+
+    RecipeCheckpoints checkpoints = new RecipeCheckpoints(1000, 1);
+    CountingInput input = new CountingInput();
+    List<Record> records = checkpoints.execute("ws", "1", steps, null, input);
+    Assert.assertEquals(1, records.get(0).getValue("invocations"));
+    Assert.assertEquals("ROOT", records.get(0).getValue("body_2"));
+
+    Assert.assertEquals(4, lookup.invocations);
+
+    // Resumes from the checkpoint before the lookup, which is executed again on each of the input records.
+    records = checkpoints.execute("ws", "1", steps, null, input);
+    Assert.assertEquals(5, records.get(0).getValue("invocations"));
+    Assert.assertEquals("ROOT", records.get(0).getValue("body_2"));
+    Assert.assertEquals(8, lookup.invocations);
+    Assert.assertEquals(1, input.reads);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.service.directive;
+
+import com.google.common.base.Charsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link RecordSplitter}
+ */
+public class RecordSplitterTest {
+
+  private static List<String> split(String content, Charset charset, String delimiter, int chunkSize) {
+    byte[] bytes = content.getBytes(charset);
+    RecordSplitter splitter = new RecordSplitter(charset, delimiter);
+    List<String> records = new ArrayList<>();
+    for (int i = 0; i < bytes.length; i += chunkSize) {
+      records.addAll(splitter.split(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i))));
+    }
+    records.addAll(splitter.finish());
+    return records;
+  }
+
+  private static void assertSplit(String content, Charset charset, String delimiter) {
+    List<String> expected = Arrays.asList(content.split(delimiter));
+    for (int chunkSize = 1; chunkSize <= content.length() + 1; ++chunkSize) {
+      Assert.assertEquals("Chunk size " + chunkSize, expected, split(content, charset, delimiter, chunkSize));
+    }
+  }
+
+  @Test
+  public void testLiteralDelimiter() throws Exception {
+    assertSplit("a,b,c\nd,e,f\n\ng,h,i\n\n", Charsets.UTF_8, "\n");
+    assertSplit("\na\r\nb\r\n\r\nc", Charsets.UTF_8, "\r\n");
+    assertSplit("no delimiter at all", Charsets.UTF_8, "\n");
+    assertSplit("record\u001Arecord\u001A", Charsets.UTF_8, "\u001A");
+    assertSplit("abababba", Charsets.UTF_8, "ab");
+  }
+
+  @Test
+  public void testRegexDelimiter() throws Exception {
+    assertSplit("a\nb\r\nc\r\n\r\nd\n", Charsets.UTF_8, "\r?\n");
+    assertSplit("a\n\n\nb\nc\n\n", Charsets.UTF_8, "\n+");
+    assertSplit("1|2|3||4", Charsets.UTF_8, "\\|");
+  }
+
+  @Test
+  public void testMultiByteCharacters() throws Exception {
+    assertSplit("né\nüñî\n€uro\n𝄞", Charsets.UTF_8, "\n");
+    assertSplit("né\nüñî\n€uro", Charsets.UTF_16, "\n");
+  }
+}
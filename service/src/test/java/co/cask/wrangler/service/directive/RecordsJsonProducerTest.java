@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.service.directive;
+
+import co.cask.wrangler.api.Record;
+import com.google.common.base.Charsets;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link RecordsJsonProducer}
+ */
+public class RecordsJsonProducerTest {
+
+  private static JsonObject produce(List<Record> records, int results) throws Exception {
+    RecordsJsonProducer producer = new RecordsJsonProducer(records, results);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int chunks = 0;
+    ByteBuffer chunk = producer.nextChunk(null);
+    while (chunk.hasRemaining()) {
+      out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+      chunk = producer.nextChunk(null);
+      chunks++;
+    }
+    producer.onFinish();
+    Assert.assertTrue(chunks > 0);
+    return new JsonParser().parse(new String(out.toByteArray(), Charsets.UTF_8)).getAsJsonObject();
+  }
+
+  @Test
+  public void testResponse() throws Exception {
+    List<Record> records = new ArrayList<>();
+    records.add(new Record("a", "x").add("b", 1).add("c", null));
+    records.add(new Record("a", "y\n\"quoted\"").add("c", new Object()).add("d", 2.5));
+    records.add(new Record("a", "z"));
+
+    JsonObject response = produce(records, 2);
+    Assert.assertEquals(200, response.get("status").getAsInt());
+    Assert.assertEquals(2, response.get("count").getAsInt());
+
+    JsonArray values = response.getAsJsonArray("values");
+    Assert.assertEquals(2, values.size());
+    Assert.assertEquals("1", values.get(0).getAsJsonObject().get("b").getAsString());
+    Assert.assertTrue(values.get(0).getAsJsonObject().get("c").isJsonNull());
+    Assert.assertEquals("y\n\"quoted\"", values.get(1).getAsJsonObject().get("a").getAsString());
+    Assert.assertEquals("Non-displayable object", values.get(1).getAsJsonObject().get("c").getAsString());
+
+    JsonArray header = response.getAsJsonArray("header");
+    Assert.assertEquals(4, header.size());
+    Assert.assertEquals("d", header.get(3).getAsString());
+
+    JsonObject types = response.getAsJsonObject("types");
+    Assert.assertEquals("string", types.get("a").getAsString());
+    Assert.assertEquals("integer", types.get("b").getAsString());
+    Assert.assertEquals("object", types.get("c").getAsString());
+    Assert.assertEquals("double", types.get("d").getAsString());
+  }
+
+  @Test
+  public void testLargeResponseIsChunked() throws Exception {
+    List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 5000; ++i) {
+      Record record = new Record();
+      for (int j = 0; j < 20; ++j) {
+        record.add("column_" + j, "value " + i + " " + j);
+      }
+      records.add(record);
+    }
+    JsonObject response = produce(records, 10000);
+    Assert.assertEquals(5000, response.get("count").getAsInt());
+    Assert.assertEquals(5000, response.getAsJsonArray("values").size());
+    Assert.assertEquals("value 4999 19",
+                        response.getAsJsonArray("values").get(4999).getAsJsonObject().get("column_19").getAsString());
+  }
+
+  @Test
+  public void testEmptyResponse() throws Exception {
+    JsonObject response = produce(new ArrayList<Record>(), 100);
+    Assert.assertEquals(0, response.get("count").getAsInt());
+    Assert.assertEquals(0, response.getAsJsonArray("values").size());
+    Assert.assertEquals(0, response.getAsJsonArray("header").size());
+  }
+}
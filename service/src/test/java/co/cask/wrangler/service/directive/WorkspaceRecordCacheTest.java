@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.service.directive;
+
+import co.cask.wrangler.api.Record;
+import co.cask.wrangler.dataset.workspace.WorkspaceException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link WorkspaceRecordCache}
+ */
+public class WorkspaceRecordCacheTest {
+
+  /**
+   * Loads records from a list, counting the number of loads.
+   */
+  private static final class ListLoader implements WorkspaceRecordCache.Loader {
+    private final List<Record> records = new ArrayList<>();
+    private int loads;
+
+    ListLoader(int count) {
+      for (int i = 0; i < count; ++i) {
+        records.add(new Record("body", "line " + i).add("id", i));
+      }
+    }
+
+    @Override
+    public List<Record> load(int limit) throws WorkspaceException {
+      loads++;
+      List<Record> loaded = new ArrayList<>();
+      for (Record record : records.subList(0, Math.min(limit, records.size()))) {
+        loaded.add(new Record(record));
+      }
+      return loaded;
+    }
+  }
+
+  private static byte[] version(int version) {
+    return new byte[] { (byte) version };
+  }
+
+  @Test
+  public void testCachedRecordsAreCopies() throws Exception {
+    WorkspaceRecordCache cache = new WorkspaceRecordCache(1000);
+    ListLoader loader = new ListLoader(10);
+
+    List<Record> records = cache.get("ws", version(1), 100, loader);
+    Assert.assertEquals(10, records.size());
+    records.get(0).setValue(0, "changed");
+    records.get(0).add("extra", 1);
+
+    records = cache.get("ws", version(1), 100, loader);
+    Assert.assertEquals("line 0", records.get(0).getValue("body"));
+    Assert.assertEquals(2, records.get(0).length());
+    Assert.assertEquals(1, loader.loads);
+    Assert.assertEquals(1, cache.stats().hitCount());
+    Assert.assertEquals(1, cache.stats().missCount());
+  }
+
+  @Test
+  public void testReloads() throws Exception {
+    WorkspaceRecordCache cache = new WorkspaceRecordCache(1000);
+    ListLoader loader = new ListLoader(10);
+
+    Assert.assertEquals(5, cache.get("ws", version(1), 5, loader).size());
+    Assert.assertEquals(3, cache.get("ws", version(1), 3, loader).size());
+    Assert.assertEquals(1, loader.loads);
+
+    // More records than cached.
+    Assert.assertEquals(8, cache.get("ws", version(1), 8, loader).size());
+    Assert.assertEquals(2, loader.loads);
+
+    // All the records are cached.
+    Assert.assertEquals(10, cache.get("ws", version(1), 20, loader).size());
+    Assert.assertEquals(10, cache.get("ws", version(1), 100, loader).size());
+    Assert.assertEquals(3, loader.loads);
+
+    // Workspace was written.
+    Assert.assertEquals(10, cache.get("ws", version(2), 100, loader).size());
+    Assert.assertEquals(4, loader.loads);
+
+    cache.invalidate("ws");
+    Assert.assertEquals(10, cache.get("ws", version(2), 100, loader).size());
+    Assert.assertEquals(5, loader.loads);
+  }
+
+  @Test
+  public void testEvictionBySize() throws Exception {
+    WorkspaceRecordCache cache = new WorkspaceRecordCache(100);
+    ListLoader small = new ListLoader(10);
+    ListLoader large = new ListLoader(60);
+
+    cache.get("small", null, 100, small);
+    Assert.assertEquals(1, cache.size());
+    // Holds 120 cells, more than the cache can hold.
+    cache.get("large", null, 100, large);
+    cache.get("large", null, 100, large);
+    Assert.assertEquals(2, large.loads);
+    cache.get("small", null, 100, small);
+    Assert.assertEquals(1, small.loads);
+  }
+}
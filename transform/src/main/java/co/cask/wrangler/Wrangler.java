@@ -47,8 +47,9 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Wrangler - A interactive tool for data data cleansing and transformation.
@@ -68,6 +69,9 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
   private static final String SERVICE_NAME = "service";
   private static final String CONFIG_METHOD = "config";
 
+  // Interval at which the average processing time of records is reported.
+  private static final long PROCESS_TIME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
   // Plugin configuration.
   private final Config config;
 
@@ -86,6 +90,11 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
   // Transient Store
   private TransientStore store;
 
+  // Time spent and number of records processed since the processing time was last reported.
+  private long processTime;
+  private long processCount;
+  private long processReported;
+
   // This is used only for tests, otherwise this is being injected by the ingestion framework.
   public Wrangler(Config config) {
     this.config = config;
@@ -228,12 +237,16 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
       );
     }
 
-    // Create the pipeline executor with context being set.
-    pipeline = new PipelineExecutor();
+    // Create the pipeline executor with context being set, the records produced from an input record
+    // being executed in micro-batches so that slow steps process many of them at once.
+    pipeline = new PipelineExecutor(
+      Integer.getInteger(PipelineExecutor.BATCH_SIZE_PROPERTY, PipelineExecutor.DEFAULT_BATCH_SIZE)
+    );
     pipeline.configure(directives, ctx);
 
     // Initialize the error counter.
     errorCounter = 0;
+    processReported = System.nanoTime();
   }
 
   /**
@@ -273,7 +286,7 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
       store.reset();
 
       start = System.nanoTime();
-      records = pipeline.execute(Arrays.asList(row), oSchema);
+      records = pipeline.execute(Collections.singletonList(row), oSchema);
       // We now extract errors from the execution and pass it on to the error emitter.
       List<ErrorRecord> errors = pipeline.errors();
       if (errors.size() > 0) {
@@ -295,10 +308,15 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
       emitter.emitError(new InvalidEntry<>(0, e.getMessage(), input));
       return;
     } finally {
-      getContext().getMetrics().gauge("process.time", System.nanoTime() - start);
+      reportProcessTime(start);
     }
 
     for (StructuredRecord record : records) {
+      // Records are already of the output schema, unless the pipeline produced the record as is.
+      if (record.getSchema() == oSchema) {
+        emitter.emit(record);
+        continue;
+      }
       StructuredRecord.Builder builder = StructuredRecord.builder(oSchema);
       // Iterate through output schema, if the 'record' doesn't have it, then
       // attempt to take if from 'input'.
@@ -318,6 +336,26 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
     }
   }
 
+  /**
+   * Accumulates the time spent processing a record and reports the average processing time of the
+   * records processed, at most once every second rather than for every record.
+   *
+   * @param start time at which the processing of the record started, 0 if it did not start.
+   */
+  private void reportProcessTime(long start) {
+    long now = System.nanoTime();
+    if (start != 0) {
+      processTime += now - start;
+      processCount++;
+    }
+    if (processCount > 0 && now - processReported >= PROCESS_TIME_INTERVAL_NANOS) {
+      getContext().getMetrics().gauge("process.time", processTime / processCount);
+      processTime = 0;
+      processCount = 0;
+      processReported = now;
+    }
+  }
+
   /**
    * Retrieves the base url from the context and appends method to get to the final url.
    *